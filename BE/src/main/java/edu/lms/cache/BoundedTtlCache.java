@@ -0,0 +1,108 @@
+package edu.lms.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache in-process đơn giản: giới hạn số phần tử (LRU) + TTL theo thời điểm ghi.
+ * Thread-safe (synchronized), đủ dùng cho các cache nhỏ, đọc nhiều ghi ít.
+ * Đếm hit / miss / eviction để theo dõi hiệu quả cache.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAtNanos) {}
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoundedTtlCache(String name, int maxSize, Duration ttl) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        // accessOrder = true -> LRU
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                boolean evict = size() > BoundedTtlCache.this.maxSize;
+                if (evict) evictions.incrementAndGet();
+                return evict;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> e = map.get(key);
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (System.nanoTime() - e.expiresAtNanos() > 0) {
+            map.remove(key);
+            evictions.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return e.value();
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    /**
+     * Đọc từ cache, miss thì gọi loader rồi lưu lại (loader chạy ngoài lock).
+     */
+    public V getOrLoad(K key, Function<K, V> loader) {
+        V v = get(key);
+        if (v != null) return v;
+        v = loader.apply(key);
+        if (v != null) put(key, v);
+        return v;
+    }
+
+    /**
+     * Cập nhật entry đang có (giữ nguyên thời điểm hết hạn), không có thì bỏ qua.
+     */
+    public synchronized void updateIfPresent(K key, UnaryOperator<V> updater) {
+        Entry<V> e = map.get(key);
+        if (e == null) return;
+        map.put(key, new Entry<>(updater.apply(e.value()), e.expiresAtNanos()));
+    }
+
+    public synchronized void evict(K key) {
+        map.remove(key);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.get();
+        long m = misses.get();
+        return Map.of(
+                "name", name,
+                "size", size(),
+                "maxSize", maxSize,
+                "hits", h,
+                "misses", m,
+                "evictions", evictions.get(),
+                "hitRatio", (h + m) == 0 ? 0.0 : (double) h / (h + m)
+        );
+    }
+}
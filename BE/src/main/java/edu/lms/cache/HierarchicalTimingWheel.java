@@ -0,0 +1,137 @@
+package edu.lms.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timing wheel nhiều tầng cho deadline theo id (vd: slot lock, payment PENDING).
+ *  - Tầng 0: wheelSize bucket, mỗi bucket = 1 tick; tầng L: mỗi bucket = wheelSize^L tick.
+ *  - Deadline xa được đặt ở tầng cao, khi tới block của nó thì hạ (cascade) xuống tầng thấp hơn.
+ *  - Quá tầng cao nhất -> overflow, xếp lại mỗi khi tầng cao nhất quay hết 1 vòng.
+ * schedule / advance O(1) trung bình, không phụ thuộc số deadline đang chờ.
+ * Đặt lại deadline cho cùng id: entry cũ bị bỏ qua khi tới hạn (lazy cancel).
+ * Thread-safe (synchronized), dùng chung giữa request thread và scheduler.
+ */
+public final class HierarchicalTimingWheel {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long[] unit; // số tick của 1 bucket ở mỗi tầng
+
+    // buckets[level][index]: id -> deadline tick
+    private final Map<Long, Long>[][] buckets;
+    private final Map<Long, Long> overflow = new HashMap<>();
+    private final Map<Long, Long> deadlines = new HashMap<>();
+    private final List<Long> due = new ArrayList<>();
+
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, int levels, long nowMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.unit = new long[levels];
+        this.buckets = new Map[levels][wheelSize];
+        long u = 1;
+        for (int level = 0; level < levels; level++) {
+            unit[level] = u;
+            u *= wheelSize;
+            for (int i = 0; i < wheelSize; i++) buckets[level][i] = new HashMap<>();
+        }
+        this.currentTick = nowMs / tickMs;
+    }
+
+    /**
+     * Đặt (hoặc đặt lại) deadline cho id. Deadline đã qua -> trả về ở lần advance kế tiếp.
+     */
+    public synchronized void schedule(long id, long deadlineMs) {
+        long deadlineTick = Math.floorDiv(deadlineMs + tickMs - 1, tickMs);
+        deadlines.put(id, deadlineTick);
+        place(id, deadlineTick);
+    }
+
+    public synchronized void cancel(long id) {
+        deadlines.remove(id);
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Quay wheel tới nowMs, trả về các id đã tới hạn (mỗi id 1 lần).
+     */
+    public synchronized List<Long> advance(long nowMs) {
+        long targetTick = nowMs / tickMs;
+        List<Long> fired = new ArrayList<>();
+        drain(due, fired);
+
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Cascade từ tầng cao xuống trước, để entry hạ về đúng bucket tầng 0 của tick này
+            long topSpan = unit[unit.length - 1] * wheelSize;
+            if (currentTick % topSpan == 0 && !overflow.isEmpty()) {
+                Map<Long, Long> pending = new HashMap<>(overflow);
+                overflow.clear();
+                pending.forEach(this::replace);
+            }
+            for (int level = unit.length - 1; level >= 1; level--) {
+                if (currentTick % unit[level] != 0) continue;
+                Map<Long, Long> bucket = buckets[level][(int) ((currentTick / unit[level]) % wheelSize)];
+                if (bucket.isEmpty()) continue;
+                Map<Long, Long> pending = new HashMap<>(bucket);
+                bucket.clear();
+                pending.forEach(this::replace);
+            }
+
+            Map<Long, Long> bucket = buckets[0][(int) (currentTick % wheelSize)];
+            if (!bucket.isEmpty()) {
+                bucket.forEach((id, deadlineTick) -> {
+                    if (deadlineTick.equals(deadlines.get(id))) {
+                        deadlines.remove(id);
+                        fired.add(id);
+                    }
+                });
+                bucket.clear();
+            }
+            drain(due, fired);
+        }
+        return fired;
+    }
+
+    // Xếp lại entry khi cascade; bỏ entry đã bị cancel / đặt lại
+    private void replace(Long id, Long deadlineTick) {
+        if (deadlineTick.equals(deadlines.get(id))) {
+            place(id, deadlineTick);
+        }
+    }
+
+    private void place(long id, long deadlineTick) {
+        if (deadlineTick <= currentTick) {
+            due.add(id);
+            return;
+        }
+        // Tầng thấp nhất mà deadline còn nằm trong vòng quay hiện tại
+        for (int level = 0; level < unit.length; level++) {
+            if (deadlineTick / unit[level] - currentTick / unit[level] < wheelSize) {
+                buckets[level][(int) ((deadlineTick / unit[level]) % wheelSize)].put(id, deadlineTick);
+                return;
+            }
+        }
+        overflow.put(id, deadlineTick);
+    }
+
+    private void drain(List<Long> source, List<Long> target) {
+        for (Long id : source) {
+            Long deadlineTick = deadlines.get(id);
+            if (deadlineTick != null && deadlineTick <= currentTick) {
+                deadlines.remove(id);
+                target.add(id);
+            }
+        }
+        source.clear();
+    }
+}
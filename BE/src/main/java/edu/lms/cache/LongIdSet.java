@@ -0,0 +1,69 @@
+package edu.lms.cache;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Tập id (long) bất biến, lưu dạng mảng primitive đã sort + binary search.
+ * Gọn hơn Set<Long> (không boxing), dùng cho membership theo user
+ * (course đã wishlist / đã mua) – thường chỉ vài chục phần tử.
+ * with / without trả về bản sao mới (copy-on-write), an toàn khi chia sẻ giữa các thread.
+ */
+public final class LongIdSet {
+
+    private static final LongIdSet EMPTY = new LongIdSet(new long[0]);
+
+    private final long[] ids;
+
+    private LongIdSet(long[] sortedDistinct) {
+        this.ids = sortedDistinct;
+    }
+
+    public static LongIdSet empty() {
+        return EMPTY;
+    }
+
+    public static LongIdSet of(Collection<Long> values) {
+        if (values.isEmpty()) return EMPTY;
+        long[] arr = values.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        return new LongIdSet(arr);
+    }
+
+    public boolean contains(Long id) {
+        return id != null && Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    public LongIdSet with(long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos >= 0) return this;
+        int insert = -pos - 1;
+        long[] next = new long[ids.length + 1];
+        System.arraycopy(ids, 0, next, 0, insert);
+        next[insert] = id;
+        System.arraycopy(ids, insert, next, insert + 1, ids.length - insert);
+        return new LongIdSet(next);
+    }
+
+    public LongIdSet without(long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos < 0) return this;
+        long[] next = new long[ids.length - 1];
+        System.arraycopy(ids, 0, next, 0, pos);
+        System.arraycopy(ids, pos + 1, next, pos, ids.length - pos - 1);
+        return new LongIdSet(next);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LongIdSet other && Arrays.equals(ids, other.ids);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ids);
+    }
+}
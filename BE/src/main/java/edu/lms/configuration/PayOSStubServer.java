@@ -0,0 +1,216 @@
+package edu.lms.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server giả lập PayOS (chỉ bật khi payos.stub.enabled=true), dùng cho load test không cần mạng:
+ *  - POST {base}/payment-requests, POST {base}/payment-requests/{id}/cancel: trả response giống PayOS.
+ *  - Tiêm độ trễ (latency-ms + jitter) và lỗi (failure-rate, failure-status) cho từng request.
+ *  - POST /__stub/config?latencyMs=&jitterMs=&failureRate=&failureStatus= đổi cấu hình lúc chạy,
+ *    GET /__stub/config xem cấu hình + số request.
+ * Trỏ app vào stub: payos.endpoint=http://localhost:{port}/v2
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "payos.stub.enabled", havingValue = "true")
+public class PayOSStubServer {
+
+    private static final String BASE_PATH = "/v2/payment-requests";
+
+    private final ObjectMapper mapper;
+    private final int port;
+    private final int threads;
+
+    private volatile long latencyMs;
+    private volatile long jitterMs;
+    private volatile double failureRate;
+    private volatile int failureStatus;
+
+    private final AtomicLong orderSequence = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedFailures = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public PayOSStubServer(
+            ObjectMapper mapper,
+            @Value("${payos.stub.port:18089}") int port,
+            @Value("${payos.stub.threads:64}") int threads,
+            @Value("${payos.stub.latency-ms:0}") long latencyMs,
+            @Value("${payos.stub.jitter-ms:0}") long jitterMs,
+            @Value("${payos.stub.failure-rate:0}") double failureRate,
+            @Value("${payos.stub.failure-status:500}") int failureStatus
+    ) {
+        this.mapper = mapper;
+        this.port = port;
+        this.threads = threads;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.failureRate = failureRate;
+        this.failureStatus = failureStatus;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        // Thread riêng cho mỗi request đang "trễ", tránh request này chặn request khác
+        executor = Executors.newFixedThreadPool(threads);
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(executor);
+        server.createContext(BASE_PATH, this::handlePayOS);
+        server.createContext("/__stub/config", this::handleConfig);
+        server.start();
+        log.warn("[PAYOS STUB] Listening on http://localhost:{}/v2 (latency={}ms, jitter={}ms, failureRate={})",
+                port, latencyMs, jitterMs, failureRate);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+    }
+
+    // ======================================================
+    // PAYOS API
+    // ======================================================
+    private void handlePayOS(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                write(exchange, 405, Map.of("code", "405", "desc", "Method not allowed"));
+                return;
+            }
+            if (!delay()) {
+                write(exchange, 503, Map.of("code", "503", "desc", "Stub interrupted"));
+                return;
+            }
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                injectedFailures.incrementAndGet();
+                write(exchange, failureStatus, Map.of("code", String.valueOf(failureStatus), "desc", "Injected failure"));
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals(BASE_PATH)) {
+                write(exchange, 200, success(checkout("PENDING", UUID.randomUUID().toString().replace("-", ""))));
+            } else if (path.endsWith("/cancel")) {
+                String linkId = path.substring(BASE_PATH.length() + 1, path.length() - "/cancel".length());
+                write(exchange, 200, success(checkout("CANCELLED", linkId)));
+            } else {
+                write(exchange, 404, Map.of("code", "404", "desc", "Not found"));
+            }
+        }
+    }
+
+    private boolean delay() {
+        long sleep = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        if (sleep <= 0) return true;
+        try {
+            Thread.sleep(sleep);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Map<String, Object> checkout(String status, String paymentLinkId) {
+        long orderCode = orderSequence.incrementAndGet();
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("bin", "970422");
+        data.put("accountNumber", "0000000000");
+        data.put("accountName", "PAYOS STUB");
+        data.put("amount", 0);
+        data.put("description", "stub");
+        data.put("orderCode", orderCode);
+        data.put("currency", "VND");
+        data.put("paymentLinkId", paymentLinkId);
+        data.put("status", status);
+        data.put("checkoutUrl", "http://localhost:" + port + "/checkout/" + paymentLinkId);
+        data.put("qrCode", "stub-qr-" + paymentLinkId);
+        return data;
+    }
+
+    private static Map<String, Object> success(Map<String, Object> data) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("code", "00");
+        body.put("desc", "success");
+        body.put("data", data);
+        return body;
+    }
+
+    // ======================================================
+    // RUNTIME CONFIG
+    // ======================================================
+    private void handleConfig(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if ("POST".equals(exchange.getRequestMethod())) {
+                Map<String, String> params = query(exchange.getRequestURI().getRawQuery());
+                try {
+                    if (params.containsKey("latencyMs")) latencyMs = Long.parseLong(params.get("latencyMs"));
+                    if (params.containsKey("jitterMs")) jitterMs = Long.parseLong(params.get("jitterMs"));
+                    if (params.containsKey("failureRate")) failureRate = Double.parseDouble(params.get("failureRate"));
+                    if (params.containsKey("failureStatus")) failureStatus = Integer.parseInt(params.get("failureStatus"));
+                } catch (NumberFormatException e) {
+                    write(exchange, 400, Map.of("error", "Invalid number: " + e.getMessage()));
+                    return;
+                }
+                log.info("[PAYOS STUB] Config changed: latency={}ms, jitter={}ms, failureRate={}, failureStatus={}",
+                        latencyMs, jitterMs, failureRate, failureStatus);
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("latencyMs", latencyMs);
+            body.put("jitterMs", jitterMs);
+            body.put("failureRate", failureRate);
+            body.put("failureStatus", failureStatus);
+            body.put("requests", requests.get());
+            body.put("injectedFailures", injectedFailures.get());
+            write(exchange, 200, body);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isBlank()) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private void write(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
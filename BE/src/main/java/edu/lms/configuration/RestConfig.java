@@ -1,13 +1,40 @@
 package edu.lms.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * RestTemplate dùng chung cho các API ngoài (PayOS...).
+ * JDK HttpClient giữ pool connection keep-alive theo host, không mở TCP + TLS mới cho mỗi request;
+ * connect / read timeout để API chậm không giữ request thread vô thời hạn.
+ */
 @Configuration
 public class RestConfig {
+
+    @Bean
+    public HttpClient outboundHttpClient(
+            @Value("${app.http.connect-timeout-ms:2000}") long connectTimeoutMs
+    ) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(
+            HttpClient outboundHttpClient,
+            @Value("${app.http.read-timeout-ms:5000}") long readTimeoutMs
+    ) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(outboundHttpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return new RestTemplate(requestFactory);
     }
 }
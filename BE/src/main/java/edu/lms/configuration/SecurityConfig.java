@@ -108,6 +108,8 @@ public class SecurityConfig {
                         // Tutor booking plan public endpoints
                         .requestMatchers(HttpMethod.GET, "/tutor/*/booking-plan").permitAll()
                         .requestMatchers(HttpMethod.GET, "/tutor/booking-plan/**").permitAll()
+                        // iCalendar feed: xác thực bằng token ký trong URL (CalendarFeedService)
+                        .requestMatchers(HttpMethod.GET, "/calendar/feed/**").permitAll()
 
 
                         // Other public
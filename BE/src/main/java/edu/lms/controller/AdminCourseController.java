@@ -10,6 +10,10 @@ import edu.lms.dto.response.AdminCourseDetailResponse;
 import edu.lms.enums.CourseDraftStatus;
 import edu.lms.enums.CourseStatus;
 import edu.lms.service.AdminCourseService;
+import edu.lms.service.CourseContentSummaryService;
+import edu.lms.service.CourseDetailCache;
+import edu.lms.service.CourseMembershipCache;
+import edu.lms.service.CourseStatsService;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -17,6 +21,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 import static lombok.AccessLevel.PRIVATE;
 
@@ -27,6 +32,10 @@ import static lombok.AccessLevel.PRIVATE;
 public class AdminCourseController {
 
     AdminCourseService adminCourseService;
+    CourseStatsService courseStatsService;
+    CourseDetailCache courseDetailCache;
+    CourseContentSummaryService courseContentSummaryService;
+    CourseMembershipCache courseMembershipCache;
 
     // ====================== COURSE LIVE LIST ======================
 
@@ -194,4 +203,43 @@ public class AdminCourseController {
                 .build();
     }
 
+    // ====================== COURSE STATS ======================
+
+    @PreAuthorize("principal.claims['role'] == 'Admin'")
+    @Operation(summary = "Admin: rebuild course stats (rating, review count, learner count) từ dữ liệu gốc")
+    @PostMapping("/stats/rebuild")
+    public ApiRespond<Integer> rebuildCourseStats() {
+        return ApiRespond.<Integer>builder()
+                .result(courseStatsService.rebuildAll())
+                .message("Course stats rebuilt (result = number of drifted courses)")
+                .build();
+    }
+
+    @PreAuthorize("principal.claims['role'] == 'Admin'")
+    @Operation(summary = "Admin: backfill content summary cho các course chưa có snapshot")
+    @PostMapping("/content-summary/backfill")
+    public ApiRespond<Integer> backfillContentSummary() {
+        return ApiRespond.<Integer>builder()
+                .result(courseContentSummaryService.backfillMissing())
+                .message("Content summary backfilled (result = number of courses)")
+                .build();
+    }
+
+    @PreAuthorize("principal.claims['role'] == 'Admin'")
+    @Operation(summary = "Admin: thống kê cache course detail (size, hit, miss, eviction)")
+    @GetMapping("/cache/stats")
+    public ApiRespond<Map<String, Object>> getCourseDetailCacheStats() {
+        return ApiRespond.<Map<String, Object>>builder()
+                .result(courseDetailCache.stats())
+                .build();
+    }
+
+    @PreAuthorize("principal.claims['role'] == 'Admin'")
+    @Operation(summary = "Admin: thống kê cache membership (wishlist / purchased theo user)")
+    @GetMapping("/cache/membership-stats")
+    public ApiRespond<Map<String, Object>> getMembershipCacheStats() {
+        return ApiRespond.<Map<String, Object>>builder()
+                .result(courseMembershipCache.stats())
+                .build();
+    }
 }
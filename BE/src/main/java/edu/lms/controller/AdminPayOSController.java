@@ -0,0 +1,28 @@
+package edu.lms.controller;
+
+import edu.lms.dto.response.PayOSClientMetricsResponse;
+import edu.lms.service.PayOSCallGuard;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static lombok.AccessLevel.PRIVATE;
+
+@RestController
+@RequestMapping("/admin/payos")
+@RequiredArgsConstructor
+@FieldDefaults(level = PRIVATE, makeFinal = true)
+public class AdminPayOSController {
+
+    PayOSCallGuard payOSCallGuard;
+
+    // Trạng thái circuit breaker / bulkhead và latency các call tới PayOS
+    @PreAuthorize("principal.claims['role'] == 'Admin'")
+    @GetMapping("/metrics")
+    public PayOSClientMetricsResponse getMetrics() {
+        return payOSCallGuard.snapshot();
+    }
+}
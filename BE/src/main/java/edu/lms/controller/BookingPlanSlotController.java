@@ -2,15 +2,19 @@ package edu.lms.controller;
 
 import edu.lms.dto.request.ApiRespond;
 import edu.lms.dto.response.BookingPlanSlotResponse;
+import edu.lms.dto.response.CursorPageResponse;
 import edu.lms.dto.response.UserResponse;
 import edu.lms.service.BookingPlanSlotService;
 import edu.lms.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -23,8 +27,11 @@ public class BookingPlanSlotController {
     private final BookingPlanSlotService bookingPlanSlotService;
     private final UserService userService; // ⬅️ Thêm dòng này
 
+    // from / to (ISO date-time, [from, to)) tuỳ chọn; không truyền -> toàn bộ lịch sử như trước
     @GetMapping("/my-slots")
-    public ApiRespond<List<BookingPlanSlotResponse>> getMySlots() {
+    public ApiRespond<List<BookingPlanSlotResponse>> getMySlots(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
 
         // 1) Lấy user hiện tại giống myInfo()
         UserResponse user = userService.getMyInfo();
@@ -33,8 +40,8 @@ public class BookingPlanSlotController {
 
         // 2) Truy vấn slot
         List<BookingPlanSlotResponse> result = ("LEARNER".equalsIgnoreCase(role))
-                ? bookingPlanSlotService.getSlotsForUser(userId)
-                : bookingPlanSlotService.getSlotsForTutor(userId);
+                ? bookingPlanSlotService.getSlotsForUser(userId, from, to)
+                : bookingPlanSlotService.getSlotsForTutor(userId, from, to);
 
         return ApiRespond.<List<BookingPlanSlotResponse>>builder()
                 .code(1000)
@@ -42,5 +49,27 @@ public class BookingPlanSlotController {
                 .result(result)
                 .build();
     }
+
+    // Phân trang keyset theo (start_time, slotID), cursor = nextCursor của trang trước
+    @GetMapping("/my-slots/page")
+    public ApiRespond<CursorPageResponse<BookingPlanSlotResponse>> getMySlotPage(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+
+        UserResponse user = userService.getMyInfo();
+        Long userId = user.getUserID();
+
+        CursorPageResponse<BookingPlanSlotResponse> result = ("LEARNER".equalsIgnoreCase(user.getRole()))
+                ? bookingPlanSlotService.getSlotPageForUser(userId, from, to, cursor, size)
+                : bookingPlanSlotService.getSlotPageForTutor(userId, from, to, cursor, size);
+
+        return ApiRespond.<CursorPageResponse<BookingPlanSlotResponse>>builder()
+                .code(1000)
+                .message("OK")
+                .result(result)
+                .build();
+    }
 }
 
@@ -0,0 +1,60 @@
+package edu.lms.controller;
+
+import edu.lms.dto.request.ApiRespond;
+import edu.lms.service.CalendarFeedService;
+import edu.lms.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.nio.charset.StandardCharsets;
+
+import static lombok.AccessLevel.PRIVATE;
+
+@RestController
+@RequestMapping("/calendar")
+@RequiredArgsConstructor
+@FieldDefaults(level = PRIVATE, makeFinal = true)
+public class CalendarFeedController {
+
+    static final MediaType TEXT_CALENDAR = new MediaType("text", "calendar", StandardCharsets.UTF_8);
+
+    CalendarFeedService calendarFeedService;
+    UserService userService;
+
+    @Operation(summary = "Get the private iCalendar (.ics) subscription URL of the current user")
+    @GetMapping("/feed-url")
+    public ApiRespond<String> getFeedUrl() {
+        Long userId = userService.getMyInfo().getUserID();
+        String url = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/calendar/feed/{token}.ics")
+                .buildAndExpand(calendarFeedService.issueToken(userId))
+                .toUriString();
+
+        return ApiRespond.<String>builder()
+                .code(1000)
+                .message("OK")
+                .result(url)
+                .build();
+    }
+
+    // Public (token trong URL); calendar client gửi If-None-Match -> 304 khi lịch không đổi
+    @Operation(summary = "iCalendar feed of booked (Locked / Paid) sessions, streamed")
+    @GetMapping("/feed/{token}.ics")
+    public ResponseEntity<StreamingResponseBody> getFeed(@PathVariable String token, WebRequest webRequest) {
+        Long userId = calendarFeedService.verifyToken(token);
+        return ConditionalGet.respond(webRequest, calendarFeedService.etag(userId),
+                CacheControl.noCache().cachePrivate(), TEXT_CALENDAR,
+                () -> output -> calendarFeedService.writeFeed(userId, output));
+    }
+}
@@ -2,14 +2,17 @@ package edu.lms.controller;
 
 import edu.lms.dto.response.CategoryResponse;
 import edu.lms.service.CategoryService;
+import edu.lms.service.PublicEtagService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -21,14 +24,17 @@ import java.util.List;
 public class CategoryController {
 
     CategoryService categoryService;
+    PublicEtagService publicEtagService;
 
     @GetMapping
-    public List<CategoryResponse> getCategories() {
-        return categoryService.findAll();
+    public ResponseEntity<List<CategoryResponse>> getCategories(WebRequest webRequest) {
+        return ConditionalGet.respond(webRequest, publicEtagService.categoriesEtag(),
+                publicEtagService.publicCacheControl(), categoryService::findAll);
     }
 
     @GetMapping("/{categoryID}")
-    public CategoryResponse getCategory(@PathVariable Long categoryID) {
-        return categoryService.findById(categoryID);
+    public ResponseEntity<CategoryResponse> getCategory(@PathVariable Long categoryID, WebRequest webRequest) {
+        return ConditionalGet.respond(webRequest, publicEtagService.categoriesEtag(),
+                publicEtagService.publicCacheControl(), () -> categoryService.findById(categoryID));
     }
 }
@@ -0,0 +1,61 @@
+package edu.lms.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * Helper cho GET có ETag: If-None-Match khớp -> 304 ngay, không gọi body supplier
+ * (tức là không chạy service / serialize response).
+ */
+final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * @param etag null = không hỗ trợ conditional cho request này (trả 200 bình thường)
+     */
+    static <T> ResponseEntity<T> respond(WebRequest request, String etag,
+                                         CacheControl cacheControl, Supplier<T> body) {
+        if (etag == null) {
+            return ResponseEntity.ok(body.get());
+        }
+        if (request.checkNotModified(etag)) {
+            // 304 mang cùng Vary với 200, shared cache không dùng nhầm biến thể của người khác
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .header(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION)
+                .body(body.get());
+    }
+
+    /**
+     * Như respond nhưng có Content-Type riêng (vd: text/calendar, body stream)
+     */
+    static <T> ResponseEntity<T> respond(WebRequest request, String etag, CacheControl cacheControl,
+                                         MediaType contentType, Supplier<T> body) {
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(contentType)
+                .body(body.get());
+    }
+}
@@ -2,18 +2,27 @@
 package edu.lms.controller;
 
 import edu.lms.dto.request.ApiRespond;
+import edu.lms.dto.request.CourseCatalogRequest;
 import edu.lms.dto.response.CourseDetailResponse;
 import edu.lms.dto.response.CourseResponse;
+import edu.lms.dto.response.CursorPageResponse;
+import edu.lms.dto.response.LessonContentResponse;
 import edu.lms.service.CourseService;
+import edu.lms.service.PublicEtagService;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static lombok.AccessLevel.PRIVATE;
 
@@ -24,6 +33,7 @@ import static lombok.AccessLevel.PRIVATE;
 public class CourseController {
 
     CourseService courseService;
+    PublicEtagService publicEtagService;
 
     private String resolveEmail(Authentication auth) {
         if (auth == null || !auth.isAuthenticated()) return null;
@@ -38,32 +48,86 @@ public class CourseController {
         return null;
     }
 
+    // userId từ JWT (claim "userId"), null nếu guest
+    private Long resolveUserId(Authentication auth) {
+        if (auth != null && auth.getPrincipal() instanceof Jwt jwt
+                && jwt.getClaim("userId") instanceof Number id) {
+            return id.longValue();
+        }
+        return null;
+    }
+
+    // Có đăng nhập nhưng không xác định được userId -> không dùng ETag (response theo user)
+    private boolean canUseEtag(String email, Long userId) {
+        return email == null || userId != null;
+    }
+
     @Operation(summary = "Public: Get all Approved courses")
     @GetMapping("/public/approved")
-    public ApiRespond<List<CourseResponse>> getAllApprovedPublic(Authentication authentication) {
+    public ResponseEntity<ApiRespond<List<CourseResponse>>> getAllApprovedPublic(
+            Authentication authentication, WebRequest webRequest) {
         String email = resolveEmail(authentication); // null nếu guest, có token thì ra email/sub
-        return ApiRespond.<List<CourseResponse>>builder()
-                .result(courseService.getAllApproved(email))
-                .build();
+        Long userId = resolveUserId(authentication);
+        String etag = canUseEtag(email, userId) ? publicEtagService.courseListEtag(userId) : null;
+        return ConditionalGet.respond(webRequest, etag, publicEtagService.cacheControl(userId),
+                () -> ApiRespond.<List<CourseResponse>>builder()
+                        .result(courseService.getAllApproved(email))
+                        .build());
+    }
+
+    @Operation(summary = "Public: Search approved courses (filter, sort, cursor pagination)")
+    @GetMapping("/public/catalog")
+    public ResponseEntity<ApiRespond<CursorPageResponse<CourseResponse>>> getCatalogPublic(
+            @Valid @ModelAttribute CourseCatalogRequest request,
+            Authentication authentication, WebRequest webRequest) {
+        String email = resolveEmail(authentication);
+        Long userId = resolveUserId(authentication);
+        String etag = canUseEtag(email, userId) ? publicEtagService.courseListEtag(userId) : null;
+        return ConditionalGet.respond(webRequest, etag, publicEtagService.cacheControl(userId),
+                () -> ApiRespond.<CursorPageResponse<CourseResponse>>builder()
+                        .result(courseService.getCatalog(request, email))
+                        .build());
     }
 
     @Operation(summary = "Public: Get Approved courses by tutor")
     @GetMapping("/public/approved/{tutorID}")
-    public ApiRespond<List<CourseResponse>> getApprovedByTutorPublic(
-            @PathVariable Long tutorID, Authentication authentication) {
+    public ResponseEntity<ApiRespond<List<CourseResponse>>> getApprovedByTutorPublic(
+            @PathVariable Long tutorID, Authentication authentication, WebRequest webRequest) {
         String email = resolveEmail(authentication);
-        return ApiRespond.<List<CourseResponse>>builder()
-                .result(courseService.getApprovedByTutor(tutorID, email))
-                .build();
+        Long userId = resolveUserId(authentication);
+        String etag = canUseEtag(email, userId) ? publicEtagService.courseListEtag(userId) : null;
+        return ConditionalGet.respond(webRequest, etag, publicEtagService.cacheControl(userId),
+                () -> ApiRespond.<List<CourseResponse>>builder()
+                        .result(courseService.getApprovedByTutor(tutorID, email))
+                        .build());
     }
 
     @Operation(summary = "Public: Get course detail by ID")
     @GetMapping("/detail/{courseID}")
-    public ApiRespond<CourseDetailResponse> getCourseById(
-            @PathVariable Long courseID, Authentication authentication) {
+    public ResponseEntity<ApiRespond<CourseDetailResponse>> getCourseById(
+            @PathVariable Long courseID, Authentication authentication, WebRequest webRequest) {
         String email = resolveEmail(authentication);
-        return ApiRespond.<CourseDetailResponse>builder()
-                .result(courseService.getCourseById(courseID, email))
-                .build();
+        Long userId = resolveUserId(authentication);
+        String etag = canUseEtag(email, userId) ? publicEtagService.courseDetailEtag(courseID, userId) : null;
+        return ConditionalGet.respond(webRequest, etag, publicEtagService.cacheControl(userId),
+                () -> ApiRespond.<CourseDetailResponse>builder()
+                        .result(courseService.getCourseById(courseID, email))
+                        .build());
+    }
+
+    @Operation(summary = "Public: Get lesson content (body) of an approved course, supports ETag / 304")
+    @GetMapping("/detail/{courseID}/lessons/{lessonID}/content")
+    public ResponseEntity<ApiRespond<LessonContentResponse>> getLessonContent(
+            @PathVariable Long courseID, @PathVariable Long lessonID, WebRequest webRequest) {
+        String etag = courseService.getLessonContentETag(courseID, lessonID);
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304, body rỗng
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+                .body(ApiRespond.<LessonContentResponse>builder()
+                        .result(courseService.getLessonContent(lessonID))
+                        .build());
     }
 }
@@ -1,11 +1,14 @@
 package edu.lms.controller;
 
 import edu.lms.dto.request.PaymentRequest;
+import edu.lms.dto.response.PaymentExpiryMetricsResponse;
 import edu.lms.dto.response.PaymentResponse;
 import edu.lms.entity.Payment;
 import edu.lms.exception.AppException;
 import edu.lms.exception.ErrorCode;
 import edu.lms.repository.PaymentRepository;
+import edu.lms.service.PaymentIdempotencyService;
+import edu.lms.service.PaymentScheduler;
 import edu.lms.service.PaymentService;
 import edu.lms.service.PayOSService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -17,6 +20,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
@@ -30,8 +34,10 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentIdempotencyService paymentIdempotencyService;
     private final PayOSService payOSService;
     private final PaymentRepository paymentRepository;
+    private final PaymentScheduler paymentScheduler;
 
     // ======================================================
     // CREATE PAYMENT
@@ -40,11 +46,18 @@ public class PaymentController {
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Payment link created successfully",
                     content = @Content(mediaType = "application/json")),
-            @ApiResponse(responseCode = "400", description = "Invalid payment request", content = @Content)
+            @ApiResponse(responseCode = "400", description = "Invalid payment request", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Same Idempotency-Key is still being processed", content = @Content),
+            @ApiResponse(responseCode = "410", description = "Payment of this Idempotency-Key expired or was cancelled", content = @Content),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key reused for a different payment", content = @Content)
     })
     @PostMapping("/create")
-    public ResponseEntity<?> createPayment(@RequestBody PaymentRequest request) {
-        return paymentService.createPayment(request);
+    public ResponseEntity<?> createPayment(
+            @RequestBody PaymentRequest request,
+            // Client sinh 1 key / lần bấm thanh toán, gửi lại cùng key khi retry -> nhận lại checkoutUrl cũ
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
+        return paymentIdempotencyService.createPayment(request, idempotencyKey);
     }
 
     // ======================================================
@@ -68,6 +81,16 @@ public class PaymentController {
         return ResponseEntity.ok(payments);
     }
 
+    // ======================================================
+    // ADMIN - METRICS SWEEP HẾT HẠN PAYMENT
+    // ======================================================
+    @PreAuthorize("principal.claims['role'] == 'Admin'")
+    @Operation(summary = "Payment expiry sweep metrics", description = "Rows expired / released by the last and all sweep runs")
+    @GetMapping("/admin/expiry-metrics")
+    public ResponseEntity<PaymentExpiryMetricsResponse> getExpiryMetrics() {
+        return ResponseEntity.ok(paymentScheduler.getMetrics());
+    }
+
     // ======================================================
     // TUTOR - GET PAYMENTS BY TUTOR ID (cho admin / thống kê)
     // ======================================================
@@ -1,7 +1,7 @@
 package edu.lms.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import edu.lms.service.PaymentWebhookService;
+import edu.lms.service.PaymentWebhookInbox;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -21,7 +21,7 @@ import java.util.Map;
 @Tag(name = "PayOS Webhook", description = "Receive PayOS payment status notifications")
 public class PaymentWebhookController {
 
-    private final PaymentWebhookService paymentWebhookService;
+    private final PaymentWebhookInbox paymentWebhookInbox;
     private final PayOS payOS;
     private final ObjectMapper mapper;
 
@@ -44,8 +44,8 @@ public class PaymentWebhookController {
             log.info("[PAYOS VERIFIED] orderCode={} | code={} | desc={}",
                     orderCode, code, desc);
 
-            // Forward to service
-            paymentWebhookService.handleWebhook(
+            // Ghi vào inbox và trả về ngay, worker xử lý bất đồng bộ (PayOS gửi lại -> bỏ qua bản trùng)
+            boolean accepted = paymentWebhookInbox.accept(
                     String.valueOf(orderCode),
                     code,     // <-- code quyết định PAID hay FAILED
                     Map.of(
@@ -55,7 +55,7 @@ public class PaymentWebhookController {
             );
 
             return ResponseEntity.ok(Map.of(
-                    "message", "Webhook processed successfully",
+                    "message", accepted ? "Webhook accepted" : "Webhook already received",
                     "orderCode", orderCode,
                     "status", code
             ));
@@ -8,6 +8,7 @@ import edu.lms.security.UserPrincipal;
 import edu.lms.service.TutorBookingPlanService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -20,8 +21,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @RestController
 @RequiredArgsConstructor
@@ -82,10 +86,24 @@ public class TutorBookingPlanController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/booking-plan/me/week")
+    @PreAuthorize("hasRole('TUTOR')")
+    public ResponseEntity<TutorWeekCalendarResponse> getMyWeekCalendar(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        Long currentUserId = getCurrentUserId();
+        TutorWeekCalendarResponse response = tutorBookingPlanService.getMyWeekCalendar(currentUserId, date);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/booking-plan/{bookingPlanId}")
     @PreAuthorize("permitAll()")
-    public ResponseEntity<BookingPlanDetailResponse> getBookingPlanDetail(@PathVariable Long bookingPlanId) {
-        BookingPlanDetailResponse response = tutorBookingPlanService.getBookingPlanDetail(bookingPlanId);
+    public ResponseEntity<BookingPlanDetailResponse> getBookingPlanDetail(
+            @PathVariable Long bookingPlanId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        BookingPlanDetailResponse response = tutorBookingPlanService.getBookingPlanDetail(bookingPlanId, from, to);
         return ResponseEntity.ok(response);
     }
 
@@ -2,10 +2,15 @@ package edu.lms.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.lms.dto.request.TutorApplyRequest;
+import edu.lms.dto.request.TutorSearchRequest;
+import edu.lms.dto.response.CursorPageResponse;
 import edu.lms.dto.response.TutorApplyResponse;
 import edu.lms.dto.response.TutorApplicationListResponse;
 import edu.lms.dto.response.TutorDetailResponse;
+import edu.lms.dto.response.TutorSearchResponse;
 import edu.lms.security.UserPrincipal;
+import edu.lms.service.PublicEtagService;
+import edu.lms.service.TutorSearchIndex;
 import edu.lms.service.TutorService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +20,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -25,6 +31,8 @@ import java.util.List;
 public class TutorController {
 
     private final TutorService tutorService;
+    private final PublicEtagService publicEtagService;
+    private final TutorSearchIndex tutorSearchIndex;
     private final ObjectMapper objectMapper;
 
     // 1. Submit application
@@ -68,16 +76,40 @@ public class TutorController {
 
     // 3. Xem danh sách tất cả tutors đã được approve (tất cả role đều xem được)
     @GetMapping("/approved")
-    public ResponseEntity<List<TutorApplicationListResponse>> getAllApprovedTutors() {
-        List<TutorApplicationListResponse> tutors = tutorService.getAllTutors("APPROVED");
-        return ResponseEntity.ok(tutors);
+    public ResponseEntity<List<TutorApplicationListResponse>> getAllApprovedTutors(WebRequest webRequest) {
+        return ConditionalGet.respond(webRequest, publicEtagService.tutorListEtag(),
+                publicEtagService.publicCacheControl(),
+                () -> tutorService.getAllTutors("APPROVED"));
+    }
+
+    // 3b. Directory tutor đã approve, phân trang keyset (cursor = nextCursor của trang trước)
+    @GetMapping("/directory")
+    public ResponseEntity<CursorPageResponse<TutorApplicationListResponse>> getTutorDirectory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest webRequest) {
+        return ConditionalGet.respond(webRequest, publicEtagService.tutorListEtag(),
+                publicEtagService.publicCacheControl(),
+                () -> tutorService.getTutorDirectory(cursor, size));
+    }
+
+    // 3c. Tìm tutor theo facet (language, specialization, country) + range (price, rating, experience)
+    // + lọc tutor rảnh trong [availableFrom, availableTo) (TutorAvailabilityIndex)
+    // Trả về kèm số lượng theo từng facet; chạy trên index in-memory, không query DB
+    @GetMapping("/search")
+    public ResponseEntity<TutorSearchResponse> searchTutors(@Valid @ModelAttribute TutorSearchRequest request) {
+        return ResponseEntity.ok()
+                .cacheControl(publicEtagService.publicCacheControl())
+                .body(tutorSearchIndex.search(request));
     }
 
     // 4. Xem chi tiết tutor và các khóa học đã được approved (tất cả role đều xem được)
     @GetMapping("/{tutorId}")
-    public ResponseEntity<TutorDetailResponse> getTutorDetail(@PathVariable Long tutorId) {
-        TutorDetailResponse tutorDetail = tutorService.getTutorDetail(tutorId);
-        return ResponseEntity.ok(tutorDetail);
+    public ResponseEntity<TutorDetailResponse> getTutorDetail(@PathVariable Long tutorId, WebRequest webRequest) {
+        // Có email / phone của tutor -> chỉ browser cache (private), không để CDN / proxy lưu
+        return ConditionalGet.respond(webRequest, publicEtagService.tutorDetailEtag(tutorId),
+                publicEtagService.privateCacheControl(),
+                () -> tutorService.getTutorDetail(tutorId));
     }
 
     // Helper method to get current user ID from JWT token
@@ -1,6 +1,7 @@
 package edu.lms.controller;
 
 import edu.lms.dto.request.WithdrawRequest;
+import edu.lms.dto.response.WalletLedgerEntryResponse;
 import edu.lms.dto.response.WithdrawResponse;
 import edu.lms.service.WithdrawService;
 import lombok.RequiredArgsConstructor;
@@ -39,4 +40,13 @@ public class TutorWithdrawController {
     public String getBalance(@RequestParam Long tutorId) {
         return withdrawService.getBalance(tutorId).toPlainString();
     }
+
+    // Tutor xem biến động ví (mới nhất trước)
+    @GetMapping("/ledger")
+    public List<WalletLedgerEntryResponse> getLedger(
+            @RequestParam Long tutorId,
+            @RequestParam(defaultValue = "50") int size
+    ) {
+        return withdrawService.getLedger(tutorId, size);
+    }
 }
@@ -0,0 +1,38 @@
+package edu.lms.dto.request;
+
+import edu.lms.enums.CourseCatalogSort;
+import edu.lms.enums.CourseLevel;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CourseCatalogRequest {
+
+    // Filters (null = bỏ qua)
+    String language;
+    Long categoryId;
+    CourseLevel level;
+    BigDecimal minPrice;
+    BigDecimal maxPrice;
+    Double minRating;
+    Long tutorId;
+
+    @Builder.Default
+    CourseCatalogSort sort = CourseCatalogSort.NEWEST;
+
+    // Cursor opaque trả về từ trang trước (null = trang đầu)
+    String cursor;
+
+    @Min(value = 1, message = "Size must be at least 1")
+    @Max(value = 100, message = "Size must be at most 100")
+    @Builder.Default
+    Integer size = 20;
+}
@@ -19,4 +19,6 @@ public class PaymentRequest {
     private PaymentType paymentType;
     private Long userPackageId;
     private List<SlotRequest> slots;
+    // Lấy từ header Idempotency-Key (controller gán), không bắt buộc
+    private String idempotencyKey;
 }
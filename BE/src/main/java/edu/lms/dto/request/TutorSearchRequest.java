@@ -0,0 +1,48 @@
+package edu.lms.dto.request;
+
+import edu.lms.enums.TutorSearchSort;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TutorSearchRequest {
+
+    // Facet filters (null = bỏ qua, so khớp không phân biệt hoa thường)
+    String teachingLanguage;
+    String specialization;
+    String country;
+
+    // Range filters
+    Double minPrice;
+    Double maxPrice;
+    Double minRating;
+    Integer minExperience;
+
+    // Availability filter: tutor rảnh trong suốt [availableFrom, availableTo) (ISO, vd 2025-11-20T19:00)
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    LocalDateTime availableFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    LocalDateTime availableTo;
+
+    @Builder.Default
+    TutorSearchSort sort = TutorSearchSort.RATING;
+
+    @Min(value = 0, message = "Page must be at least 0")
+    @Builder.Default
+    Integer page = 0;
+
+    @Min(value = 1, message = "Size must be at least 1")
+    @Max(value = 100, message = "Size must be at most 100")
+    @Builder.Default
+    Integer size = 20;
+}
@@ -0,0 +1,35 @@
+package edu.lms.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CalendarEntryResponse {
+
+    String type; // PLAN (khung giờ mở booking) | Locked | Paid (slot đã có learner)
+
+    @JsonProperty("booking_planid")
+    Long bookingPlanId;
+
+    @JsonProperty("slotid")
+    Long slotId; // null với type = PLAN
+
+    String title;
+
+    @JsonProperty("start_time")
+    LocalDateTime startTime;
+
+    @JsonProperty("end_time")
+    LocalDateTime endTime;
+}
@@ -11,7 +11,7 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class CourseDetailResponse {
     Long id;
@@ -29,7 +29,7 @@ public class CourseDetailResponse {
     String tutorName;
     String status;
 
-    List<CourseSectionResponse> section;
+    List<CourseSectionOutlineResponse> section;
     List<String> objectives;
 
     CourseContentSummaryResponse contentSummary;
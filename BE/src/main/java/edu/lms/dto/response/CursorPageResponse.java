@@ -0,0 +1,17 @@
+package edu.lms.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CursorPageResponse<T> {
+    List<T> items;
+    String nextCursor; // null khi đã hết dữ liệu
+    Boolean hasMore;
+}
@@ -0,0 +1,14 @@
+package edu.lms.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class LessonContentResponse {
+    Long lessonID;
+    String content;
+}
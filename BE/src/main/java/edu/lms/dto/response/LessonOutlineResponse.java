@@ -0,0 +1,24 @@
+package edu.lms.dto.response;
+
+import edu.lms.enums.LessonType;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Lesson trong outline public của course: không có content (lấy qua /courses/detail/{courseID}/lessons/{lessonID}/content)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class LessonOutlineResponse {
+    Long lessonID;
+    String title;
+    Short duration;
+    LessonType lessonType;
+    String videoURL;
+    Integer orderIndex;
+    LocalDateTime createdAt;
+    List<LessonResourceResponse> resources;
+}
@@ -0,0 +1,39 @@
+package edu.lms.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PayOSClientMetricsResponse {
+
+    // CLOSED / OPEN / HALF_OPEN
+    String circuitState;
+    Double windowFailureRate;
+    Integer availablePermits;
+
+    List<OperationMetrics> operations;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class OperationMetrics {
+        String operation;
+        Long calls;
+        Long failures;
+        Long rejected;
+        // Percentile = cận trên bucket histogram (50, 100, 250, 500, 1000, 2500, 5000, 10000 ms)
+        Long avgLatencyMs;
+        Long p50LatencyMs;
+        Long p95LatencyMs;
+        Long p99LatencyMs;
+        Long maxLatencyMs;
+    }
+}
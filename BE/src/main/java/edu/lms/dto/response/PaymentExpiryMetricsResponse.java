@@ -0,0 +1,27 @@
+package edu.lms.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PaymentExpiryMetricsResponse {
+
+    Long runs;
+
+    // Lần sweep gần nhất
+    LocalDateTime lastRunAt;
+    Long lastDurationMs;
+    Integer lastChunks;
+    Integer lastExpiredPayments;
+    Integer lastReleasedSlots;
+
+    // Cộng dồn từ lúc khởi động
+    Long totalExpiredPayments;
+    Long totalReleasedSlots;
+}
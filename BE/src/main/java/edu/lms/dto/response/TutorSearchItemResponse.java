@@ -0,0 +1,22 @@
+package edu.lms.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TutorSearchItemResponse {
+    Long tutorId;
+    Long userId;
+    String userName;
+    String avatarURL;
+    String country;
+    String teachingLanguage;
+    String specialization;
+    Double pricePerHour; // giá min của các booking plan active + open, null nếu chưa có
+    Double rating;
+    Integer experience;
+}
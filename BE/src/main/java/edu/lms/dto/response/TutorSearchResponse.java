@@ -0,0 +1,22 @@
+package edu.lms.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TutorSearchResponse {
+    List<TutorSearchItemResponse> items;
+    Integer total;
+    Integer page;
+    Integer size;
+
+    // facet -> (giá trị -> số tutor), đếm theo các filter còn lại (bỏ filter của chính facet đó)
+    Map<String, Map<String, Integer>> facets;
+}
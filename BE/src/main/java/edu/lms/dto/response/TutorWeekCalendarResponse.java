@@ -0,0 +1,32 @@
+package edu.lms.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TutorWeekCalendarResponse {
+
+    @JsonProperty("tutor_id")
+    Long tutorId;
+
+    @JsonProperty("week_start")
+    LocalDate weekStart;
+
+    @JsonProperty("week_end")
+    LocalDate weekEnd; // ngày cuối tuần (inclusive)
+
+    // Khung giờ plan + slot Locked / Paid, sort theo start_time
+    List<CalendarEntryResponse> entries;
+}
@@ -0,0 +1,29 @@
+package edu.lms.dto.response;
+
+import edu.lms.enums.WalletEntryType;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class WalletLedgerEntryResponse {
+
+    Long ledgerId;
+    Long tutorId;
+
+    WalletEntryType entryType;
+    Long sourceId;
+
+    BigDecimal grossAmount;
+    BigDecimal commissionRate;
+    BigDecimal amount;
+    BigDecimal balanceAfter;
+
+    LocalDateTime createdAt;
+}
@@ -1,5 +1,6 @@
 package edu.lms.entity;
 
+import edu.lms.listener.AvailabilityChangeListener;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
@@ -12,7 +13,12 @@ import java.time.LocalTime;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "booking_plan")
+@EntityListeners(AvailabilityChangeListener.class)
+@Table(
+        name = "booking_plan",
+        // Chốt chặn cuối cho TutorScheduleIndex (lock in-memory chỉ trong 1 instance): không trùng giờ bắt đầu cùng ngày
+        uniqueConstraints = @UniqueConstraint(name = "uk_plan_tutor_title_start", columnNames = {"tutor_id", "title", "start_hours"})
+)
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class BookingPlan {
 
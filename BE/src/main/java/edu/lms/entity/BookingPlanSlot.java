@@ -1,6 +1,7 @@
 package edu.lms.entity;
 
 import edu.lms.enums.SlotStatus;
+import edu.lms.listener.AvailabilityChangeListener;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
@@ -12,7 +13,19 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "Booking_Plan_Slot")
+@EntityListeners(AvailabilityChangeListener.class)
+@Table(
+        name = "Booking_Plan_Slot",
+        // 1 tutor không thể có 2 slot cùng giờ bắt đầu (chặn double-booking ở mức DB).
+        // DB cũ còn unique uk_slot_plan_start (ddl-auto=update không tự xoá), xoá tay:
+        //   ALTER TABLE booking_plan_slot DROP INDEX uk_slot_plan_start;
+        uniqueConstraints = @UniqueConstraint(name = "uk_slot_tutor_start", columnNames = {"tutorid", "start_time"}),
+        // Listing theo learner / theo plan, sort theo start_time (keyset pagination, grouped loading)
+        indexes = {
+                @Index(name = "idx_slot_user_start", columnList = "userid, start_time"),
+                @Index(name = "idx_slot_plan_start", columnList = "booking_planid, start_time")
+        }
+)
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class BookingPlanSlot {
 
@@ -52,4 +65,9 @@ public class BookingPlanSlot {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_package_id")
     UserPackage userPackage;
+
+    // Optimistic lock; default 0 cho dòng cũ và dòng insert bằng JDBC (slot materializer)
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    long version;
 }
@@ -16,7 +16,11 @@ import java.util.List;
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
-@Table(name = "Courses")
+@Table(name = "Courses", indexes = {
+        // Catalog keyset pagination: (status, sort key, id); courseID không có @Column(name) -> cột "courseid"
+        @Index(name = "idx_course_status_created", columnList = "status, created_at, courseid"),
+        @Index(name = "idx_course_status_price", columnList = "status, price, courseid")
+})
 public class Course {
 
     @Id
@@ -56,12 +60,18 @@ public class Course {
     @Column(columnDefinition = "TEXT")
     String adminReviewNote;   // Lý do reject / ghi chú của admin
 
+    // Khoá sort của catalog NEWEST (keyset), không được NULL
     @Builder.Default
+    @Column(nullable = false)
     LocalDateTime createdAt = LocalDateTime.now();
 
     @Builder.Default
     LocalDateTime updatedAt = LocalDateTime.now();
 
+    // Tăng mỗi khi nội dung public của course đổi (admin approve/reject), dùng làm key cache
+    @Builder.Default
+    Long contentVersion = 0L;
+
     @ManyToOne
     @JoinColumn(name = "tutorID", nullable = false)
     Tutor tutor;
@@ -80,4 +90,12 @@ public class Course {
     public void onUpdate() {
         updatedAt = LocalDateTime.now();
     }
+
+    public long currentContentVersion() {
+        return contentVersion != null ? contentVersion : 0L;
+    }
+
+    public void bumpContentVersion() {
+        contentVersion = currentContentVersion() + 1;
+    }
 }
@@ -23,4 +23,13 @@ public class CourseCategory {
     String description;
 
     LocalDateTime createdAt = LocalDateTime.now();
+
+    // Dùng làm version cho ETag của /categories/**
+    LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
 }
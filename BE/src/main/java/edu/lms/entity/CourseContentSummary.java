@@ -0,0 +1,51 @@
+package edu.lms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot tổng hợp nội dung course (video, test, article, resource).
+ * Chỉ thay đổi khi course được approve / draft được merge,
+ * nên tính 1 lần lúc publish thay vì duyệt curriculum mỗi request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "course_content_summary")
+public class CourseContentSummary {
+
+    // Trùng với Course.courseID (không auto-generate)
+    @Id
+    Long courseID;
+
+    // Tổng duration (phút) của các lesson Video
+    @Builder.Default
+    @Column(nullable = false)
+    Long totalVideoMinutes = 0L;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Integer totalPracticeTests = 0;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Integer totalArticles = 0;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Integer totalDownloadableResources = 0;
+
+    // Course.contentVersion tại thời điểm tính, lệch -> snapshot đã cũ
+    @Builder.Default
+    @Column(nullable = false)
+    Long contentVersion = 0L;
+
+    @Builder.Default
+    LocalDateTime updatedAt = LocalDateTime.now();
+}
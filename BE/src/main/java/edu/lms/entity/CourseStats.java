@@ -0,0 +1,49 @@
+package edu.lms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model số liệu của course (rating, số review, số learner).
+ * Được cập nhật tăng dần khi có review / enrollment mới,
+ * có thể rebuild toàn bộ từ CourseReview + Enrollment khi bị lệch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "course_stats", indexes = {
+        @Index(name = "idx_course_stats_avg_rating", columnList = "avg_rating, courseid"),
+        @Index(name = "idx_course_stats_learner_count", columnList = "learner_count, courseid")
+})
+public class CourseStats {
+
+    // Trùng với Course.courseID (không auto-generate)
+    @Id
+    Long courseID;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Double ratingSum = 0.0;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Long reviewCount = 0L;
+
+    // ratingSum / reviewCount, lưu sẵn để sort/filter catalog
+    @Builder.Default
+    @Column(nullable = false)
+    Double avgRating = 0.0;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Long learnerCount = 0L;
+
+    @Builder.Default
+    LocalDateTime updatedAt = LocalDateTime.now();
+}
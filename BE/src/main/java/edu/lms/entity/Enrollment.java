@@ -12,7 +12,11 @@ import java.time.LocalDateTime;
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
-@Table(name = "Enrollments")
+@Table(
+        name = "Enrollments",
+        // Mỗi user chỉ enroll 1 lần / course (chặn mua trùng, kể cả khi 2 payment cùng PAID)
+        uniqueConstraints = @UniqueConstraint(name = "uk_enrollment_user_course", columnNames = {"userID", "courseID"})
+)
 public class Enrollment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -16,7 +16,13 @@ import java.time.LocalDateTime;
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
-@Table(name = "Payments")
+@Table(
+        name = "Payments",
+        // Sweep hết hạn: status = PENDING AND expires_at < now
+        indexes = @Index(name = "idx_payment_status_expires", columnList = "status, expires_at"),
+        // 1 Idempotency-Key của user chỉ tạo 1 payment (NULL không bị ràng buộc)
+        uniqueConstraints = @UniqueConstraint(name = "uk_payment_user_idempotency", columnNames = {"user_id", "idempotency_key"})
+)
 public class Payment {
 
     @Id
@@ -102,6 +108,10 @@ public class Payment {
     @Column(nullable = false)
     LocalDateTime expiresAt;
 
+    // Header Idempotency-Key của request tạo payment (client retry -> trả lại checkoutUrl cũ)
+    @Column(name = "idempotency_key", length = 100)
+    String idempotencyKey;
+
     String returnUrl;
 
     String cancelUrl;
@@ -0,0 +1,67 @@
+package edu.lms.entity;
+
+import edu.lms.enums.WebhookEventStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Inbox webhook PayOS: lưu ngay khi nhận, PaymentWebhookInbox xử lý bất đồng bộ.
+ * (orderCode, eventCode) unique -> PayOS gửi lại cùng kết quả chỉ được ghi 1 lần.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(
+        name = "payment_webhook_inbox",
+        uniqueConstraints = @UniqueConstraint(name = "uk_webhook_order_event", columnNames = {"order_code", "event_code"}),
+        indexes = @Index(name = "idx_webhook_status_next", columnList = "status, next_attempt_at")
+)
+public class PaymentWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "event_id")
+    Long eventId;
+
+    @Column(name = "order_code", nullable = false, length = 150)
+    String orderCode;
+
+    // code PayOS: "00" = PAID, khác = FAILED
+    @Column(name = "event_code", nullable = false, length = 20)
+    String eventCode;
+
+    // JSON payload đã verify chữ ký
+    @Column(columnDefinition = "TEXT")
+    String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    WebhookEventStatus status;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    LocalDateTime nextAttemptAt;
+
+    // Hạn claim của worker đang xử lý, cũng là token khi đánh dấu DONE / retry
+    @Column(name = "lease_until")
+    LocalDateTime leaseUntil;
+
+    @Column(name = "last_error", length = 500)
+    String lastError;
+
+    @Builder.Default
+    @Column(name = "received_at", nullable = false, updatable = false)
+    LocalDateTime receivedAt = LocalDateTime.now();
+
+    @Column(name = "processed_at")
+    LocalDateTime processedAt;
+}
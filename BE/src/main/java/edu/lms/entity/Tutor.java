@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -52,8 +53,17 @@ public class Tutor {
     @JoinColumn(name = "tutor_id", referencedColumnName = "tutorID")
     List<BookingPlan> bookingPlans;
 
-    @Column(nullable = false)
+    // Chỉ ghi qua WalletLedgerService (bulk update); save entity không ghi đè số dư bằng giá trị cũ
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     BigDecimal walletBalance = BigDecimal.ZERO;
 
+    // Dùng làm version cho ETag của các endpoint public (/tutors/**)
+    @Builder.Default
+    LocalDateTime updatedAt = LocalDateTime.now();
+
+    @PreUpdate
+    public void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
 }
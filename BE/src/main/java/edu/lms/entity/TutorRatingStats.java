@@ -0,0 +1,37 @@
+package edu.lms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tổng rating của tất cả review thuộc các course của 1 tutor.
+ * Cập nhật O(1) mỗi khi review được tạo / xóa, đối soát định kỳ
+ * bằng TutorRatingService.reconcileAll().
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "tutor_rating_stats")
+public class TutorRatingStats {
+
+    // Trùng với Tutor.tutorID (không auto-generate)
+    @Id
+    Long tutorID;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Double ratingSum = 0.0;
+
+    @Builder.Default
+    @Column(nullable = false)
+    Long reviewCount = 0L;
+
+    @Builder.Default
+    LocalDateTime updatedAt = LocalDateTime.now();
+}
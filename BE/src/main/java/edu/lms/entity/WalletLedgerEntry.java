@@ -0,0 +1,64 @@
+package edu.lms.entity;
+
+import edu.lms.enums.WalletEntryType;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Sổ cái ví tutor (append-only): mỗi biến động số dư là 1 dòng, không update / delete.
+ * tutor.walletBalance = balanceAfter của dòng mới nhất = SUM(amount) của tutor (WalletLedgerVerifier kiểm tra).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Immutable
+@Table(
+        name = "wallet_ledger",
+        // 1 payment / refund / withdraw chỉ ghi sổ 1 lần
+        uniqueConstraints = @UniqueConstraint(name = "uk_ledger_type_source", columnNames = {"entry_type", "source_id"}),
+        indexes = @Index(name = "idx_ledger_tutor", columnList = "tutor_id, ledger_id")
+)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class WalletLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ledger_id")
+    Long ledgerId;
+
+    @Column(name = "tutor_id", nullable = false)
+    Long tutorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 20)
+    WalletEntryType entryType;
+
+    // paymentID / refundRequestId / withdrawId; tutorId với OPENING_BALANCE
+    @Column(name = "source_id", nullable = false)
+    Long sourceId;
+
+    // Số tiền payment và commission áp dụng lúc ghi sổ (chỉ PAYMENT)
+    @Column(name = "gross_amount", precision = 18, scale = 2)
+    BigDecimal grossAmount;
+
+    @Column(name = "commission_rate", precision = 6, scale = 4)
+    BigDecimal commissionRate;
+
+    // + cộng ví / - trừ ví
+    @Column(nullable = false, precision = 18, scale = 2)
+    BigDecimal amount;
+
+    @Column(name = "balance_after", nullable = false, precision = 18, scale = 2)
+    BigDecimal balanceAfter;
+
+    @Builder.Default
+    @Column(name = "created_at", nullable = false, updatable = false)
+    LocalDateTime createdAt = LocalDateTime.now();
+}
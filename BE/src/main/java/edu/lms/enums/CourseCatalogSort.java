@@ -0,0 +1,9 @@
+package edu.lms.enums;
+
+public enum CourseCatalogSort {
+    NEWEST,
+    PRICE_ASC,
+    PRICE_DESC,
+    RATING,
+    POPULARITY
+}
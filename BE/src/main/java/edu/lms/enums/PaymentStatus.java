@@ -10,5 +10,6 @@ public enum PaymentStatus {
     FAILED,     // Giao dịch thất bại
     CANCELLED,  // Người dùng hủy thanh toán
     REFUND,     // Đã hoàn tiền
+    REFUND_PENDING, // Đã thu tiền nhưng trùng (đã enroll course) -> chờ admin hoàn tiền, tutor không được cộng ví
     EXPIRED     // Hết hạn (QR quá 15 phút chưa thanh toán)
 }
@@ -0,0 +1,8 @@
+package edu.lms.enums;
+
+public enum TutorSearchSort {
+    RATING,
+    PRICE_ASC,
+    PRICE_DESC,
+    EXPERIENCE
+}
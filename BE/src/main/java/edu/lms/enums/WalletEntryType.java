@@ -0,0 +1,8 @@
+package edu.lms.enums;
+
+public enum WalletEntryType {
+    OPENING_BALANCE, // số dư chuyển từ cách tính cũ (trước khi có ledger)
+    PAYMENT,         // + tiền thực nhận từ payment PAID (đã trừ commission)
+    REFUND,          // - refund được admin duyệt
+    WITHDRAW         // - withdraw được admin duyệt
+}
@@ -0,0 +1,8 @@
+package edu.lms.enums;
+
+public enum WebhookEventStatus {
+    PENDING,     // chờ xử lý / chờ retry (nextAttemptAt)
+    PROCESSING,  // đã được 1 worker claim (leaseUntil)
+    DONE,
+    FAILED       // hết số lần retry, cần xử lý tay
+}
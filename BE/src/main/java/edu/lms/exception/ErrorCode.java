@@ -38,6 +38,8 @@ public enum ErrorCode {
     COURSE_NOT_APPROVED(3011, "This course is not yet approved for public view", HttpStatus.FORBIDDEN),
     REFUND_NOT_FOUND(1013, "Refund Not found", HttpStatus.NOT_FOUND),
     COURSE_DELETE_ONLY_DRAFT_OR_PENDING(3015, "COURSE_DELETE_ONLY_DRAFT_OR_PENDING", HttpStatus.BAD_REQUEST),
+    INVALID_CURSOR(3016, "Invalid pagination cursor", HttpStatus.BAD_REQUEST),
+    LESSON_NOT_FOUND(3017, "Lesson not found", HttpStatus.NOT_FOUND),
     // COURSE DRAFT / VERSIONING (THÊM MỚI)
     CAN_ONLY_EDIT_DRAFT_FOR_APPROVED_COURSE(
             3012,
@@ -80,6 +82,11 @@ public enum ErrorCode {
     INVALID_AMOUNT(6004, "Ballance is not enough", HttpStatus.FORBIDDEN),
     NOT_FOUND(6005, "withDraw Not found", HttpStatus.FORBIDDEN),
     INVALID_STATUS(6006, "WithDraw Status Not Found", HttpStatus.FORBIDDEN),
+    PAYMENT_GATEWAY_UNAVAILABLE(6007, "Payment gateway is temporarily unavailable, please try again later", HttpStatus.SERVICE_UNAVAILABLE),
+    INVALID_IDEMPOTENCY_KEY(6008, "Idempotency-Key must be at most 100 characters", HttpStatus.BAD_REQUEST),
+    IDEMPOTENCY_KEY_REUSED(6009, "Idempotency-Key was already used for a different payment", HttpStatus.UNPROCESSABLE_ENTITY),
+    PAYMENT_IN_PROGRESS(6010, "A payment with this Idempotency-Key is still being created, please retry", HttpStatus.CONFLICT),
+    IDEMPOTENCY_KEY_EXPIRED(6011, "The payment of this Idempotency-Key has expired or was cancelled, start a new payment with a new key", HttpStatus.GONE),
 
 
 
@@ -92,6 +99,10 @@ public enum ErrorCode {
     BOOKING_PLAN_HAS_BOOKED_SLOT(7005, "This booking plan already has booked slots", HttpStatus.CONFLICT),
     BOOKING_SLOT_NOT_FOUND(7006, "Booking slot not found", HttpStatus.NOT_FOUND),
     BOOKING_SLOT_EXPIRED(7007, "Booking slot lock has expired", HttpStatus.BAD_REQUEST),
+    INVALID_AVAILABILITY_WINDOW(7009, "Availability window must be in the future, within the search horizon, and from < to", HttpStatus.BAD_REQUEST),
+    BOOKING_SLOT_CONCURRENT_UPDATE(7010, "Booking slot was changed by another request, please reload and try again", HttpStatus.CONFLICT),
+    BOOKING_PLAN_BUSY(7011, "Booking plans of this tutor are being updated, please try again", HttpStatus.CONFLICT),
+    INVALID_DATE_RANGE(7012, "Date range is invalid, 'from' must be before 'to'", HttpStatus.BAD_REQUEST),
 
     // CHAT & POLICY
     CHAT_ROOM_NOT_FOUND(8001, "Chat room not found", HttpStatus.NOT_FOUND),
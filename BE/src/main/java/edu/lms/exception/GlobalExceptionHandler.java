@@ -9,6 +9,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authorization.AuthorizationDeniedException;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -33,6 +34,18 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(errorCode.getStatusCode()).body(response);
     }
 
+    // ==================== OPTIMISTIC LOCK (@Version) ====================
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ApiRespond> handleOptimisticLock(ObjectOptimisticLockingFailureException ex) {
+        log.warn("Optimistic lock conflict on {}: {}", ex.getPersistentClassName(), ex.getIdentifier());
+        ErrorCode errorCode = ErrorCode.BOOKING_SLOT_CONCURRENT_UPDATE;
+        ApiRespond response = ApiRespond.builder()
+                .code(errorCode.getCode())
+                .message(errorCode.getMessage())
+                .build();
+        return ResponseEntity.status(errorCode.getStatusCode()).body(response);
+    }
+
     // ==================== BAD CREDENTIALS (LOGIN WRONG PASSWORD) ====================
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<ApiRespond> handleBadCredentials(BadCredentialsException ex) {
@@ -0,0 +1,46 @@
+package edu.lms.listener;
+
+import edu.lms.entity.BookingPlan;
+import edu.lms.entity.BookingPlanSlot;
+import edu.lms.service.TutorAvailabilityIndex;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entity listener cho BookingPlan / BookingPlanSlot: mỗi lần insert / update / delete
+ * đánh dấu tutor cần refresh trong TutorAvailabilityIndex (chạy 1 lần sau commit).
+ * Lưu ý: bulk JPQL update / delete không đi qua listener -> phải gọi onTutorChanged thủ công.
+ */
+@Slf4j
+@Component
+public class AvailabilityChangeListener implements ApplicationContextAware {
+
+    private static ApplicationContext applicationContext;
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        AvailabilityChangeListener.applicationContext = applicationContext;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void afterChange(Object entity) {
+        Long tutorId = null;
+        if (entity instanceof BookingPlanSlot slot) tutorId = slot.getTutorID();
+        else if (entity instanceof BookingPlan plan) tutorId = plan.getTutorID();
+        if (tutorId == null || applicationContext == null) return;
+
+        try {
+            applicationContext.getBean(TutorAvailabilityIndex.class).onTutorChanged(tutorId);
+        } catch (Exception e) {
+            log.error("[AVAILABILITY] Failed to schedule refresh for tutor {}", tutorId, e);
+        }
+    }
+}
@@ -1,14 +1,13 @@
 package edu.lms.repository;
 
 import edu.lms.entity.BookingPlan;
-import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,45 +18,22 @@ public interface BookingPlanRepository extends JpaRepository<BookingPlan, Long>
      */
     List<BookingPlan> findByTutorID(Long tutorID);
 
-    /**
-     * Tìm booking plan theo tutorID và title (thứ trong tuần)
-     */
-    List<BookingPlan> findByTutorIDAndTitle(Long tutorID, String title);
-
-    /**
-     * Kiểm tra xem có booking plan nào overlap với thời gian cho trước không
-     * (cùng tutor, cùng title/ngày, và thời gian overlap)
-     * Sử dụng pessimistic lock để tránh race condition
-     */
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("""
-        SELECT bp FROM BookingPlan bp
-        WHERE bp.tutorID = :tutorID
-          AND bp.title = :title
-          AND bp.isActive = true
-          AND (:excludeId IS NULL OR bp.bookingPlanID <> :excludeId)
-          AND NOT (bp.endHours <= :startTime OR bp.startHours >= :endTime)
-        """)
-    List<BookingPlan> findOverlappingPlans(
-            @Param("tutorID") Long tutorID,
-            @Param("title") String title,
-            @Param("startTime") LocalTime startTime,
-            @Param("endTime") LocalTime endTime,
-            @Param("excludeId") Long excludeId
-    );
-
     List<BookingPlan> findByTutorIDAndIsActiveTrueOrderByTitleAscStartHoursAsc(Long tutorID);
 
+    @Modifying
+    @Query("DELETE FROM BookingPlan bp WHERE bp.bookingPlanID IN :ids")
+    int deleteAllByIds(@Param("ids") Collection<Long> ids);
+
     /**
-     * Đếm số ngày làm việc duy nhất (distinct titles) của tutor
-     * Giới hạn tối đa 4 ngày/tuần
-     * Sử dụng pessimistic lock để tránh race condition
+     * Booking plan đang nhận booking (active + open) của các tutor APPROVED,
+     * tutorID = null -> tất cả tutor (dùng cho slot materializer).
      */
-    @Lock(LockModeType.PESSIMISTIC_READ)
     @Query("""
-        SELECT COUNT(DISTINCT bp.title) FROM BookingPlan bp
-        WHERE bp.tutorID = :tutorID
-          AND bp.isActive = true
+        SELECT bp FROM BookingPlan bp
+        WHERE bp.isActive = true AND bp.isOpen = true
+          AND (:tutorID IS NULL OR bp.tutorID = :tutorID)
+          AND EXISTS (SELECT 1 FROM Tutor t
+                      WHERE t.tutorID = bp.tutorID AND t.status = 'APPROVED')
         """)
-    Long countDistinctDaysByTutorID(@Param("tutorID") Long tutorID);
+    List<BookingPlan> findOpenPlansOfApprovedTutors(@Param("tutorID") Long tutorID);
 }
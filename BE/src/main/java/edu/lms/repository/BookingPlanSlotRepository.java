@@ -1,30 +1,34 @@
 package edu.lms.repository;
 
 import edu.lms.entity.BookingPlanSlot;
+import edu.lms.entity.UserPackage;
 import edu.lms.enums.SlotStatus;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface BookingPlanSlotRepository extends JpaRepository<BookingPlanSlot, Long> {
 
     boolean existsByBookingPlanID(Long bookingPlanID);
-    boolean existsByTutorIDAndStartTimeAndEndTime(Long tutorID, LocalDateTime startTime, LocalDateTime endTime);
+    Optional<BookingPlanSlot> findFirstByTutorIDAndStartTimeAndEndTime(Long tutorID, LocalDateTime startTime, LocalDateTime endTime);
 
     List<BookingPlanSlot> findAllByPaymentID(Long paymentId);
 
-    // Lấy slot mà learner đã book
-    List<BookingPlanSlot> findByUserID(Long userId);
-
-    // Lấy slot của tutor
-    List<BookingPlanSlot> findByTutorID(Long tutorId);
-
     List<BookingPlanSlot> findAllByUserIDAndPaymentIDAndStatus(Long userId, Long paymentId, SlotStatus status);
 
     @Modifying
@@ -42,6 +46,34 @@ public interface BookingPlanSlotRepository extends JpaRepository<BookingPlanSlot
             @Param("paymentId") Long paymentId
     );
 
+    /**
+     * Lock nguyên tử: chỉ slot còn trống (Available hoặc Locked đã hết hạn), chưa bắt đầu mới được lock.
+     * Trả về số slot lock được; < số id truyền vào = có slot đã bị người khác giữ.
+     * Tăng version để các read-modify-write đang giữ bản cũ bị optimistic lock.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE BookingPlanSlot s
+        SET s.status = 'Locked',
+            s.userID = :userId,
+            s.lockedAt = :now,
+            s.expiresAt = :expiresAt,
+            s.paymentID = NULL,
+            s.userPackage = :userPackage,
+            s.version = s.version + 1
+        WHERE s.slotID IN :slotIds
+          AND s.startTime > :now
+          AND ((s.status = 'Available' AND s.userID IS NULL)
+               OR (s.status = 'Locked' AND s.expiresAt < :now))
+    """)
+    int lockIfAvailable(
+            @Param("slotIds") List<Long> slotIds,
+            @Param("userId") Long userId,
+            @Param("userPackage") UserPackage userPackage,
+            @Param("now") LocalDateTime now,
+            @Param("expiresAt") LocalDateTime expiresAt
+    );
+
     @Query("""
         SELECT s FROM BookingPlanSlot s
         WHERE s.status = 'Locked'
@@ -49,6 +81,67 @@ public interface BookingPlanSlotRepository extends JpaRepository<BookingPlanSlot
     """)
     List<BookingPlanSlot> findAllExpiredSlots(@Param("now") LocalDateTime now);
 
+    // ===== Expiry (timing wheel) =====
+
+    /**
+     * Deadline của các slot đang Locked: [slotID, expiresAt] (nạp timing wheel lúc startup)
+     */
+    @Query("""
+        SELECT s.slotID, s.expiresAt FROM BookingPlanSlot s
+        WHERE s.status = 'Locked'
+          AND s.expiresAt IS NOT NULL
+    """)
+    List<Object[]> findLockDeadlines();
+
+    @Query("""
+        SELECT DISTINCT s.tutorID FROM BookingPlanSlot s
+        WHERE s.slotID IN :slotIds OR s.paymentID IN :paymentIds
+    """)
+    List<Long> findTutorIdsBySlotOrPayment(@Param("slotIds") Collection<Long> slotIds,
+                                           @Param("paymentIds") Collection<Long> paymentIds);
+
+    /**
+     * Trả slot lock đã hết hạn (chưa bắt đầu) về Available.
+     * Nhận slot theo id hoặc theo payment đã EXPIRED.
+     */
+    @Modifying
+    @Query("""
+        UPDATE BookingPlanSlot s
+        SET s.status = 'Available',
+            s.userID = NULL,
+            s.lockedAt = NULL,
+            s.expiresAt = NULL,
+            s.paymentID = NULL,
+            s.userPackage = NULL,
+            s.version = s.version + 1
+        WHERE s.status = 'Locked'
+          AND s.startTime > :now
+          AND ((s.slotID IN :slotIds AND s.expiresAt < :now)
+               OR (s.paymentID IN :paymentIds
+                   AND EXISTS (SELECT 1 FROM Payment p
+                               WHERE p.paymentID = s.paymentID AND p.status = 'EXPIRED')))
+    """)
+    int releaseExpiredLocks(@Param("slotIds") Collection<Long> slotIds,
+                            @Param("paymentIds") Collection<Long> paymentIds,
+                            @Param("now") LocalDateTime now);
+
+    /**
+     * Slot lock hết hạn nhưng đã qua giờ bắt đầu -> xoá (không còn book được)
+     */
+    @Modifying
+    @Query("""
+        DELETE FROM BookingPlanSlot s
+        WHERE s.status = 'Locked'
+          AND s.startTime <= :now
+          AND ((s.slotID IN :slotIds AND s.expiresAt < :now)
+               OR (s.paymentID IN :paymentIds
+                   AND EXISTS (SELECT 1 FROM Payment p
+                               WHERE p.paymentID = s.paymentID AND p.status = 'EXPIRED')))
+    """)
+    int deleteExpiredPastLocks(@Param("slotIds") Collection<Long> slotIds,
+                               @Param("paymentIds") Collection<Long> paymentIds,
+                               @Param("now") LocalDateTime now);
+
     /**
      * Tìm tất cả slots của một tutor
      */
@@ -92,6 +185,24 @@ public interface BookingPlanSlotRepository extends JpaRepository<BookingPlanSlot
     """)
     List<BookingPlanSlot> findBookedSlotsByTutorID(@Param("tutorID") Long tutorID);
 
+    /**
+     * Slot đang giữ chỗ (Locked / Paid) của tutor trong [startDate, endDate),
+     * endDate = null -> không giới hạn (dùng cho TutorScheduleIndex)
+     */
+    @Query("""
+        SELECT s FROM BookingPlanSlot s
+        WHERE s.tutorID = :tutorID
+          AND s.status IN ('Locked', 'Paid')
+          AND s.startTime >= :startDate
+          AND (:endDate IS NULL OR s.startTime < :endDate)
+        ORDER BY s.startTime ASC
+    """)
+    List<BookingPlanSlot> findOccupiedByTutorID(
+            @Param("tutorID") Long tutorID,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
     /**
      * Tìm slots còn trống (chưa có user book) của tutor
      */
@@ -126,5 +237,205 @@ public interface BookingPlanSlotRepository extends JpaRepository<BookingPlanSlot
 
     List<BookingPlanSlot> findByBookingPlanIDOrderByStartTimeAsc(Long bookingPlanID);
 
+    /**
+     * Slot của nhiều plan trong 1 query (group theo plan ở service), dùng idx_slot_plan_start
+     */
+    List<BookingPlanSlot> findByBookingPlanIDInOrderByStartTimeAscSlotIDAsc(Collection<Long> bookingPlanIDs);
+
+    /**
+     * Slot của 1 plan bắt đầu trong [from, to) (null = không giới hạn), dùng idx_slot_plan_start
+     */
+    @Query("""
+        SELECT s FROM BookingPlanSlot s
+        WHERE s.bookingPlanID = :bookingPlanID
+          AND (:from IS NULL OR s.startTime >= :from)
+          AND (:to IS NULL OR s.startTime < :to)
+        ORDER BY s.startTime ASC
+    """)
+    List<BookingPlanSlot> findPlanSlotsInRange(
+            @Param("bookingPlanID") Long bookingPlanID,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
+
+    // ================= Slot listing (keyset pagination) =================
+    // [from, to) theo startTime, from / to = null -> không giới hạn.
+    // Phía tutor chỉ liệt kê slot đã có learner (bỏ slot Available do materializer sinh ra).
+    // Cursor = (startTime, slotID) của phần tử cuối trang trước; slotID làm tie-breaker.
+    // Pageable.unpaged() -> lấy hết trong khoảng.
+
+    @Query("""
+        SELECT s FROM BookingPlanSlot s
+        WHERE s.tutorID = :tutorID
+          AND s.userID IS NOT NULL
+          AND (:from IS NULL OR s.startTime >= :from)
+          AND (:to IS NULL OR s.startTime < :to)
+          AND (:cursorStart IS NULL
+               OR s.startTime > :cursorStart
+               OR (s.startTime = :cursorStart AND s.slotID > :cursorId))
+        ORDER BY s.startTime ASC, s.slotID ASC
+    """)
+    List<BookingPlanSlot> findTutorSlots(
+            @Param("tutorID") Long tutorID,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("cursorStart") LocalDateTime cursorStart,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable
+    );
+
+    @Query("""
+        SELECT s FROM BookingPlanSlot s
+        WHERE s.userID = :userID
+          AND (:from IS NULL OR s.startTime >= :from)
+          AND (:to IS NULL OR s.startTime < :to)
+          AND (:cursorStart IS NULL
+               OR s.startTime > :cursorStart
+               OR (s.startTime = :cursorStart AND s.slotID > :cursorId))
+        ORDER BY s.startTime ASC, s.slotID ASC
+    """)
+    List<BookingPlanSlot> findUserSlots(
+            @Param("userID") Long userID,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("cursorStart") LocalDateTime cursorStart,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable
+    );
+
     void deleteByBookingPlanID(Long bookingPlanID);
+
+    /**
+     * Slot có learner của các booking plan (teardown khi xoá plan / suspend tutor)
+     */
+    List<BookingPlanSlot> findByBookingPlanIDInAndUserIDIsNotNull(Collection<Long> bookingPlanIDs);
+
+    @Modifying
+    @Query("""
+        DELETE FROM BookingPlanSlot s
+        WHERE s.bookingPlanID IN :planIds
+    """)
+    int deleteAllByPlanIds(@Param("planIds") Collection<Long> planIds);
+
+    /**
+     * Slot còn trống (Available, chưa có learner) bắt đầu trong [from, to) của plan active + open,
+     * tutor APPROVED; tutorID = null -> tất cả tutor (dùng cho availability index).
+     */
+    @Query("""
+        SELECT s FROM BookingPlanSlot s
+        WHERE s.status = 'Available'
+          AND s.userID IS NULL
+          AND s.startTime >= :from AND s.startTime < :to
+          AND (:tutorID IS NULL OR s.tutorID = :tutorID)
+          AND EXISTS (SELECT 1 FROM BookingPlan bp
+                      WHERE bp.bookingPlanID = s.bookingPlanID
+                        AND bp.isActive = true AND bp.isOpen = true)
+          AND EXISTS (SELECT 1 FROM Tutor t
+                      WHERE t.tutorID = s.tutorID AND t.status = 'APPROVED')
+        ORDER BY s.startTime ASC
+        """)
+    List<BookingPlanSlot> findBookableInRange(@Param("tutorID") Long tutorID,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to);
+
+    /**
+     * Xoá slot trống của booking plan không còn tồn tại (slot materializer)
+     */
+    @Modifying
+    @Query("""
+        DELETE FROM BookingPlanSlot s
+        WHERE s.status = 'Available'
+          AND s.userID IS NULL
+          AND NOT EXISTS (SELECT 1 FROM BookingPlan bp WHERE bp.bookingPlanID = s.bookingPlanID)
+        """)
+    int deleteOrphanAvailableSlots();
+
+    /**
+     * Xoá slot trống sắp tới của plan đã đóng / ngừng hoặc của tutor không còn APPROVED (slot materializer)
+     */
+    @Modifying
+    @Query("""
+        DELETE FROM BookingPlanSlot s
+        WHERE s.status = 'Available'
+          AND s.userID IS NULL
+          AND s.startTime > :now
+          AND EXISTS (SELECT 1 FROM BookingPlan bp
+                      WHERE bp.bookingPlanID = s.bookingPlanID
+                        AND (bp.isActive = false OR bp.isOpen = false
+                             OR NOT EXISTS (SELECT 1 FROM Tutor t
+                                            WHERE t.tutorID = bp.tutorID AND t.status = 'APPROVED')))
+        """)
+    int deleteAvailableSlotsOfClosedPlans(@Param("now") LocalDateTime now);
+
+    // ================= iCalendar feed =================
+
+    /**
+     * 1 sự kiện trong feed .ics: slot Locked / Paid + plan + tên tutor / learner.
+     */
+    interface CalendarEventRow {
+        Long getSlotId();
+        Long getTutorId();
+        Long getUserId();
+        LocalDateTime getStartTime();
+        LocalDateTime getEndTime();
+        SlotStatus getStatus();
+        Long getVersion();
+        String getPlanTitle();
+        String getMeetingUrl();
+        String getTutorName();
+        String getLearnerName();
+    }
+
+    String CALENDAR_FILTER = """
+        WHERE s.status IN ('Locked', 'Paid')
+          AND (s.userID = :userId OR s.tutorID = :tutorId)
+          AND s.startTime >= :from
+        """;
+
+    /**
+     * Slot của user (là learner hoặc tutor) cho feed .ics, stream từng dòng từ cursor của MySQL
+     * (fetch size Integer.MIN_VALUE), phải đọc trong transaction và đóng Stream sau khi dùng.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT s.slotID AS slotId,
+               s.tutorID AS tutorId,
+               s.userID AS userId,
+               s.startTime AS startTime,
+               s.endTime AS endTime,
+               s.status AS status,
+               s.version AS version,
+               bp.title AS planTitle,
+               bp.meetingUrl AS meetingUrl,
+               tu.fullName AS tutorName,
+               lu.fullName AS learnerName
+        FROM BookingPlanSlot s
+        JOIN BookingPlan bp ON bp.bookingPlanID = s.bookingPlanID
+        JOIN Tutor t ON t.tutorID = s.tutorID
+        JOIN t.user tu
+        LEFT JOIN User lu ON lu.userID = s.userID
+        """ + CALENDAR_FILTER + """
+        ORDER BY s.startTime ASC
+        """)
+    Stream<CalendarEventRow> streamCalendarEvents(@Param("userId") Long userId,
+                                                  @Param("tutorId") Long tutorId,
+                                                  @Param("from") LocalDateTime from);
+
+    /**
+     * Fingerprint cho ETag của feed .ics: đổi khi slot thêm / xoá / đổi trạng thái (version tăng)
+     * hoặc plan đổi (meetingUrl, title).
+     */
+    @Query("""
+        SELECT COUNT(s), COALESCE(SUM(s.slotID), 0), COALESCE(SUM(s.version), 0),
+               COALESCE(SUM(CASE WHEN s.status = 'Paid' THEN 1 ELSE 0 END), 0),
+               MAX(bp.updatedAt)
+        FROM BookingPlanSlot s
+        JOIN BookingPlan bp ON bp.bookingPlanID = s.bookingPlanID
+        """ + CALENDAR_FILTER)
+    List<Object[]> fingerprintCalendar(@Param("userId") Long userId,
+                                       @Param("tutorId") Long tutorId,
+                                       @Param("from") LocalDateTime from);
 }
@@ -2,9 +2,15 @@ package edu.lms.repository;
 
 import edu.lms.entity.CourseCategory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface CourseCategoryRepository extends JpaRepository<CourseCategory, Long> {
 
+    // Fingerprint cho ETag của /categories/**. Row: [count, max id, max updatedAt]
+    @Query("SELECT COUNT(c), MAX(c.categoryID), MAX(c.updatedAt) FROM CourseCategory c")
+    List<Object[]> fingerprint();
 }
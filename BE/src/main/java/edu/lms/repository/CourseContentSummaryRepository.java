@@ -0,0 +1,20 @@
+package edu.lms.repository;
+
+import edu.lms.entity.CourseContentSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CourseContentSummaryRepository extends JpaRepository<CourseContentSummary, Long> {
+
+    // Course chưa có snapshot (dùng cho backfill)
+    @Query("""
+        SELECT c.courseID FROM Course c
+        WHERE NOT EXISTS (SELECT 1 FROM CourseContentSummary s WHERE s.courseID = c.courseID)
+        ORDER BY c.courseID
+    """)
+    List<Long> findCourseIdsWithoutSummary();
+}
@@ -2,15 +2,204 @@ package edu.lms.repository;
 
 import edu.lms.entity.Course;
 import edu.lms.entity.Tutor;
+import edu.lms.enums.CourseLevel;
 import edu.lms.enums.CourseStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface CourseRepository extends JpaRepository<Course, Long> {
+
+    // ================= Catalog (keyset pagination) =================
+    // Mọi filter đều optional (NULL = bỏ qua). Cursor = (giá trị sort, courseID)
+    // của phần tử cuối trang trước; courseID làm tie-breaker để thứ tự ổn định.
+    // Mọi course đều có 1 row CourseStats (CourseStatsService) -> INNER JOIN, sort / seek thẳng trên
+    // cột stats không null để dùng được idx_course_stats_avg_rating / idx_course_stats_learner_count.
+
+    String CATALOG_JOINS = """
+        JOIN FETCH c.tutor t
+        JOIN FETCH t.user
+        JOIN FETCH c.category cat
+        JOIN CourseStats cs ON cs.courseID = c.courseID
+        """;
+
+    String CATALOG_SELECT = "SELECT c FROM Course c " + CATALOG_JOINS;
+
+    String CATALOG_FILTER = """
+        WHERE c.status = :status
+          AND (:language IS NULL OR c.language = :language)
+          AND (:categoryId IS NULL OR cat.categoryID = :categoryId)
+          AND (:level IS NULL OR c.level = :level)
+          AND (:minPrice IS NULL OR c.price >= :minPrice)
+          AND (:maxPrice IS NULL OR c.price <= :maxPrice)
+          AND (:tutorId IS NULL OR t.tutorID = :tutorId)
+          AND (:minRating IS NULL OR cs.avgRating >= :minRating)
+        """;
+
+    @Query(CATALOG_SELECT + CATALOG_FILTER + """
+          AND (:cursorCreatedAt IS NULL
+               OR c.createdAt < :cursorCreatedAt
+               OR (c.createdAt = :cursorCreatedAt AND c.courseID < :cursorId))
+        ORDER BY c.createdAt DESC, c.courseID DESC
+        """)
+    List<Course> findCatalogNewest(@Param("status") CourseStatus status,
+                                   @Param("language") String language,
+                                   @Param("categoryId") Long categoryId,
+                                   @Param("level") CourseLevel level,
+                                   @Param("minPrice") BigDecimal minPrice,
+                                   @Param("maxPrice") BigDecimal maxPrice,
+                                   @Param("tutorId") Long tutorId,
+                                   @Param("minRating") Double minRating,
+                                   @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                   @Param("cursorId") Long cursorId,
+                                   Pageable pageable);
+
+    @Query(CATALOG_SELECT + CATALOG_FILTER + """
+          AND (:cursorPrice IS NULL
+               OR c.price > :cursorPrice
+               OR (c.price = :cursorPrice AND c.courseID > :cursorId))
+        ORDER BY c.price ASC, c.courseID ASC
+        """)
+    List<Course> findCatalogPriceAsc(@Param("status") CourseStatus status,
+                                     @Param("language") String language,
+                                     @Param("categoryId") Long categoryId,
+                                     @Param("level") CourseLevel level,
+                                     @Param("minPrice") BigDecimal minPrice,
+                                     @Param("maxPrice") BigDecimal maxPrice,
+                                     @Param("tutorId") Long tutorId,
+                                     @Param("minRating") Double minRating,
+                                     @Param("cursorPrice") BigDecimal cursorPrice,
+                                     @Param("cursorId") Long cursorId,
+                                     Pageable pageable);
+
+    @Query(CATALOG_SELECT + CATALOG_FILTER + """
+          AND (:cursorPrice IS NULL
+               OR c.price < :cursorPrice
+               OR (c.price = :cursorPrice AND c.courseID < :cursorId))
+        ORDER BY c.price DESC, c.courseID DESC
+        """)
+    List<Course> findCatalogPriceDesc(@Param("status") CourseStatus status,
+                                      @Param("language") String language,
+                                      @Param("categoryId") Long categoryId,
+                                      @Param("level") CourseLevel level,
+                                      @Param("minPrice") BigDecimal minPrice,
+                                      @Param("maxPrice") BigDecimal maxPrice,
+                                      @Param("tutorId") Long tutorId,
+                                      @Param("minRating") Double minRating,
+                                      @Param("cursorPrice") BigDecimal cursorPrice,
+                                      @Param("cursorId") Long cursorId,
+                                      Pageable pageable);
+
+    // [Course, avgRating] – avgRating (từ CourseStats) trả về để build cursor
+    @Query("SELECT c, cs.avgRating FROM Course c " + CATALOG_JOINS + CATALOG_FILTER + """
+          AND (:cursorScore IS NULL
+               OR cs.avgRating < :cursorScore
+               OR (cs.avgRating = :cursorScore AND cs.courseID < :cursorId))
+        ORDER BY cs.avgRating DESC, cs.courseID DESC
+        """)
+    List<Object[]> findCatalogByRating(@Param("status") CourseStatus status,
+                                       @Param("language") String language,
+                                       @Param("categoryId") Long categoryId,
+                                       @Param("level") CourseLevel level,
+                                       @Param("minPrice") BigDecimal minPrice,
+                                       @Param("maxPrice") BigDecimal maxPrice,
+                                       @Param("tutorId") Long tutorId,
+                                       @Param("minRating") Double minRating,
+                                       @Param("cursorScore") Double cursorScore,
+                                       @Param("cursorId") Long cursorId,
+                                       Pageable pageable);
+
+    // [Course, learnerCount] – learnerCount (từ CourseStats)
+    @Query("SELECT c, cs.learnerCount FROM Course c " + CATALOG_JOINS + CATALOG_FILTER + """
+          AND (:cursorScore IS NULL
+               OR cs.learnerCount < :cursorScore
+               OR (cs.learnerCount = :cursorScore AND cs.courseID < :cursorId))
+        ORDER BY cs.learnerCount DESC, cs.courseID DESC
+        """)
+    List<Object[]> findCatalogByPopularity(@Param("status") CourseStatus status,
+                                           @Param("language") String language,
+                                           @Param("categoryId") Long categoryId,
+                                           @Param("level") CourseLevel level,
+                                           @Param("minPrice") BigDecimal minPrice,
+                                           @Param("maxPrice") BigDecimal maxPrice,
+                                           @Param("tutorId") Long tutorId,
+                                           @Param("minRating") Double minRating,
+                                           @Param("cursorScore") Long cursorScore,
+                                           @Param("cursorId") Long cursorId,
+                                           Pageable pageable);
+
     List<Course> findByTutor(Tutor tutor);
     List<Course> findByTutorAndStatus(Tutor tutor, CourseStatus status);
     List<Course> findByStatus(CourseStatus status);
-}
\ No newline at end of file
+
+    @Query("SELECT c.courseID FROM Course c")
+    List<Long> findAllCourseIds();
+
+    // Course chưa có row CourseStats (tạo trước khi có read model / lỡ hook)
+    @Query("SELECT c.courseID FROM Course c WHERE NOT EXISTS (SELECT 1 FROM CourseStats cs WHERE cs.courseID = c.courseID)")
+    List<Long> findCourseIdsWithoutStats();
+
+    // createdAt NULL làm hỏng cursor NEWEST (c.createdAt < :cursor không bao giờ đúng)
+    @Modifying
+    @Query("UPDATE Course c SET c.createdAt = COALESCE(c.updatedAt, :now) WHERE c.createdAt IS NULL")
+    int backfillCreatedAt(@Param("now") LocalDateTime now);
+
+    // Catalog: load tutor + user + category cùng lúc, tránh N+1 khi map card
+    @Query("""
+        SELECT c FROM Course c
+        JOIN FETCH c.tutor t
+        JOIN FETCH t.user
+        JOIN FETCH c.category
+        WHERE c.status = :status
+        """)
+    List<Course> findCatalogByStatus(@Param("status") CourseStatus status);
+
+    @Query("""
+        SELECT c FROM Course c
+        JOIN FETCH c.tutor t
+        JOIN FETCH t.user
+        JOIN FETCH c.category
+        WHERE t.tutorID = :tutorId AND c.status = :status
+        """)
+    List<Course> findCatalogByTutorAndStatus(@Param("tutorId") Long tutorId,
+                                             @Param("status") CourseStatus status);
+
+    // ===================== Fingerprint cho ETag (HTTP conditional GET) =====================
+
+    /**
+     * Fingerprint của danh sách course theo status: course, stats, tên/avatar tutor, category.
+     * Row: [count, max course.updatedAt, max stats.updatedAt, max tutor user.updatedAt, max category.updatedAt]
+     */
+    @Query("""
+        SELECT COUNT(c), MAX(c.updatedAt),
+               (SELECT MAX(cs.updatedAt) FROM CourseStats cs),
+               (SELECT MAX(u.updatedAt) FROM Tutor t JOIN t.user u),
+               (SELECT MAX(cat.updatedAt) FROM CourseCategory cat)
+        FROM Course c
+        WHERE c.status = :status
+        """)
+    List<Object[]> fingerprintByStatus(@Param("status") CourseStatus status);
+
+    /**
+     * Fingerprint của 1 course detail.
+     * Row: [updatedAt, contentVersion, status, stats.updatedAt, tutor user.updatedAt, category.updatedAt]
+     */
+    @Query("""
+        SELECT c.updatedAt, c.contentVersion, c.status, cs.updatedAt, u.updatedAt, cat.updatedAt
+        FROM Course c
+        LEFT JOIN CourseStats cs ON cs.courseID = c.courseID
+        LEFT JOIN c.tutor t
+        LEFT JOIN t.user u
+        LEFT JOIN c.category cat
+        WHERE c.courseID = :courseId
+        """)
+    List<Object[]> fingerprintById(@Param("courseId") Long courseId);
+}
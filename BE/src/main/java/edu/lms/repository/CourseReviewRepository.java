@@ -2,6 +2,8 @@ package edu.lms.repository;
 
 import edu.lms.entity.CourseReview;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +14,35 @@ public interface CourseReviewRepository extends JpaRepository<CourseReview, Long
     List<CourseReview> findByCourse_CourseID(Long courseId);
     Optional<CourseReview> findByCourse_CourseIDAndUser_UserID(Long courseId, Long userId);
 
+    // [courseID, sum(rating), count] cho toàn bộ course (rebuild CourseStats)
+    @Query("""
+        SELECT r.course.courseID, SUM(r.rating), COUNT(r)
+        FROM CourseReview r
+        GROUP BY r.course.courseID
+        """)
+    List<Object[]> sumRatingGroupByCourse();
+
+    // [tutorID, sum(rating), count] – đối soát rating tutor trong 1 lần quét
+    @Query("""
+        SELECT r.course.tutor.tutorID, SUM(r.rating), COUNT(r)
+        FROM CourseReview r
+        GROUP BY r.course.tutor.tutorID
+        """)
+    List<Object[]> sumRatingGroupByTutor();
+
+    @Query("""
+        SELECT COALESCE(SUM(r.rating), 0), COUNT(r)
+        FROM CourseReview r
+        WHERE r.course.tutor.tutorID = :tutorId
+        """)
+    List<Object[]> sumRatingByTutor(@Param("tutorId") Long tutorId);
+
+    @Query("""
+        SELECT r.course.courseID, SUM(r.rating), COUNT(r)
+        FROM CourseReview r
+        WHERE r.course.courseID IN :courseIds
+        GROUP BY r.course.courseID
+        """)
+    List<Object[]> sumRatingByCourseIds(@Param("courseIds") List<Long> courseIds);
+
 }
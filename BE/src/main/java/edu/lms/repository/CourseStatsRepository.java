@@ -0,0 +1,57 @@
+package edu.lms.repository;
+
+import edu.lms.entity.CourseStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface CourseStatsRepository extends JpaRepository<CourseStats, Long> {
+
+    /**
+     * Cộng 1 review vào stats (atomic, không read-modify-write).
+     * avgRating được gán TRƯỚC để dùng giá trị cũ của ratingSum/reviewCount
+     * (MySQL evaluate SET từ trái sang phải).
+     * @return số row bị update (0 = chưa có stats cho course)
+     */
+    @Modifying
+    @Query("""
+        UPDATE CourseStats s
+        SET s.avgRating = (s.ratingSum + :rating) / (s.reviewCount + 1),
+            s.ratingSum = s.ratingSum + :rating,
+            s.reviewCount = s.reviewCount + 1,
+            s.updatedAt = :now
+        WHERE s.courseID = :courseId
+    """)
+    int addReview(@Param("courseId") Long courseId,
+                  @Param("rating") Double rating,
+                  @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+        UPDATE CourseStats s
+        SET s.avgRating = CASE WHEN s.reviewCount <= 1 THEN 0.0
+                               ELSE (s.ratingSum - :rating) / (s.reviewCount - 1) END,
+            s.ratingSum = CASE WHEN s.reviewCount <= 1 THEN 0.0 ELSE s.ratingSum - :rating END,
+            s.reviewCount = CASE WHEN s.reviewCount <= 1 THEN 0 ELSE s.reviewCount - 1 END,
+            s.updatedAt = :now
+        WHERE s.courseID = :courseId
+    """)
+    int removeReview(@Param("courseId") Long courseId,
+                     @Param("rating") Double rating,
+                     @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+        UPDATE CourseStats s
+        SET s.learnerCount = s.learnerCount + 1,
+            s.updatedAt = :now
+        WHERE s.courseID = :courseId
+    """)
+    int incrementLearnerCount(@Param("courseId") Long courseId,
+                              @Param("now") LocalDateTime now);
+}
@@ -5,6 +5,7 @@ import edu.lms.entity.Enrollment;
 import edu.lms.enums.EnrollmentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -24,6 +25,34 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
     List<Enrollment> findByUser_UserID(Long userId);
     Optional<Enrollment> findByUser_UserIDAndCourse_CourseID(Long userId, Long courseId);
     long countByCourse_CourseID(Long courseId);
+
+    // Đếm learner cho nhiều course trong 1 query (catalog)
+    @Query("""
+        SELECT e.course.courseID, COUNT(e)
+        FROM Enrollment e
+        WHERE e.course.courseID IN :courseIds
+        GROUP BY e.course.courseID
+        """)
+    List<Object[]> countByCourseIds(@Param("courseIds") List<Long> courseIds);
+
+    // [courseID, count] cho toàn bộ course (rebuild CourseStats)
+    @Query("""
+        SELECT e.course.courseID, COUNT(e)
+        FROM Enrollment e
+        GROUP BY e.course.courseID
+        """)
+    List<Object[]> countGroupByCourse();
+
+    // Toàn bộ course mà user đã mua (theo status)
+    @Query("""
+        SELECT e.course.courseID
+        FROM Enrollment e
+        WHERE e.user.userID = :userId
+          AND e.status IN :statuses
+        """)
+    List<Long> findCourseIdsByUserAndStatusIn(@Param("userId") Long userId,
+                                              @Param("statuses") List<EnrollmentStatus> statuses);
+
     void deleteByCourse_CourseID(Long courseId);
 
     // Lấy toàn bộ enrollment của learner vào các khóa học thuộc 1 tutor
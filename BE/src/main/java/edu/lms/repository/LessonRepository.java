@@ -1,11 +1,13 @@
 package edu.lms.repository;
 
 import edu.lms.entity.Lesson;
+import edu.lms.enums.LessonType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Collection;
@@ -15,6 +17,53 @@ public interface LessonRepository extends JpaRepository<Lesson, Long> {
     List<Lesson> findBySectionSectionID(Long sectionId);
     List<Lesson> findBySection_SectionIDIn(Collection<Long> sectionIds);
 
+    /**
+     * Outline của lesson (không có content @Lob) – dùng cho trang chi tiết course
+     */
+    interface LessonOutline {
+        Long getLessonID();
+        Long getSectionID();
+        String getTitle();
+        Short getDuration();
+        LessonType getLessonType();
+        String getVideoURL();
+        Integer getOrderIndex();
+        LocalDateTime getCreatedAt();
+    }
+
+    @Query("""
+        SELECT l.lessonID AS lessonID, l.section.sectionID AS sectionID, l.title AS title,
+               l.duration AS duration, l.lessonType AS lessonType, l.videoURL AS videoURL,
+               l.orderIndex AS orderIndex, l.createdAt AS createdAt
+        FROM Lesson l
+        WHERE l.section.sectionID IN :sectionIds
+        """)
+    List<LessonOutline> findOutlinesBySectionIds(@Param("sectionIds") Collection<Long> sectionIds);
+
+    // [contentVersion của course, status của course] – dùng làm ETag trước khi đọc content
+    @Query("""
+        SELECT c.contentVersion, c.status
+        FROM Lesson l JOIN l.section s JOIN s.course c
+        WHERE l.lessonID = :lessonId AND c.courseID = :courseId
+        """)
+    List<Object[]> findCourseVersionOfLesson(@Param("courseId") Long courseId,
+                                             @Param("lessonId") Long lessonId);
+
+    /**
+     * Đếm lesson + tổng duration theo (course, lessonType).
+     * Row: [courseID, lessonType, count, sumDuration]
+     */
+    @Query("""
+        SELECT s.course.courseID, l.lessonType, COUNT(l), COALESCE(SUM(l.duration), 0)
+        FROM Lesson l JOIN l.section s
+        WHERE s.course.courseID IN :courseIds
+        GROUP BY s.course.courseID, l.lessonType
+    """)
+    List<Object[]> summarizeByCourseIds(@Param("courseIds") Collection<Long> courseIds);
+
+    @Query("SELECT l.content FROM Lesson l WHERE l.lessonID = :lessonId")
+    Optional<String> findContentById(@Param("lessonId") Long lessonId);
+
     @Query("SELECT l FROM Lesson l WHERE l.section.sectionID = :sectionId " +
            "AND (:keyword IS NULL OR LOWER(l.title) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
            "ORDER BY " +
@@ -15,4 +15,13 @@ public interface LessonResourceRepository extends JpaRepository<LessonResource,
     @Query("SELECT lr FROM LessonResource lr WHERE lr.resourceID = :resourceId AND lr.lesson.section.course.tutor.tutorID = :tutorId")
     Optional<LessonResource> findByResourceIdAndTutorId(@Param("resourceId") Long resourceId,
             @Param("tutorId") Long tutorId);
-}
\ No newline at end of file
+
+    // Row: [courseID, số resource]
+    @Query("""
+        SELECT lr.lesson.section.course.courseID, COUNT(lr)
+        FROM LessonResource lr
+        WHERE lr.lesson.section.course.courseID IN :courseIds
+        GROUP BY lr.lesson.section.course.courseID
+    """)
+    List<Object[]> countGroupByCourseIds(@Param("courseIds") Collection<Long> courseIds);
+}
@@ -1,11 +1,16 @@
 package edu.lms.repository;
 
 import edu.lms.entity.Payment;
-import edu.lms.enums.PaymentStatus;
+import edu.lms.enums.PaymentType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,17 +18,94 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     Optional<Payment> findByOrderCode(String orderCode);
 
+    Optional<Payment> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    /**
+     * Payment course PENDING còn hạn của user (đã có link PayOS) -> dùng lại thay vì tạo link mới
+     */
+    @Query("""
+        SELECT p FROM Payment p
+        WHERE p.userId = :userId
+          AND p.targetId = :courseId
+          AND p.paymentType = edu.lms.enums.PaymentType.Course
+          AND p.status = edu.lms.enums.PaymentStatus.PENDING
+          AND p.expiresAt > :now
+          AND p.checkoutUrl IS NOT NULL
+        ORDER BY p.paymentID DESC
+    """)
+    List<Payment> findLiveCourseCheckouts(@Param("userId") Long userId,
+                                          @Param("courseId") Long courseId,
+                                          @Param("now") LocalDateTime now,
+                                          Pageable pageable);
+
     List<Payment> findAllByTutorId(Long tutorId);
 
     List<Payment> findAllByUserId(Long userId);
 
-    List<Payment> findAllByStatusAndExpiresAtBefore(PaymentStatus status, LocalDateTime now);
+    /**
+     * Id payment PENDING đã quá expiresAt, keyset theo paymentID (sweep theo chunk)
+     */
+    @Query("""
+        SELECT p.paymentID FROM Payment p
+        WHERE p.status = edu.lms.enums.PaymentStatus.PENDING
+          AND p.expiresAt < :now
+          AND p.paymentID > :afterId
+        ORDER BY p.paymentID
+    """)
+    List<Long> findExpiredPendingIds(@Param("now") LocalDateTime now,
+                                     @Param("afterId") Long afterId,
+                                     Pageable pageable);
 
+    /**
+     * Deadline của payment PENDING: [paymentID, expiresAt] (nạp timing wheel lúc startup)
+     */
+    @Query("""
+        SELECT p.paymentID, p.expiresAt FROM Payment p
+        WHERE p.status = edu.lms.enums.PaymentStatus.PENDING
+          AND p.expiresAt IS NOT NULL
+    """)
+    List<Object[]> findPendingDeadlines();
 
+    /**
+     * Hết hạn payment PENDING theo id (chỉ những payment vẫn còn PENDING và đã quá expiresAt)
+     */
+    @Modifying
     @Query("""
-        SELECT p FROM Payment p
+        UPDATE Payment p
+        SET p.status = edu.lms.enums.PaymentStatus.EXPIRED,
+            p.isPaid = false
+        WHERE p.paymentID IN :paymentIds
+          AND p.status = edu.lms.enums.PaymentStatus.PENDING
+          AND p.expiresAt < :now
+    """)
+    int expirePending(@Param("paymentIds") Collection<Long> paymentIds, @Param("now") LocalDateTime now);
+
+    /**
+     * Huỷ payment PENDING theo id (slot của payment bị xoá khi teardown booking plan)
+     */
+    @Modifying
+    @Query("""
+        UPDATE Payment p
+        SET p.status = edu.lms.enums.PaymentStatus.CANCELLED,
+            p.isPaid = false,
+            p.paidAt = NULL,
+            p.expiresAt = :now
+        WHERE p.paymentID IN :paymentIds
+          AND p.status = edu.lms.enums.PaymentStatus.PENDING
+    """)
+    int cancelPending(@Param("paymentIds") Collection<Long> paymentIds, @Param("now") LocalDateTime now);
+
+
+    // Chỉ dùng khi tính số dư đầu kỳ cho wallet ledger (WalletLedgerService.openLedgerIfAbsent);
+    // excludedPaymentId = payment đang được ghi sổ (đã PAID trong transaction hiện tại), null = không loại trừ
+    @Query("""
+        SELECT COALESCE(SUM(p.amount), 0) FROM Payment p
         WHERE p.tutorId = :tutorId
           AND p.status = edu.lms.enums.PaymentStatus.PAID
+          AND p.paymentType = :paymentType
+          AND (:excludedPaymentId IS NULL OR p.paymentID <> :excludedPaymentId)
     """)
-    List<Payment> findSuccessPaymentsByTutor(Long tutorId);
+    BigDecimal sumPaidAmountByTutorAndType(@Param("tutorId") Long tutorId,
+                                           @Param("paymentType") PaymentType paymentType,
+                                           @Param("excludedPaymentId") Long excludedPaymentId);
 }
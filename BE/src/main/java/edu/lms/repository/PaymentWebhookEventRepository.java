@@ -0,0 +1,86 @@
+package edu.lms.repository;
+
+import edu.lms.entity.PaymentWebhookEvent;
+import edu.lms.enums.WebhookEventStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PaymentWebhookEventRepository extends JpaRepository<PaymentWebhookEvent, Long> {
+
+    // Event chưa xong của 1 order, theo thứ tự nhận
+    @Query("""
+        SELECT e FROM PaymentWebhookEvent e
+        WHERE e.orderCode = :orderCode
+          AND e.status IN ('PENDING', 'PROCESSING')
+        ORDER BY e.eventId
+        """)
+    List<PaymentWebhookEvent> findOpenByOrderCode(@Param("orderCode") String orderCode);
+
+    // Order có event tới hạn (poller), order nhận sớm nhất trước
+    @Query("""
+        SELECT e.orderCode FROM PaymentWebhookEvent e
+        WHERE e.status = 'PENDING'
+          AND e.nextAttemptAt <= :now
+        GROUP BY e.orderCode
+        ORDER BY MIN(e.eventId)
+        """)
+    List<String> findDueOrderCodes(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Claim event cho 1 worker; 0 = đã bị worker / instance khác lấy
+     */
+    @Modifying
+    @Query("""
+        UPDATE PaymentWebhookEvent e
+        SET e.status = 'PROCESSING', e.leaseUntil = :leaseUntil
+        WHERE e.eventId = :eventId
+          AND e.status = 'PENDING'
+        """)
+    int claim(@Param("eventId") Long eventId, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Chỉ worker còn giữ lease mới đánh dấu DONE được (0 -> rollback hiệu ứng của lần xử lý này)
+     */
+    @Modifying
+    @Query("""
+        UPDATE PaymentWebhookEvent e
+        SET e.status = 'DONE', e.processedAt = :now, e.leaseUntil = NULL, e.lastError = NULL
+        WHERE e.eventId = :eventId
+          AND e.status = 'PROCESSING'
+          AND e.leaseUntil = :leaseUntil
+        """)
+    int markDone(@Param("eventId") Long eventId,
+                 @Param("leaseUntil") LocalDateTime leaseUntil,
+                 @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+        UPDATE PaymentWebhookEvent e
+        SET e.status = :status, e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt,
+            e.lastError = :lastError, e.leaseUntil = NULL
+        WHERE e.eventId = :eventId
+          AND e.status = 'PROCESSING'
+          AND e.leaseUntil = :leaseUntil
+        """)
+    int markFailedAttempt(@Param("eventId") Long eventId,
+                          @Param("leaseUntil") LocalDateTime leaseUntil,
+                          @Param("status") WebhookEventStatus status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                          @Param("lastError") String lastError);
+
+    // Worker chết / restart giữa chừng -> trả event về PENDING khi hết lease
+    @Modifying
+    @Query("""
+        UPDATE PaymentWebhookEvent e
+        SET e.status = 'PENDING', e.leaseUntil = NULL
+        WHERE e.status = 'PROCESSING'
+          AND e.leaseUntil < :now
+        """)
+    int releaseExpiredLeases(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,31 @@
+package edu.lms.repository;
+
+import edu.lms.entity.TutorRatingStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface TutorRatingStatsRepository extends JpaRepository<TutorRatingStats, Long> {
+
+    /**
+     * Cộng / trừ 1 review (delta = +1 hoặc -1) – atomic, không read-modify-write.
+     * @return số row bị update (0 = tutor chưa có stats)
+     */
+    @Modifying
+    @Query("""
+        UPDATE TutorRatingStats s
+        SET s.ratingSum = CASE WHEN s.reviewCount + :delta <= 0 THEN 0.0 ELSE s.ratingSum + :ratingDelta END,
+            s.reviewCount = CASE WHEN s.reviewCount + :delta <= 0 THEN 0 ELSE s.reviewCount + :delta END,
+            s.updatedAt = :now
+        WHERE s.tutorID = :tutorId
+    """)
+    int applyReview(@Param("tutorId") Long tutorId,
+                    @Param("ratingDelta") Double ratingDelta,
+                    @Param("delta") Long delta,
+                    @Param("now") LocalDateTime now);
+}
@@ -3,8 +3,14 @@ package edu.lms.repository;
 import edu.lms.entity.Tutor;
 import edu.lms.entity.User;
 import edu.lms.enums.TutorStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,4 +32,142 @@ public interface TutorRepository extends JpaRepository<Tutor, Long> {
 
     Optional<Tutor> findByUser_Email(String email);
 
+    /**
+     * 1 dòng trong danh sách tutor (directory): tutor + user + verification mới nhất + giá min.
+     */
+    interface TutorDirectoryRow {
+        Long getTutorId();
+        Long getUserId();
+        String getUserEmail();
+        String getUserName();
+        String getAvatarURL();
+        String getCountry();
+        String getSpecialization();
+        String getTeachingLanguage();
+        TutorStatus getStatus();
+        BigDecimal getRating();
+        Short getExperience();
+        Long getVerificationId();
+        LocalDateTime getSubmittedAt();
+        LocalDateTime getReviewedAt();
+        Double getPricePerHour();
+    }
+
+    String DIRECTORY_SELECT = """
+        SELECT t.tutorID AS tutorId,
+               u.userID AS userId,
+               u.email AS userEmail,
+               u.fullName AS userName,
+               u.avatarURL AS avatarURL,
+               u.country AS country,
+               COALESCE(v.specialization, t.specialization) AS specialization,
+               COALESCE(v.teachingLanguage, t.teachingLanguage) AS teachingLanguage,
+               t.status AS status,
+               t.rating AS rating,
+               t.experience AS experience,
+               v.tutorVerificationID AS verificationId,
+               v.submittedAt AS submittedAt,
+               v.reviewedAt AS reviewedAt,
+               (SELECT MIN(bp.pricePerHours) FROM BookingPlan bp
+                 WHERE bp.tutorID = t.tutorID
+                   AND bp.isActive = true AND bp.isOpen = true
+                   AND bp.pricePerHours > 0) AS pricePerHour
+        FROM Tutor t
+        JOIN t.user u
+        LEFT JOIN TutorVerification v
+               ON v.tutor = t
+              AND v.tutorVerificationID = (SELECT MAX(v2.tutorVerificationID)
+                                           FROM TutorVerification v2 WHERE v2.tutor = t)
+        """;
+
+    /**
+     * Directory tutor trong 1 query, keyset theo tutorID.
+     * - verification mới nhất = verification có ID lớn nhất của tutor (ID tăng theo thời điểm submit)
+     * - pricePerHour = giá > 0 nhỏ nhất trong các booking plan active + open
+     */
+    @Query(DIRECTORY_SELECT + """
+        WHERE (:status IS NULL OR t.status = :status)
+          AND (:afterId IS NULL OR t.tutorID > :afterId)
+        ORDER BY t.tutorID
+        """)
+    List<TutorDirectoryRow> findDirectory(@Param("status") TutorStatus status,
+                                          @Param("afterId") Long afterId,
+                                          Pageable pageable);
+
+    @Query(DIRECTORY_SELECT + " WHERE t.tutorID = :tutorId")
+    Optional<TutorDirectoryRow> findDirectoryRow(@Param("tutorId") Long tutorId);
+
+    // ================= Wallet (chỉ WalletLedgerService ghi) =================
+
+    /**
+     * Cộng delta vào ví 1 cách nguyên tử (giữ row lock tới hết transaction -> ghi sổ tuần tự theo tutor).
+     * requireFunds = true: không cho số dư âm, trả về 0 nếu không đủ tiền.
+     */
+    @Modifying
+    @Query("""
+        UPDATE Tutor t SET t.walletBalance = t.walletBalance + :delta
+        WHERE t.tutorID = :tutorId
+          AND (:requireFunds = false OR t.walletBalance + :delta >= 0)
+        """)
+    int addToWalletBalance(@Param("tutorId") Long tutorId,
+                           @Param("delta") BigDecimal delta,
+                           @Param("requireFunds") boolean requireFunds);
+
+    @Modifying
+    @Query("UPDATE Tutor t SET t.walletBalance = :balance WHERE t.tutorID = :tutorId")
+    int setWalletBalance(@Param("tutorId") Long tutorId, @Param("balance") BigDecimal balance);
+
+    // Đọc thẳng DB (không qua entity đang managed có thể đã cũ)
+    @Query("SELECT t.walletBalance FROM Tutor t WHERE t.tutorID = :tutorId")
+    Optional<BigDecimal> findWalletBalance(@Param("tutorId") Long tutorId);
+
+    // Row: [tutorID, walletBalance]
+    @Query("SELECT t.tutorID, t.walletBalance FROM Tutor t")
+    List<Object[]> findAllWalletBalances();
+
+    @Query("""
+        SELECT t.tutorID FROM Tutor t
+        WHERE NOT EXISTS (SELECT 1 FROM WalletLedgerEntry l WHERE l.tutorId = t.tutorID)
+        """)
+    List<Long> findTutorIdsWithoutLedger();
+
+    // Chỉ update cột rating, tránh ghi đè các cột khác (walletBalance...) bằng entity cũ
+    @Modifying
+    @Query("UPDATE Tutor t SET t.rating = :rating, t.updatedAt = :now WHERE t.tutorID = :tutorId")
+    int updateRating(@Param("tutorId") Long tutorId,
+                     @Param("rating") BigDecimal rating,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * Fingerprint cho ETag của danh sách tutor theo status.
+     * Row: [count, max tutor.updatedAt, max user.updatedAt, số booking plan, max plan.updatedAt,
+     *       số verification, max submittedAt, max reviewedAt]
+     */
+    @Query("""
+        SELECT COUNT(t), MAX(t.updatedAt), MAX(u.updatedAt),
+               (SELECT COUNT(bp) FROM BookingPlan bp),
+               (SELECT MAX(bp2.updatedAt) FROM BookingPlan bp2),
+               (SELECT COUNT(v) FROM TutorVerification v),
+               (SELECT MAX(v2.submittedAt) FROM TutorVerification v2),
+               (SELECT MAX(v3.reviewedAt) FROM TutorVerification v3)
+        FROM Tutor t JOIN t.user u
+        WHERE t.status = :status
+        """)
+    List<Object[]> fingerprintByStatus(@Param("status") TutorStatus status);
+
+    /**
+     * Fingerprint cho ETag của tutor detail (tutor, user, course, booking plan của tutor).
+     */
+    @Query("""
+        SELECT t.updatedAt, u.updatedAt, t.status,
+               (SELECT COUNT(c) FROM Course c WHERE c.tutor = t),
+               (SELECT MAX(c2.updatedAt) FROM Course c2 WHERE c2.tutor = t),
+               (SELECT COUNT(bp) FROM BookingPlan bp WHERE bp.tutorID = t.tutorID),
+               (SELECT MAX(bp2.updatedAt) FROM BookingPlan bp2 WHERE bp2.tutorID = t.tutorID),
+               (SELECT MAX(cat.updatedAt) FROM CourseCategory cat)
+        FROM Tutor t JOIN t.user u
+        WHERE t.tutorID = :tutorId
+        """)
+    List<Object[]> fingerprintById(@Param("tutorId") Long tutorId);
+
 }
@@ -6,11 +6,13 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface UserLessonRepository extends JpaRepository<UserLesson, Long> {
     Optional<UserLesson> findByUser_UserIDAndLesson_LessonID(Long userId, Long lessonId);
+    List<UserLesson> findByUser_UserIDAndLesson_LessonIDIn(Long userId, Collection<Long> lessonIds);
     void deleteByLesson_LessonIDIn(List<Long> lessonIds);
     @Query("""
         SELECT MAX(ul.completedAt)
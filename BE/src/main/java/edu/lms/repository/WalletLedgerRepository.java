@@ -0,0 +1,41 @@
+package edu.lms.repository;
+
+import edu.lms.entity.WalletLedgerEntry;
+import edu.lms.enums.WalletEntryType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface WalletLedgerRepository extends JpaRepository<WalletLedgerEntry, Long> {
+
+    boolean existsByEntryTypeAndSourceId(WalletEntryType entryType, Long sourceId);
+
+    boolean existsByTutorId(Long tutorId);
+
+    boolean existsByTutorIdAndEntryType(Long tutorId, WalletEntryType entryType);
+
+    // Lịch sử ví của tutor, mới nhất trước
+    List<WalletLedgerEntry> findByTutorIdOrderByLedgerIdDesc(Long tutorId, Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(l.amount), 0) FROM WalletLedgerEntry l WHERE l.tutorId = :tutorId")
+    BigDecimal sumAmountByTutorId(@Param("tutorId") Long tutorId);
+
+    /**
+     * Row: [tutorId, SUM(amount)] cho mọi tutor có ledger (verifier)
+     */
+    @Query("SELECT l.tutorId, SUM(l.amount) FROM WalletLedgerEntry l GROUP BY l.tutorId")
+    List<Object[]> sumAmountGroupByTutor();
+
+    /**
+     * Row: [tutorId, balanceAfter] của dòng mới nhất mỗi tutor (verifier)
+     */
+    @Query("""
+        SELECT l.tutorId, l.balanceAfter FROM WalletLedgerEntry l
+        WHERE l.ledgerId IN (SELECT MAX(l2.ledgerId) FROM WalletLedgerEntry l2 GROUP BY l2.tutorId)
+        """)
+    List<Object[]> findLatestBalances();
+}
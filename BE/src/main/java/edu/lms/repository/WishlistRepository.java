@@ -4,6 +4,8 @@ import edu.lms.entity.Course;
 import edu.lms.entity.User;
 import edu.lms.entity.Wishlist;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,4 +15,18 @@ public interface WishlistRepository extends JpaRepository<Wishlist, Long> {
     Optional<Wishlist> findByUserAndCourse(User user, Course course);
     void deleteByUserAndCourse(User user, Course course);
     boolean existsByUserAndCourse(User user, Course course);
+
+    @Query("SELECT w.course.courseID FROM Wishlist w WHERE w.user.userID = :userId")
+    List<Long> findCourseIdsByUser(@Param("userId") Long userId);
+
+    // Wishlist của user kèm course/category/tutor (tránh lazy load từng item)
+    @Query("""
+        SELECT w FROM Wishlist w
+        JOIN FETCH w.course c
+        LEFT JOIN FETCH c.category
+        LEFT JOIN FETCH c.tutor t
+        LEFT JOIN FETCH t.user
+        WHERE w.user.userID = :userId
+        """)
+    List<Wishlist> findWithCourseByUserId(@Param("userId") Long userId);
 }
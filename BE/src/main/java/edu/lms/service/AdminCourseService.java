@@ -8,6 +8,7 @@ import edu.lms.enums.CourseStatus;
 import edu.lms.exception.AppException;
 import edu.lms.exception.ErrorCode;
 import edu.lms.repository.*;
+import edu.lms.service.CurriculumLoader.Curriculum;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.stereotype.Service;
@@ -35,6 +36,10 @@ public class AdminCourseService {
     UserCourseSectionRepository userCourseSectionRepository;
     EnrollmentRepository enrollmentRepository;
     EmailService emailService;
+    CourseDetailCache courseDetailCache;
+    CourseContentSummaryService courseContentSummaryService;
+    CourseStatsService courseStatsService;
+    CurriculumLoader curriculumLoader;
 
     // ====================== MAPPER CHO COURSE LIVE ======================
 
@@ -110,7 +115,8 @@ public class AdminCourseService {
     }
 
     // LIVE: Lesson
-    private LessonResponse toLessonResponse(Lesson l) {
+    private LessonResponse toLessonResponse(Lesson l,
+                                            Curriculum<CourseSection, Lesson, LessonResource> curriculum) {
         return LessonResponse.builder()
                 .lessonID(l.getLessonID())
                 .title(l.getTitle())
@@ -121,8 +127,7 @@ public class AdminCourseService {
                 .orderIndex(l.getOrderIndex())
                 .createdAt(l.getCreatedAt())
                 .resources(
-                        l.getResources() == null ? List.of()
-                                : l.getResources().stream()
+                        curriculum.resourcesOf(l.getLessonID()).stream()
                                 .map(this::toLessonResourceResponse)
                                 .toList()
                 )
@@ -130,7 +135,8 @@ public class AdminCourseService {
     }
 
     // DRAFT: LessonDraft
-    private LessonResponse toLessonResponse(LessonDraft l) {
+    private LessonResponse toLessonResponse(LessonDraft l,
+                                            Curriculum<CourseSectionDraft, LessonDraft, LessonResourceDraft> curriculum) {
         return LessonResponse.builder()
                 .lessonID(l.getLessonDraftID()) // id draft
                 .title(l.getTitle())
@@ -141,55 +147,42 @@ public class AdminCourseService {
                 .orderIndex(l.getOrderIndex())
                 .createdAt(null)
                 .resources(
-                        l.getResources() == null ? List.of()
-                                : l.getResources().stream()
+                        curriculum.resourcesOf(l.getLessonDraftID()).stream()
                                 .map(this::toLessonResourceResponse)
                                 .toList()
                 )
                 .build();
     }
 
-    // LIVE: Section
-    private CourseSectionResponse toCourseSectionResponse(CourseSection s) {
+    // LIVE: Section (lesson đã sort theo orderIndex trong CurriculumLoader)
+    private CourseSectionResponse toCourseSectionResponse(CourseSection s, Long courseID,
+                                                          Curriculum<CourseSection, Lesson, LessonResource> curriculum) {
         return CourseSectionResponse.builder()
                 .sectionID(s.getSectionID())
-                .courseID(s.getCourse().getCourseID())
+                .courseID(courseID)
                 .title(s.getTitle())
                 .description(s.getDescription())
                 .orderIndex(s.getOrderIndex())
                 .lessons(
-                        s.getLessons() == null ? List.of()
-                                : s.getLessons().stream()
-                                .sorted(
-                                        Comparator.comparing(
-                                                Lesson::getOrderIndex,
-                                                Comparator.nullsLast(Integer::compareTo)
-                                        )
-                                )
-                                .map(this::toLessonResponse)
+                        curriculum.lessonsOf(s.getSectionID()).stream()
+                                .map(l -> toLessonResponse(l, curriculum))
                                 .toList()
                 )
                 .build();
     }
 
     // DRAFT: SectionDraft
-    private CourseSectionResponse toCourseSectionResponse(CourseSectionDraft s) {
+    private CourseSectionResponse toCourseSectionResponse(CourseSectionDraft s, Long courseID,
+                                                          Curriculum<CourseSectionDraft, LessonDraft, LessonResourceDraft> curriculum) {
         return CourseSectionResponse.builder()
                 .sectionID(s.getSectionDraftID()) // id draft
-                .courseID(s.getDraft().getCourse().getCourseID())
+                .courseID(courseID)
                 .title(s.getTitle())
                 .description(s.getDescription())
                 .orderIndex(s.getOrderIndex())
                 .lessons(
-                        s.getLessons() == null ? List.of()
-                                : s.getLessons().stream()
-                                .sorted(
-                                        Comparator.comparing(
-                                                LessonDraft::getOrderIndex,
-                                                Comparator.nullsLast(Integer::compareTo)
-                                        )
-                                )
-                                .map(this::toLessonResponse)
+                        curriculum.lessonsOf(s.getSectionDraftID()).stream()
+                                .map(l -> toLessonResponse(l, curriculum))
                                 .toList()
                 )
                 .build();
@@ -198,6 +191,7 @@ public class AdminCourseService {
     // ====================== DETAIL MAPPER LIVE & DRAFT ======================
 
     private AdminCourseDetailResponse toAdminDetail(Course c) {
+        var curriculum = curriculumLoader.loadCourse(c.getCourseID());
         return AdminCourseDetailResponse.builder()
                 .id(c.getCourseID())
                 .courseID(c.getCourseID())
@@ -219,13 +213,8 @@ public class AdminCourseService {
                 .updatedAt(c.getUpdatedAt())
                 .adminReviewNote(c.getAdminReviewNote())
                 .sections(
-                        c.getSections() == null ? List.of()
-                                : c.getSections().stream()
-                                .sorted(Comparator.comparing(
-                                        CourseSection::getOrderIndex,
-                                        Comparator.nullsLast(Integer::compareTo)
-                                ))
-                                .map(this::toCourseSectionResponse)
+                        curriculum.sections().stream()
+                                .map(s -> toCourseSectionResponse(s, c.getCourseID(), curriculum))
                                 .toList()
                 )
                 .objectives(
@@ -242,9 +231,11 @@ public class AdminCourseService {
     }
 
     private AdminCourseDetailResponse toAdminDetail(CourseDraft d) {
+        var curriculum = curriculumLoader.loadDraft(d.getDraftID());
+        Long courseID = d.getCourse().getCourseID();
         return AdminCourseDetailResponse.builder()
                 .id(d.getDraftID())
-                .courseID(d.getCourse().getCourseID())
+                .courseID(courseID)
                 .draft(true)
                 .title(d.getTitle())
                 .shortDescription(d.getShortDescription())
@@ -263,13 +254,8 @@ public class AdminCourseService {
                 .updatedAt(d.getUpdatedAt())
                 .adminReviewNote(d.getAdminReviewNote())
                 .sections(
-                        d.getSections() == null ? List.of()
-                                : d.getSections().stream()
-                                .sorted(Comparator.comparing(
-                                        CourseSectionDraft::getOrderIndex,
-                                        Comparator.nullsLast(Integer::compareTo)
-                                ))
-                                .map(this::toCourseSectionResponse)
+                        curriculum.sections().stream()
+                                .map(s -> toCourseSectionResponse(s, courseID, curriculum))
                                 .toList()
                 )
                 .objectives(
@@ -363,8 +349,12 @@ public class AdminCourseService {
         course.setStatus(CourseStatus.Approved);
         course.setAdminReviewNote(note);
         course.setUpdatedAt(LocalDateTime.now());
+        course.bumpContentVersion();
 
         courseRepository.save(course);
+        courseStatsService.ensureStats(courseID);
+        courseDetailCache.evict(courseID);
+        courseContentSummaryService.refresh(course);
 
         // 👇 gửi email cho tutor
         notifyTutorCourseApproved(course, note);
@@ -384,8 +374,10 @@ public class AdminCourseService {
         course.setStatus(CourseStatus.Rejected);
         course.setAdminReviewNote(note);
         course.setUpdatedAt(LocalDateTime.now());
+        course.bumpContentVersion();
 
         courseRepository.save(course);
+        courseDetailCache.evict(courseID);
 
         // 👇 gửi email cho tutor
         notifyTutorCourseRejected(course, note);
@@ -425,8 +417,10 @@ public class AdminCourseService {
         course.setCategory(draft.getCategory());
         course.setTutor(draft.getTutor());
         course.setUpdatedAt(LocalDateTime.now());
+        course.bumpContentVersion();
 
         courseRepository.save(course);
+        courseDetailCache.evict(course.getCourseID());
 
         //  3. Sync curriculum (Section / Lesson / Resource)
         syncCurriculumFromDraft(course, draft);
@@ -434,6 +428,9 @@ public class AdminCourseService {
         //  4. Sync objectives
         syncObjectivesFromDraft(course, draft);
 
+        //  4b. Tính lại content summary từ curriculum mới
+        courseContentSummaryService.refresh(course);
+
         //  5. Xóa progress của các lesson bị ảnh hưởng
         if (!lessonIdsNeedReset.isEmpty()) {
             userLessonRepository.deleteByLesson_LessonIDIn(lessonIdsNeedReset);
@@ -1,17 +1,16 @@
 package edu.lms.service;
 
 import edu.lms.dto.response.WithdrawResponse;
-import edu.lms.entity.Tutor;
 import edu.lms.entity.WithdrawMoney;
 import edu.lms.enums.WithdrawStatus;
 import edu.lms.exception.AppException;
 import edu.lms.exception.ErrorCode;
-import edu.lms.repository.TutorRepository;
 import edu.lms.repository.WithdrawRepository;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -21,7 +20,7 @@ import java.util.List;
 public class AdminWithdrawService {
 
     WithdrawRepository withdrawRepository;
-    TutorRepository tutorRepository;
+    WalletLedgerService walletLedgerService;
 
     private WithdrawResponse toResponse(WithdrawMoney w) {
         return WithdrawResponse.builder()
@@ -37,6 +36,7 @@ public class AdminWithdrawService {
                 .build();
     }
 
+    @Transactional
     public WithdrawResponse approve(Long id) {
 
         WithdrawMoney withdraw = withdrawRepository.findById(id)
@@ -46,20 +46,11 @@ public class AdminWithdrawService {
             throw new AppException(ErrorCode.INVALID_STATUS);
         }
 
-        Tutor tutor = withdraw.getTutor();
-
-        // kiểm tra số dư ví
-        if (tutor.getWalletBalance().compareTo(withdraw.getWithdrawAmount()) < 0) {
-            throw new AppException(ErrorCode.INVALID_AMOUNT);
-        }
-
-        tutor.setWalletBalance(
-                tutor.getWalletBalance().subtract(withdraw.getWithdrawAmount())
-        );
+        // trừ ví tutor (ghi sổ ledger); không đủ số dư -> INVALID_AMOUNT
+        walletLedgerService.debitWithdraw(withdraw);
 
         withdraw.setStatus(WithdrawStatus.APPROVED);
 
-        tutorRepository.save(tutor);
         withdrawRepository.save(withdraw);
 
         return toResponse(withdraw);
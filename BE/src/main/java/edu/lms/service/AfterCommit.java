@@ -0,0 +1,59 @@
+package edu.lms.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Chạy action sau khi transaction hiện tại commit (không có transaction thì chạy ngay).
+ * Dùng cho cache / index in-memory: tránh giữ thay đổi của transaction bị rollback.
+ */
+public final class AfterCommit {
+
+    // Resource key cho tập key đã đăng ký trong transaction hiện tại (runOnce)
+    private static final Object KEYS_RESOURCE = new Object();
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Như run, nhưng mỗi key chỉ đăng ký 1 lần trong 1 transaction
+     * (vd: nhiều slot của cùng 1 tutor đổi trong 1 transaction -> refresh tutor 1 lần).
+     */
+    @SuppressWarnings("unchecked")
+    public static void runOnce(Object key, Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        Set<Object> keys = (Set<Object>) TransactionSynchronizationManager.getResource(KEYS_RESOURCE);
+        if (keys == null) {
+            keys = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(KEYS_RESOURCE, keys);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(KEYS_RESOURCE);
+                }
+            });
+        }
+        if (keys.add(key)) {
+            run(action);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package edu.lms.service;
 
 import edu.lms.dto.response.BookingPlanSlotResponse;
+import edu.lms.dto.response.CursorPageResponse;
 import edu.lms.entity.BookingPlan;
 import edu.lms.entity.BookingPlanSlot;
 import edu.lms.entity.Tutor;
@@ -11,8 +12,12 @@ import edu.lms.repository.BookingPlanRepository;
 import edu.lms.repository.BookingPlanSlotRepository;
 import edu.lms.repository.TutorRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -21,61 +26,107 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class BookingPlanSlotService {
 
+    static final int MAX_PAGE_SIZE = 100;
+
     private final BookingPlanSlotRepository bookingPlanSlotRepository;
     private final BookingPlanRepository bookingPlanRepository;
     private final TutorRepository tutorRepository;
 
-    public List<BookingPlanSlotResponse> getSlotsForUser(Long userId) {
-        List<BookingPlanSlot> slots = bookingPlanSlotRepository.findByUserID(userId);
-        
-        // Nếu không có slot, trả về empty list
-        if (slots.isEmpty()) {
-            return List.of();
+    /**
+     * Slot của learner bắt đầu trong [from, to) (null = không giới hạn), sort theo startTime
+     */
+    public List<BookingPlanSlotResponse> getSlotsForUser(Long userId, LocalDateTime from, LocalDateTime to) {
+        validateRange(from, to);
+        List<BookingPlanSlot> slots = bookingPlanSlotRepository.findUserSlots(
+                userId, from, to, null, null, Pageable.unpaged());
+        return toSlotResponses(slots);
+    }
+
+    public List<BookingPlanSlotResponse> getSlotsForTutor(Long userId, LocalDateTime from, LocalDateTime to) {
+        validateRange(from, to);
+        List<BookingPlanSlot> slots = bookingPlanSlotRepository.findTutorSlots(
+                getTutorId(userId), from, to, null, null, Pageable.unpaged());
+        return toSlotResponses(slots);
+    }
+
+    /**
+     * Như getSlotsForUser nhưng phân trang keyset (cursor = nextCursor của trang trước)
+     */
+    public CursorPageResponse<BookingPlanSlotResponse> getSlotPageForUser(
+            Long userId, LocalDateTime from, LocalDateTime to, String cursor, int size) {
+        validateRange(from, to);
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        SlotCursor after = decodeCursor(cursor);
+
+        // Lấy dư 1 phần tử để biết còn trang sau hay không
+        List<BookingPlanSlot> rows = bookingPlanSlotRepository.findUserSlots(
+                userId, from, to, after.startTime(), after.slotId(), PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize);
+    }
+
+    public CursorPageResponse<BookingPlanSlotResponse> getSlotPageForTutor(
+            Long userId, LocalDateTime from, LocalDateTime to, String cursor, int size) {
+        validateRange(from, to);
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        SlotCursor after = decodeCursor(cursor);
+
+        List<BookingPlanSlot> rows = bookingPlanSlotRepository.findTutorSlots(
+                getTutorId(userId), from, to, after.startTime(), after.slotId(), PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize);
+    }
+
+    // Cursor = (startTime, slotID) của slot cuối trang trước
+    private record SlotCursor(LocalDateTime startTime, Long slotId) {}
+
+    private SlotCursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new SlotCursor(null, null);
+        }
+        String[] parts = KeysetCursor.decode(cursor, 2);
+        try {
+            return new SlotCursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    private CursorPageResponse<BookingPlanSlotResponse> toPage(List<BookingPlanSlot> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<BookingPlanSlot> page = hasMore ? rows.subList(0, pageSize) : rows;
+        BookingPlanSlot last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return CursorPageResponse.<BookingPlanSlotResponse>builder()
+                .items(toSlotResponses(page))
+                .nextCursor(hasMore ? KeysetCursor.encode(last.getStartTime(), last.getSlotID()) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new AppException(ErrorCode.INVALID_DATE_RANGE);
         }
-        
-        // Lấy tất cả booking plan IDs để query meetingUrl
-        List<Long> bookingPlanIds = slots.stream()
-                .map(BookingPlanSlot::getBookingPlanID)
-                .filter(id -> id != null)
-                .distinct()
-                .collect(Collectors.toList());
-        
-        // Lấy meetingUrl từ các booking plans (chỉ query nếu có IDs)
-        Map<Long, String> meetingUrlMap = bookingPlanIds.isEmpty() 
-                ? Map.of()
-                : bookingPlanRepository.findAllById(bookingPlanIds)
-                        .stream()
-                        .filter(plan -> plan != null && plan.getBookingPlanID() != null)
-                        .collect(Collectors.toMap(
-                                BookingPlan::getBookingPlanID,
-                                plan -> plan.getMeetingUrl() != null ? plan.getMeetingUrl() : "",
-                                (existing, replacement) -> existing
-                        ));
-        
-        // Convert to DTO, chỉ trả về meetingUrl khi status = Paid
-        return slots.stream()
-                .map(slot -> toSlotResponse(slot, meetingUrlMap))
-                .collect(Collectors.toList());
     }
 
-    public List<BookingPlanSlotResponse> getSlotsForTutor(Long userId) {
+    private Long getTutorId(Long userId) {
         Tutor tutor = tutorRepository.findByUser_UserID(userId)
                 .orElseThrow(() -> new AppException(ErrorCode.TUTOR_NOT_FOUND));
+        return tutor.getTutorID();
+    }
 
-        List<BookingPlanSlot> slots = bookingPlanSlotRepository.findByTutorID(tutor.getTutorID());
-        
+    private List<BookingPlanSlotResponse> toSlotResponses(List<BookingPlanSlot> slots) {
         // Nếu không có slot, trả về empty list
         if (slots.isEmpty()) {
             return List.of();
         }
-        
+
         // Lấy tất cả booking plan IDs để query meetingUrl
         List<Long> bookingPlanIds = slots.stream()
                 .map(BookingPlanSlot::getBookingPlanID)
                 .filter(id -> id != null)
                 .distinct()
                 .collect(Collectors.toList());
-        
+
         // Lấy meetingUrl từ các booking plans (chỉ query nếu có IDs)
         Map<Long, String> meetingUrlMap = bookingPlanIds.isEmpty()
                 ? Map.of()
@@ -87,13 +138,13 @@ public class BookingPlanSlotService {
                                 plan -> plan.getMeetingUrl() != null ? plan.getMeetingUrl() : "",
                                 (existing, replacement) -> existing
                         ));
-        
+
         // Convert to DTO, chỉ trả về meetingUrl khi status = Paid
         return slots.stream()
                 .map(slot -> toSlotResponse(slot, meetingUrlMap))
                 .collect(Collectors.toList());
     }
-    
+
     private BookingPlanSlotResponse toSlotResponse(BookingPlanSlot slot, Map<Long, String> meetingUrlMap) {
         // Chỉ trả về meetingUrl khi slot đã thanh toán (status = Paid)
         String meetingUrl = null;
@@ -104,7 +155,7 @@ public class BookingPlanSlotService {
                 meetingUrl = null;
             }
         }
-        
+
         return BookingPlanSlotResponse.builder()
                 .slotID(slot.getSlotID())
                 .bookingPlanID(slot.getBookingPlanID())
@@ -0,0 +1,242 @@
+package edu.lms.service;
+
+import edu.lms.entity.BookingPlan;
+import edu.lms.entity.BookingPlanSlot;
+import edu.lms.entity.Notification;
+import edu.lms.entity.Payment;
+import edu.lms.enums.NotificationType;
+import edu.lms.enums.PaymentStatus;
+import edu.lms.enums.RefundStatus;
+import edu.lms.enums.SlotStatus;
+import edu.lms.repository.BookingPlanRepository;
+import edu.lms.repository.BookingPlanSlotRepository;
+import edu.lms.repository.PaymentRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Xoá booking plan theo lô (tutor xoá plan / tutor bị suspend).
+ * Mỗi plan chỉ tốn vài câu lệnh, không phụ thuộc số slot:
+ *  1 SELECT slot có learner, 1 SELECT payment, 1 UPDATE huỷ payment PENDING,
+ *  1 batch INSERT refund, 1 batch INSERT notification, 1 DELETE slot, 1 DELETE plan.
+ * Huỷ link PayOS được giao cho PaymentLinkCanceller sau commit, không chờ kết quả.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Transactional
+public class BookingPlanTeardownService {
+
+    static final String INSERT_REFUND_SQL = """
+            INSERT INTO refund_requests
+                (booking_plan_id, slot_id, user_id, package_id, refund_amount, status, tutor_id, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    BookingPlanRepository bookingPlanRepository;
+    BookingPlanSlotRepository bookingPlanSlotRepository;
+    PaymentRepository paymentRepository;
+    NotificationService notificationService;
+    PaymentLinkCanceller paymentLinkCanceller;
+    TutorAvailabilityIndex tutorAvailabilityIndex;
+    TutorScheduleIndex tutorScheduleIndex;
+    JdbcTemplate jdbcTemplate;
+
+    public enum Reason {
+        PLAN_DELETED,    // tutor tự xoá plan: huỷ payment link, thông báo learner + tutor
+        TUTOR_SUSPENDED  // tutor bị suspend / xoá: chỉ thông báo learner
+    }
+
+    public record TeardownReport(int plans, int slotsDeleted, int slotsWithLearner,
+                                 int refundsCreated, int notificationsSent, int paymentsCancelled) {}
+
+    /**
+     * Xoá các booking plan (cùng 1 tutor) cùng toàn bộ slot, tạo refund / thông báo cho learner.
+     */
+    public TeardownReport teardown(List<BookingPlan> plans, Reason reason, Long tutorUserId) {
+        int slotsDeleted = 0;
+        int slotsWithLearner = 0;
+        int refunds = 0;
+        int notifications = 0;
+        int paymentsCancelled = 0;
+        List<String> paymentLinksToCancel = new ArrayList<>();
+        Set<Long> tutorIds = new HashSet<>();
+
+        LocalDateTime now = LocalDateTime.now();
+        int done = 0;
+        for (BookingPlan plan : plans) {
+            List<Long> planIds = List.of(plan.getBookingPlanID());
+            List<BookingPlanSlot> booked = bookingPlanSlotRepository.findByBookingPlanIDInAndUserIDIsNotNull(planIds);
+
+            // Payment của slot đang thanh toán (1 payment có thể gồm nhiều slot)
+            Map<Long, Payment> payments = Map.of();
+            if (reason == Reason.PLAN_DELETED) {
+                Set<Long> paymentIds = booked.stream()
+                        .filter(s -> s.getStatus() == SlotStatus.Locked && s.getPaymentID() != null)
+                        .map(BookingPlanSlot::getPaymentID)
+                        .collect(Collectors.toSet());
+                if (!paymentIds.isEmpty()) {
+                    payments = paymentRepository.findAllById(paymentIds).stream()
+                            .filter(p -> p.getStatus() == PaymentStatus.PENDING && p.getPaymentLinkId() != null)
+                            .collect(Collectors.toMap(Payment::getPaymentID, Function.identity()));
+                    if (!payments.isEmpty()) {
+                        paymentsCancelled += paymentRepository.cancelPending(payments.keySet(), now);
+                        payments.values().forEach(p -> paymentLinksToCancel.add(p.getPaymentLinkId()));
+                    }
+                }
+            }
+
+            List<Object[]> refundRows = new ArrayList<>();
+            List<Notification> notes = new ArrayList<>();
+            for (BookingPlanSlot slot : booked) {
+                if (slot.getStatus() == SlotStatus.Paid) {
+                    refundRows.add(new Object[]{
+                            plan.getBookingPlanID(),
+                            slot.getSlotID(),
+                            slot.getUserID(),
+                            slot.getUserPackage() != null ? slot.getUserPackage().getUserPackageID() : null,
+                            calculateRefundAmount(slot, plan),
+                            RefundStatus.PENDING.name(),
+                            plan.getTutorID(),
+                            now
+                    });
+                }
+                addNotifications(notes, slot, reason, tutorUserId);
+            }
+
+            if (!refundRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_REFUND_SQL, refundRows);
+                refunds += refundRows.size();
+            }
+            notifications += notificationService.sendAll(notes);
+
+            slotsWithLearner += booked.size();
+            slotsDeleted += bookingPlanSlotRepository.deleteAllByPlanIds(planIds);
+            bookingPlanRepository.deleteAllByIds(planIds);
+            tutorScheduleIndex.onPlansRemoved(plan.getTutorID(), planIds);
+            tutorIds.add(plan.getTutorID());
+
+            done++;
+            log.info("[TEARDOWN] {} plan {} ({}/{}): {} booked slots, {} refunds",
+                    reason, plan.getBookingPlanID(), done, plans.size(), booked.size(), refundRows.size());
+        }
+
+        // Bulk DELETE không đi qua entity listener
+        tutorIds.forEach(tutorAvailabilityIndex::onTutorChanged);
+
+        if (!paymentLinksToCancel.isEmpty()) {
+            AfterCommit.run(() -> paymentLinkCanceller.cancelAsync(paymentLinksToCancel));
+        }
+
+        TeardownReport report = new TeardownReport(
+                plans.size(), slotsDeleted, slotsWithLearner, refunds, notifications, paymentsCancelled);
+        log.info("[TEARDOWN] {} finished: {}", reason, report);
+        return report;
+    }
+
+    // Giữ nguyên nội dung thông báo của từng trường hợp
+    private void addNotifications(List<Notification> notes, BookingPlanSlot slot, Reason reason, Long tutorUserId) {
+        Long learnerUserId = slot.getUserID();
+        String when = formatDateTime(slot.getStartTime());
+
+        if (reason == Reason.TUTOR_SUSPENDED) {
+            if (slot.getStatus() == SlotStatus.Paid) {
+                notes.add(note(learnerUserId,
+                        "Lịch học đã bị hủy - Tutor đã bị khóa tài khoản - Yêu cầu hoàn tiền",
+                        "Buổi học vào lúc " + when + " đã bị hủy do tutor bị khóa tài khoản. " +
+                                "Hệ thống đã tạo yêu cầu hoàn tiền. " +
+                                "Vui lòng nhập thông tin ngân hàng để nhận tiền.",
+                        NotificationType.REFUND_AVAILABLE, "/learner/refunds"));
+            } else if (slot.getStatus() != SlotStatus.Locked) {
+                notes.add(note(learnerUserId,
+                        "Lịch học đã bị hủy - Tutor đã bị khóa tài khoản",
+                        "Buổi học vào lúc " + when + " đã bị hủy do tutor bị khóa tài khoản. " +
+                                "Vui lòng chọn tutor và lịch học mới.",
+                        NotificationType.TUTOR_CANCEL_BOOKING, "/learner/booking"));
+            }
+            return;
+        }
+
+        if (slot.getStatus() == SlotStatus.Locked) {
+            notes.add(note(learnerUserId,
+                    "Lịch học đã bị hủy",
+                    "Buổi học vào lúc " + when + " đã bị hủy do tutor xóa lịch làm việc. " +
+                            "Link thanh toán đã bị vô hiệu hoá, bạn sẽ không bị trừ tiền. " +
+                            "Vui lòng chọn lịch học mới.",
+                    NotificationType.TUTOR_CANCEL_BOOKING, "/learner/booking"));
+            if (tutorUserId != null) {
+                notes.add(note(tutorUserId,
+                        "Đã xóa slot có learner đang thanh toán",
+                        "Buổi học vào lúc " + when + " có learner đang thanh toán đã bị xóa khi bạn xóa lịch làm việc. " +
+                                "Hệ thống đã hủy link thanh toán và thông báo cho learner.",
+                        NotificationType.TUTOR_CANCEL_BOOKING, "/tutor/booking-plan"));
+            }
+        } else if (slot.getStatus() == SlotStatus.Paid) {
+            notes.add(note(learnerUserId,
+                    "Lịch học đã bị hủy - Yêu cầu hoàn tiền",
+                    "Buổi học vào lúc " + when + " đã bị hủy do tutor xóa lịch làm việc. " +
+                            "Hệ thống đã tạo yêu cầu hoàn tiền. " +
+                            "Vui lòng nhập thông tin ngân hàng để nhận tiền.",
+                    NotificationType.REFUND_AVAILABLE, "/learner/refunds"));
+            if (tutorUserId != null) {
+                notes.add(note(tutorUserId,
+                        "Đã xóa slot đã thanh toán - Yêu cầu hoàn tiền",
+                        "Buổi học vào lúc " + when + " đã được thanh toán nhưng đã bị xóa khi bạn xóa lịch làm việc. " +
+                                "Hệ thống đã tạo yêu cầu hoàn tiền cho learner.",
+                        NotificationType.REFUND_AVAILABLE, "/tutor/booking-plan"));
+            }
+        } else {
+            notes.add(note(learnerUserId,
+                    "Lịch học đã bị hủy",
+                    "Buổi học vào lúc " + when + " đã bị hủy do tutor xóa lịch làm việc. " +
+                            "Vui lòng chọn lịch học mới.",
+                    NotificationType.TUTOR_CANCEL_BOOKING, "/learner/booking"));
+            if (tutorUserId != null) {
+                notes.add(note(tutorUserId,
+                        "Đã xóa slot có learner",
+                        "Buổi học vào lúc " + when + " có learner đã book nhưng đã bị xóa khi bạn xóa lịch làm việc. " +
+                                "Hệ thống đã thông báo cho learner.",
+                        NotificationType.TUTOR_CANCEL_BOOKING, "/tutor/booking-plan"));
+            }
+        }
+    }
+
+    private Notification note(Long userId, String title, String content, NotificationType type, String url) {
+        return Notification.builder()
+                .userId(userId)
+                .title(title)
+                .content(content)
+                .type(type)
+                .primaryActionUrl(url)
+                .build();
+    }
+
+    private BigDecimal calculateRefundAmount(BookingPlanSlot slot, BookingPlan plan) {
+        BigDecimal pricePerHour = BigDecimal.valueOf(plan.getPricePerHours());
+        long minutes = Duration.between(slot.getStartTime(), slot.getEndTime()).toMinutes();
+
+        if (minutes <= 0) return BigDecimal.ZERO;
+
+        return pricePerHour
+                .multiply(BigDecimal.valueOf(minutes))
+                .divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+    }
+
+    private String formatDateTime(LocalDateTime dt) {
+        return dt.toLocalTime() + " ngày " + dt.toLocalDate();
+    }
+}
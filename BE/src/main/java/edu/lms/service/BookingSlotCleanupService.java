@@ -1,6 +1,7 @@
 package edu.lms.service;
 
 import edu.lms.entity.BookingPlanSlot;
+import edu.lms.enums.SlotStatus;
 import edu.lms.repository.BookingPlanSlotRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,12 +20,30 @@ public class BookingSlotCleanupService {
     private final BookingPlanSlotRepository bookingPlanSlotRepository;
 
     @Transactional
-    @Scheduled(fixedRate = 60000) // mỗi 1 phút
+    // Lock hết hạn được ExpiryWheelScheduler release trong vài giây; đây chỉ là sweep dự phòng
+    @Scheduled(fixedDelayString = "${app.expiry.sweep-interval-ms:600000}")
     public void cleanupExpiredSlots() {
-        List<BookingPlanSlot> expired = bookingPlanSlotRepository.findAllExpiredSlots(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        List<BookingPlanSlot> expired = bookingPlanSlotRepository.findAllExpiredSlots(now);
         expired.forEach(slot -> {
-            bookingPlanSlotRepository.delete(slot);
-            log.warn("[CLEANUP] Deleted expired slot {} ({} - {})", slot.getSlotID(), slot.getStartTime(), slot.getEndTime());
+            // Slot tương lai -> trả về Available (slot đã materialize từ booking plan), còn lại xoá
+            if (slot.getStartTime().isAfter(now)) {
+                releaseSlot(slot);
+                log.warn("[CLEANUP] Released expired slot {} ({} - {})", slot.getSlotID(), slot.getStartTime(), slot.getEndTime());
+            } else {
+                bookingPlanSlotRepository.delete(slot);
+                log.warn("[CLEANUP] Deleted expired slot {} ({} - {})", slot.getSlotID(), slot.getStartTime(), slot.getEndTime());
+            }
         });
     }
+
+    private void releaseSlot(BookingPlanSlot slot) {
+        slot.setStatus(SlotStatus.Available);
+        slot.setUserID(null);
+        slot.setLockedAt(null);
+        slot.setExpiresAt(null);
+        slot.setPaymentID(null);
+        slot.setUserPackage(null);
+        bookingPlanSlotRepository.save(slot);
+    }
 }
@@ -0,0 +1,199 @@
+package edu.lms.service;
+
+import edu.lms.entity.BookingPlan;
+import edu.lms.entity.BookingPlanSlot;
+import edu.lms.enums.SlotStatus;
+import edu.lms.repository.BookingPlanRepository;
+import edu.lms.repository.BookingPlanSlotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * Sinh slot thật (Booking_Plan_Slot, status Available) từ template tuần của BookingPlan
+ * cho rolling horizon (mặc định 8 tuần), để các query availability đọc slot có sẵn.
+ *  - Idempotent theo (tutorID, startTime): unique key uk_slot_tutor_start + INSERT IGNORE.
+ *  - Reconcile: slot Available (chưa có learner) không còn khớp template -> xoá;
+ *    slot đã có learner (Locked / Paid) không bị đụng tới.
+ *  - Chạy khi tạo / sửa plan (trong transaction của caller) và hằng ngày để cuốn horizon.
+ *  - Plan đóng / ngừng hoặc tutor không còn APPROVED: slot trống sắp tới bị xoá trong lượt hằng ngày.
+ */
+@Slf4j
+@Service
+public class BookingSlotMaterializer {
+
+    // Batch insert qua JDBC (IDENTITY không cho Hibernate batch insert)
+    private static final String INSERT_SLOT_SQL = """
+            INSERT IGNORE INTO booking_plan_slot (booking_planid, tutorid, start_time, end_time, status)
+            VALUES (?, ?, ?, ?, 'Available')
+            """;
+
+    public record Result(int created, int removed) {}
+
+    private final BookingPlanRepository bookingPlanRepository;
+    private final BookingPlanSlotRepository bookingPlanSlotRepository;
+    private final TutorAvailabilityIndex tutorAvailabilityIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int horizonWeeks;
+    private final int batchSize;
+
+    public BookingSlotMaterializer(
+            BookingPlanRepository bookingPlanRepository,
+            BookingPlanSlotRepository bookingPlanSlotRepository,
+            TutorAvailabilityIndex tutorAvailabilityIndex,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.slots.horizon-weeks:8}") int horizonWeeks,
+            @Value("${app.slots.batch-size:500}") int batchSize
+    ) {
+        this.bookingPlanRepository = bookingPlanRepository;
+        this.bookingPlanSlotRepository = bookingPlanSlotRepository;
+        this.tutorAvailabilityIndex = tutorAvailabilityIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.horizonWeeks = horizonWeeks;
+        this.batchSize = batchSize;
+    }
+
+    // ======================================================
+    // SCHEDULED: CUỐN HORIZON
+    // ======================================================
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.slots.materialize-cron:0 30 0 * * *}")
+    public void materializeAll() {
+        long startedAt = System.currentTimeMillis();
+        int created = 0;
+        int removed = 0;
+        int failed = 0;
+
+        // Slot trống của plan đã bị xoá (vd: plan xoá trong lúc đang materialize)
+        Integer orphans = transactionTemplate.execute(status -> bookingPlanSlotRepository.deleteOrphanAvailableSlots());
+        // Plan không còn nằm trong danh sách materialize bên dưới -> slot trống của nó không được reconcile
+        Integer closed = transactionTemplate.execute(status ->
+                bookingPlanSlotRepository.deleteAvailableSlotsOfClosedPlans(LocalDateTime.now()));
+
+        List<BookingPlan> plans = bookingPlanRepository.findOpenPlansOfApprovedTutors(null);
+        for (BookingPlan plan : plans) {
+            try {
+                Result result = transactionTemplate.execute(status -> materialize(plan));
+                if (result != null) {
+                    created += result.created();
+                    removed += result.removed();
+                }
+            } catch (Exception e) {
+                failed++;
+                log.error("[SLOT MATERIALIZER] Failed for booking plan {}", plan.getBookingPlanID(), e);
+            }
+        }
+
+        log.info("[SLOT MATERIALIZER] {} plans: created={}, removed={}, orphans={}, closed={}, failed={} in {} ms",
+                plans.size(), created, removed, orphans, closed, failed, System.currentTimeMillis() - startedAt);
+    }
+
+    // ======================================================
+    // MATERIALIZE 1 PLAN
+    // ======================================================
+    /**
+     * Đồng bộ slot của plan trong [now, now + horizon). Chạy trong transaction của caller.
+     */
+    public Result materialize(BookingPlan plan) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime horizonEnd = now.toLocalDate().plusWeeks(horizonWeeks).atStartOfDay();
+
+        NavigableMap<LocalDateTime, LocalDateTime> expected =
+                Boolean.TRUE.equals(plan.getIsActive()) && Boolean.TRUE.equals(plan.getIsOpen())
+                        ? expandTemplate(plan, now, horizonEnd)
+                        : new TreeMap<>();
+
+        List<BookingPlanSlot> existing = bookingPlanSlotRepository
+                .findByTutorIDAndDateRange(plan.getTutorID(), now, horizonEnd);
+
+        // 1. Slot trống của plan không còn khớp template (đổi giờ / ngày / duration) -> xoá
+        List<BookingPlanSlot> stale = existing.stream()
+                .filter(s -> plan.getBookingPlanID().equals(s.getBookingPlanID()))
+                .filter(s -> s.getStatus() == SlotStatus.Available && s.getUserID() == null)
+                .filter(s -> !s.getEndTime().equals(expected.get(s.getStartTime())))
+                .toList();
+        if (!stale.isEmpty()) {
+            bookingPlanSlotRepository.deleteAllInBatch(stale);
+        }
+
+        // 2. Slot template chưa có và không đè lên slot còn lại của tutor -> insert theo batch
+        Set<Long> staleIds = new HashSet<>();
+        stale.forEach(s -> staleIds.add(s.getSlotID()));
+        NavigableMap<LocalDateTime, LocalDateTime> taken = new TreeMap<>();
+        for (BookingPlanSlot s : existing) {
+            if (s.getStatus() != SlotStatus.Rejected && !staleIds.contains(s.getSlotID())) {
+                taken.merge(s.getStartTime(), s.getEndTime(), (a, b) -> a.isAfter(b) ? a : b);
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        expected.forEach((start, end) -> {
+            Map.Entry<LocalDateTime, LocalDateTime> before = taken.lowerEntry(end);
+            boolean overlaps = before != null && before.getValue().isAfter(start);
+            if (!overlaps) {
+                rows.add(new Object[]{plan.getBookingPlanID(), plan.getTutorID(), start, end});
+            }
+        });
+
+        int created = 0;
+        for (int i = 0; i < rows.size(); i += batchSize) {
+            int[] counts = jdbcTemplate.batchUpdate(INSERT_SLOT_SQL, rows.subList(i, Math.min(i + batchSize, rows.size())));
+            for (int count : counts) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) created++;
+            }
+        }
+
+        // JDBC insert / bulk delete không đi qua entity listener
+        if (created > 0 || !stale.isEmpty()) {
+            tutorAvailabilityIndex.onTutorChanged(plan.getTutorID());
+        }
+
+        log.debug("[SLOT MATERIALIZER] Plan {}: expected={}, created={}, removed={}",
+                plan.getBookingPlanID(), expected.size(), created, stale.size());
+        return new Result(created, stale.size());
+    }
+
+    // Slot theo template tuần (start -> end), chỉ lấy slot bắt đầu sau now, chia hết slotDuration
+    private NavigableMap<LocalDateTime, LocalDateTime> expandTemplate(
+            BookingPlan plan, LocalDateTime now, LocalDateTime horizonEnd) {
+        NavigableMap<LocalDateTime, LocalDateTime> result = new TreeMap<>();
+        if (plan.getStartHours() == null || plan.getEndHours() == null
+                || plan.getSlotDuration() == null || plan.getSlotDuration() <= 0) {
+            return result;
+        }
+
+        DayOfWeek day = TutorBookingPlanService.mapTitleToDayOfWeek(plan.getTitle());
+        int duration = plan.getSlotDuration();
+
+        for (LocalDate date = now.toLocalDate().with(TemporalAdjusters.nextOrSame(day));
+             date.atStartOfDay().isBefore(horizonEnd);
+             date = date.plusWeeks(1)) {
+            LocalDateTime windowEnd = date.atTime(plan.getEndHours());
+            LocalDateTime start = date.atTime(plan.getStartHours());
+            while (!start.plusMinutes(duration).isAfter(windowEnd)) {
+                LocalDateTime end = start.plusMinutes(duration);
+                if (start.isAfter(now)) {
+                    result.put(start, end);
+                }
+                start = end;
+            }
+        }
+        return result;
+    }
+}
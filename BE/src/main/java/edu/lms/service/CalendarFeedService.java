@@ -0,0 +1,238 @@
+package edu.lms.service;
+
+import edu.lms.enums.SlotStatus;
+import edu.lms.exception.AppException;
+import edu.lms.exception.ErrorCode;
+import edu.lms.repository.BookingPlanSlotRepository;
+import edu.lms.repository.BookingPlanSlotRepository.CalendarEventRow;
+import edu.lms.repository.TutorRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Feed iCalendar (.ics) lịch học của 1 user (slot Locked / Paid mà user là learner hoặc tutor),
+ * để user subscribe từ Google Calendar / Outlook / Apple Calendar thay vì poll API JSON.
+ *  - URL chứa token "userId.HMAC-SHA256(userId)" (không cần đăng nhập, không lưu DB);
+ *    đổi app.calendar.feed-secret để thu hồi toàn bộ link.
+ *  - Body ghi từng dòng từ DB cursor ra response (không dựng list).
+ *  - ETag theo fingerprint của slot / plan: calendar client poll mà không có gì đổi -> 304.
+ */
+@Slf4j
+@Service
+public class CalendarFeedService {
+
+    private static final String CRLF = "\r\n";
+    private static final int MAX_LINE_OCTETS = 75;
+    private static final DateTimeFormatter ICS_UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    // Tránh so sánh s.tutorID = NULL khi user không phải tutor
+    private static final Long NO_TUTOR = -1L;
+
+    private final BookingPlanSlotRepository bookingPlanSlotRepository;
+    private final TutorRepository tutorRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final SecretKeySpec tokenKey;
+    private final int pastDays;
+
+    public CalendarFeedService(
+            BookingPlanSlotRepository bookingPlanSlotRepository,
+            TutorRepository tutorRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.calendar.feed-secret:${jwt.signerKey}}") String feedSecret,
+            @Value("${app.calendar.past-days:30}") int pastDays
+    ) {
+        this.bookingPlanSlotRepository = bookingPlanSlotRepository;
+        this.tutorRepository = tutorRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.tokenKey = new SecretKeySpec(feedSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.pastDays = pastDays;
+    }
+
+    // ======================================================
+    // TOKEN
+    // ======================================================
+    public String issueToken(Long userId) {
+        return userId + "." + sign(userId);
+    }
+
+    /**
+     * @return userId nếu token hợp lệ, sai -> UNAUTHENTICATED
+     */
+    public Long verifyToken(String token) {
+        int dot = token == null ? -1 : token.indexOf('.');
+        if (dot <= 0) {
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
+        }
+        Long userId;
+        try {
+            userId = Long.valueOf(token.substring(0, dot));
+        } catch (NumberFormatException e) {
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
+        }
+        byte[] expected = sign(userId).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(dot + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
+        }
+        return userId;
+    }
+
+    // ======================================================
+    // FEED
+    // ======================================================
+    public String etag(Long userId) {
+        List<Object[]> rows = bookingPlanSlotRepository.fingerprintCalendar(userId, tutorIdOf(userId), windowStart());
+        String fingerprint = rows.isEmpty() ? "" : Arrays.toString(rows.get(0));
+        return "\"ics-" + userId + "-"
+                + DigestUtils.md5DigestAsHex(fingerprint.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Ghi feed ra output, đọc slot bằng stream trong 1 transaction read-only (chạy trên thread ghi response).
+     */
+    public void writeFeed(Long userId, OutputStream output) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        String stamp = LocalDateTime.now(ZoneOffset.UTC).format(ICS_UTC);
+        int[] events = {0};
+
+        readOnlyTransaction.executeWithoutResult(status -> {
+            Long tutorId = tutorIdOf(userId);
+            try (Stream<CalendarEventRow> rows =
+                         bookingPlanSlotRepository.streamCalendarEvents(userId, tutorId, windowStart())) {
+                line(writer, "BEGIN:VCALENDAR");
+                line(writer, "VERSION:2.0");
+                line(writer, "PRODID:-//LinguaHub//Schedule//VI");
+                line(writer, "CALSCALE:GREGORIAN");
+                line(writer, "METHOD:PUBLISH");
+                line(writer, "X-WR-CALNAME:LinguaHub");
+                line(writer, "REFRESH-INTERVAL;VALUE=DURATION:PT15M");
+                line(writer, "X-PUBLISHED-TTL:PT15M");
+                rows.forEach(row -> {
+                    writeEvent(writer, row, userId, stamp);
+                    events[0]++;
+                });
+                line(writer, "END:VCALENDAR");
+            }
+        });
+
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.debug("[CALENDAR] Feed of user {}: {} events", userId, events[0]);
+    }
+
+    // ======================================================
+    // HELPERS
+    // ======================================================
+    private void writeEvent(Writer writer, CalendarEventRow row, Long userId, String stamp) {
+        boolean asLearner = userId.equals(row.getUserId());
+        boolean paid = row.getStatus() == SlotStatus.Paid;
+        String counterpart = asLearner ? row.getTutorName() : row.getLearnerName();
+        // meetingUrl chỉ hiển thị khi slot đã thanh toán (giống API JSON)
+        String meetingUrl = paid && row.getMeetingUrl() != null && !row.getMeetingUrl().isBlank()
+                ? row.getMeetingUrl() : null;
+
+        StringBuilder description = new StringBuilder();
+        if (row.getPlanTitle() != null) description.append("Lịch: ").append(row.getPlanTitle()).append('\n');
+        description.append(paid ? "Đã thanh toán" : "Đang chờ thanh toán");
+        if (meetingUrl != null) description.append('\n').append("Link học: ").append(meetingUrl);
+
+        line(writer, "BEGIN:VEVENT");
+        line(writer, "UID:slot-" + row.getSlotId() + "@linguahub");
+        line(writer, "DTSTAMP:" + stamp);
+        line(writer, "DTSTART:" + utc(row.getStartTime()));
+        line(writer, "DTEND:" + utc(row.getEndTime()));
+        line(writer, "SEQUENCE:" + (row.getVersion() != null ? row.getVersion() : 0));
+        line(writer, "SUMMARY:" + escape("LinguaHub - Buổi học với " + (counterpart != null ? counterpart : "learner")));
+        line(writer, "DESCRIPTION:" + escape(description.toString()));
+        if (meetingUrl != null) {
+            line(writer, "LOCATION:" + escape(meetingUrl));
+            line(writer, "URL:" + meetingUrl);
+        }
+        line(writer, "STATUS:" + (paid ? "CONFIRMED" : "TENTATIVE"));
+        line(writer, "END:VEVENT");
+    }
+
+    private Long tutorIdOf(Long userId) {
+        return tutorRepository.findByUser_UserID(userId)
+                .map(tutor -> tutor.getTutorID())
+                .orElse(NO_TUTOR);
+    }
+
+    private LocalDateTime windowStart() {
+        return LocalDate.now().minusDays(pastDays).atStartOfDay();
+    }
+
+    private String sign(Long userId) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(tokenKey);
+            byte[] digest = mac.doFinal(("calendar:" + userId).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static String utc(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).format(ICS_UTC);
+    }
+
+    // RFC 5545 3.3.11: escape \ ; , và xuống dòng trong TEXT
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n");
+    }
+
+    // RFC 5545 3.1: dòng dài hơn 75 octet (UTF-8) được gấp, dòng tiếp theo bắt đầu bằng 1 space
+    private static void line(Writer writer, String content) {
+        try {
+            int octets = 0;
+            for (int i = 0; i < content.length(); ) {
+                int codePoint = content.codePointAt(i);
+                int size = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+                if (octets + size > MAX_LINE_OCTETS) {
+                    writer.write(CRLF);
+                    writer.write(' ');
+                    octets = 1;
+                }
+                writer.write(Character.toChars(codePoint));
+                octets += size;
+                i += Character.charCount(codePoint);
+            }
+            writer.write(CRLF);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package edu.lms.service;
+
+import edu.lms.dto.response.CourseContentSummaryResponse;
+import edu.lms.entity.Course;
+import edu.lms.entity.CourseContentSummary;
+import edu.lms.enums.LessonType;
+import edu.lms.repository.CourseContentSummaryRepository;
+import edu.lms.repository.CourseRepository;
+import edu.lms.repository.LessonRepository;
+import edu.lms.repository.LessonResourceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Snapshot content summary của course:
+ *  - approve course / approve draft -> refresh(course)
+ *  - đọc detail                     -> getSummary(course), chỉ tính lại khi thiếu hoặc lệch contentVersion
+ *  - course chưa Approved           -> computeLive(course), không qua snapshot
+ *  - backfillMissing()              -> tính cho các course cũ chưa có snapshot
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CourseContentSummaryService {
+
+    private static final int BACKFILL_BATCH_SIZE = 200;
+
+    private final CourseContentSummaryRepository courseContentSummaryRepository;
+    private final CourseRepository courseRepository;
+    private final LessonRepository lessonRepository;
+    private final LessonResourceRepository lessonResourceRepository;
+
+    // ======================================================
+    // WRITE (gọi khi publish)
+    // ======================================================
+    @Transactional
+    public CourseContentSummary refresh(Course course) {
+        CourseContentSummary summary = computeSummaries(List.of(course.getCourseID()))
+                .get(course.getCourseID());
+        summary.setContentVersion(course.currentContentVersion());
+        return courseContentSummaryRepository.save(summary);
+    }
+
+    // ======================================================
+    // READ
+    // ======================================================
+    @Transactional
+    public CourseContentSummaryResponse getSummary(Course course) {
+        CourseContentSummary summary = courseContentSummaryRepository.findById(course.getCourseID())
+                .filter(s -> Objects.equals(s.getContentVersion(), course.currentContentVersion()))
+                .orElseGet(() -> refresh(course));
+        return toResponse(summary);
+    }
+
+    /**
+     * Tính trực tiếp từ lesson / resource hiện tại, không đọc / ghi snapshot.
+     * Dùng cho course chưa Approved: sửa Draft / Pending không bump contentVersion nên snapshot có thể cũ.
+     */
+    @Transactional(readOnly = true)
+    public CourseContentSummaryResponse computeLive(Course course) {
+        return toResponse(computeSummaries(List.of(course.getCourseID())).get(course.getCourseID()));
+    }
+
+    public static CourseContentSummaryResponse toResponse(CourseContentSummary s) {
+        double totalVideoHours = Math.round(s.getTotalVideoMinutes() / 60.0 * 10.0) / 10.0; // phút → giờ
+        return CourseContentSummaryResponse.builder()
+                .totalVideoHours(totalVideoHours)
+                .totalPracticeTests(s.getTotalPracticeTests())
+                .totalArticles(s.getTotalArticles())
+                .totalDownloadableResources(s.getTotalDownloadableResources())
+                .build();
+    }
+
+    // ======================================================
+    // BACKFILL
+    // ======================================================
+    /**
+     * Tính snapshot cho các course chưa có, theo batch (2 grouped query / batch).
+     * @return số course được backfill
+     */
+    @Transactional
+    public int backfillMissing() {
+        List<Long> missing = courseContentSummaryRepository.findCourseIdsWithoutSummary();
+        for (int from = 0; from < missing.size(); from += BACKFILL_BATCH_SIZE) {
+            List<Long> batch = missing.subList(from, Math.min(from + BACKFILL_BATCH_SIZE, missing.size()));
+            Map<Long, Long> versions = courseRepository.findAllById(batch).stream()
+                    .collect(Collectors.toMap(Course::getCourseID, Course::currentContentVersion));
+
+            Collection<CourseContentSummary> summaries = computeSummaries(batch).values();
+            summaries.forEach(s -> s.setContentVersion(versions.getOrDefault(s.getCourseID(), 0L)));
+            courseContentSummaryRepository.saveAll(summaries);
+        }
+
+        log.info("[CONTENT SUMMARY] Backfilled {} courses", missing.size());
+        return missing.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        backfillMissing();
+    }
+
+    // ======================================================
+    // HELPERS
+    // ======================================================
+    private Map<Long, CourseContentSummary> computeSummaries(List<Long> courseIds) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, CourseContentSummary> result = courseIds.stream()
+                .collect(Collectors.toMap(Function.identity(),
+                        id -> CourseContentSummary.builder().courseID(id).updatedAt(now).build()));
+
+        for (Object[] row : lessonRepository.summarizeByCourseIds(courseIds)) {
+            CourseContentSummary s = result.get((Long) row[0]);
+            if (s == null || row[1] == null) continue;
+            LessonType type = (LessonType) row[1];
+            int count = ((Number) row[2]).intValue();
+            long minutes = ((Number) row[3]).longValue();
+            switch (type) {
+                case Video -> s.setTotalVideoMinutes(minutes);
+                case Test -> s.setTotalPracticeTests(count);
+                case Reading -> s.setTotalArticles(count);
+            }
+        }
+        for (Object[] row : lessonResourceRepository.countGroupByCourseIds(courseIds)) {
+            CourseContentSummary s = result.get((Long) row[0]);
+            if (s != null) s.setTotalDownloadableResources(((Number) row[1]).intValue());
+        }
+        return result;
+    }
+}
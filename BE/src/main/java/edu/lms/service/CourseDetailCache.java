@@ -0,0 +1,54 @@
+package edu.lms.service;
+
+import edu.lms.cache.BoundedTtlCache;
+import edu.lms.dto.response.CourseDetailResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Cache phần không phụ thuộc user của CourseDetailResponse
+ * (metadata, curriculum, objectives, content summary, reviews).
+ * Entry gắn với Course.contentVersion: version đổi (admin approve/reject) -> entry cũ bị bỏ qua.
+ */
+@Component
+public class CourseDetailCache {
+
+    public record Entry(long contentVersion, CourseDetailResponse detail) {}
+
+    private final BoundedTtlCache<Long, Entry> cache;
+
+    public CourseDetailCache(
+            @Value("${app.cache.course-detail.max-size:500}") int maxSize,
+            @Value("${app.cache.course-detail.ttl:PT10M}") Duration ttl
+    ) {
+        this.cache = new BoundedTtlCache<>("course-detail", maxSize, ttl);
+    }
+
+    /**
+     * @return detail đã cache nếu đúng version, null nếu miss / version cũ
+     */
+    public CourseDetailResponse get(Long courseId, long contentVersion) {
+        Entry e = cache.get(courseId);
+        if (e == null) return null;
+        if (e.contentVersion() != contentVersion) {
+            cache.evict(courseId);
+            return null;
+        }
+        return e.detail();
+    }
+
+    public void put(Long courseId, long contentVersion, CourseDetailResponse detail) {
+        cache.put(courseId, new Entry(contentVersion, detail));
+    }
+
+    public void evict(Long courseId) {
+        cache.evict(courseId);
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,96 @@
+package edu.lms.service;
+
+import edu.lms.cache.BoundedTtlCache;
+import edu.lms.cache.LongIdSet;
+import edu.lms.enums.EnrollmentStatus;
+import edu.lms.repository.EnrollmentRepository;
+import edu.lms.repository.WishlistRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Membership theo user: các course đã wishlist / đã mua (Active, Completed).
+ * Load 1 lần (2 query) rồi cache ngắn hạn, các check isWishListed / isPurchased
+ * sau đó chỉ là lookup trong bộ nhớ.
+ * Wishlist add/remove và enrollment mới cập nhật entry sau khi transaction commit.
+ */
+@Component
+public class CourseMembershipCache {
+
+    public static final List<EnrollmentStatus> PURCHASED_STATUSES =
+            List.of(EnrollmentStatus.Active, EnrollmentStatus.Completed);
+
+    public record Membership(LongIdSet wishlisted, LongIdSet purchased) {
+        public boolean isWishListed(Long courseId) {
+            return wishlisted.contains(courseId);
+        }
+
+        public boolean isPurchased(Long courseId) {
+            return purchased.contains(courseId);
+        }
+
+        // Đổi khi wishlist / purchased đổi, dùng ghép vào ETag của response theo user
+        public String fingerprint() {
+            return wishlisted.size() + "." + Integer.toHexString(wishlisted.hashCode())
+                    + "." + purchased.size() + "." + Integer.toHexString(purchased.hashCode());
+        }
+    }
+
+    private final BoundedTtlCache<Long, Membership> cache;
+    private final WishlistRepository wishlistRepository;
+    private final EnrollmentRepository enrollmentRepository;
+
+    public CourseMembershipCache(
+            WishlistRepository wishlistRepository,
+            EnrollmentRepository enrollmentRepository,
+            @Value("${app.cache.course-membership.max-size:10000}") int maxSize,
+            @Value("${app.cache.course-membership.ttl:PT2M}") Duration ttl
+    ) {
+        this.wishlistRepository = wishlistRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.cache = new BoundedTtlCache<>("course-membership", maxSize, ttl);
+    }
+
+    public Membership get(Long userId) {
+        return cache.getOrLoad(userId, this::load);
+    }
+
+    // ======================================================
+    // GIỮ CACHE ĐÚNG KHI DỮ LIỆU ĐỔI
+    // ======================================================
+    public void onWishlistAdded(Long userId, Long courseId) {
+        update(userId, m -> new Membership(m.wishlisted().with(courseId), m.purchased()));
+    }
+
+    public void onWishlistRemoved(Long userId, Long courseId) {
+        update(userId, m -> new Membership(m.wishlisted().without(courseId), m.purchased()));
+    }
+
+    public void onEnrolled(Long userId, Long courseId) {
+        update(userId, m -> new Membership(m.wishlisted(), m.purchased().with(courseId)));
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+
+    // ======================================================
+    // HELPERS
+    // ======================================================
+    private Membership load(Long userId) {
+        return new Membership(
+                LongIdSet.of(wishlistRepository.findCourseIdsByUser(userId)),
+                LongIdSet.of(enrollmentRepository.findCourseIdsByUserAndStatusIn(userId, PURCHASED_STATUSES))
+        );
+    }
+
+    // Chỉ áp dụng sau commit, tránh cache giữ thay đổi của transaction bị rollback
+    private void update(Long userId, UnaryOperator<Membership> updater) {
+        AfterCommit.run(() -> cache.updateIfPresent(userId, updater));
+    }
+}
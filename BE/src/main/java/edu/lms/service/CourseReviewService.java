@@ -12,7 +12,6 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -27,8 +26,10 @@ public class CourseReviewService {
     UserRepository userRepository;
     CourseRepository courseRepository;
     EnrollmentRepository enrollmentRepository;
-    TutorRepository tutorRepository;
     UserCourseSectionRepository userCourseSectionRepository;
+    CourseStatsService courseStatsService;
+    TutorRatingService tutorRatingService;
+    CourseDetailCache courseDetailCache;
 
 
     @Transactional
@@ -82,9 +83,15 @@ public class CourseReviewService {
                 .build();
 
         courseReviewRepository.save(review);
-
-        // Cập nhật lại rating trung bình của Tutor
-        updateTutorRating(course.getTutor());
+        courseStatsService.addReview(courseId, review.getRating());
+        // List review nằm trong phần cache (cùng contentVersion) -> evict sau commit,
+        // tránh request đọc song song cache lại list cũ trước khi review được commit
+        AfterCommit.run(() -> courseDetailCache.evict(courseId));
+
+        // Cập nhật rating trung bình của Tutor (O(1))
+        if (course.getTutor() != null) {
+            tutorRatingService.addReview(course.getTutor().getTutorID(), review.getRating());
+        }
 
         return CourseReviewResponse.builder()
                 .feedbackID(review.getReviewID())
@@ -113,31 +120,11 @@ public class CourseReviewService {
 
         Tutor tutor = review.getCourse().getTutor();
         courseReviewRepository.delete(review);
-        updateTutorRating(tutor);
-    }
-
-
-    //TÍNH LẠI RATING TRUNG BÌNH CỦA TUTOR
-
-    private void updateTutorRating(Tutor tutor) {
-        if (tutor == null) return;
-        List<Course> tutorCourses = courseRepository.findAll().stream()
-                .filter(c -> c.getTutor() != null && c.getTutor().getTutorID().equals(tutor.getTutorID()))
-                .toList();
-
-        // Gom tất cả review của các course đó
-        List<CourseReview> tutorReviews = tutorCourses.stream()
-                .flatMap(c -> courseReviewRepository.findByCourse_CourseID(c.getCourseID()).stream())
-                .toList();
-
-        double avgRating = tutorReviews.isEmpty()
-                ? 0.0
-                : tutorReviews.stream()
-                .mapToDouble(CourseReview::getRating)
-                .average()
-                .orElse(0.0);
-
-        tutor.setRating(BigDecimal.valueOf(avgRating));
-        tutorRepository.save(tutor);
+        Long courseId = review.getCourse().getCourseID();
+        courseStatsService.removeReview(courseId, review.getRating());
+        AfterCommit.run(() -> courseDetailCache.evict(courseId));
+        if (tutor != null) {
+            tutorRatingService.removeReview(tutor.getTutorID(), review.getRating());
+        }
     }
 }
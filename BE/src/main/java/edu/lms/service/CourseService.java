@@ -1,20 +1,31 @@
 package edu.lms.service;
 
+import edu.lms.dto.request.CourseCatalogRequest;
 import edu.lms.dto.response.*;
 import edu.lms.entity.*;
+import edu.lms.enums.CourseCatalogSort;
 import edu.lms.enums.CourseStatus;
-import edu.lms.enums.EnrollmentStatus;
-import edu.lms.enums.LessonType;
 import edu.lms.exception.AppException;
 import edu.lms.exception.ErrorCode;
 import edu.lms.repository.*;
+import edu.lms.repository.LessonRepository.LessonOutline;
+import edu.lms.service.CourseMembershipCache.Membership;
+import edu.lms.service.CurriculumLoader.Curriculum;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -23,10 +34,14 @@ public class CourseService {
 
     CourseRepository courseRepository;
     TutorRepository tutorRepository;
-    WishlistRepository wishlistRepository;
     UserRepository userRepository;
-    EnrollmentRepository enrollmentRepository;
     CourseReviewRepository courseReviewRepository;
+    CourseStatsService courseStatsService;
+    CourseDetailCache courseDetailCache;
+    CourseContentSummaryService courseContentSummaryService;
+    CourseMembershipCache courseMembershipCache;
+    CurriculumLoader curriculumLoader;
+    LessonRepository lessonRepository;
 
     private User findUserOrNull(String email) {
         if (email == null || "anonymousUser".equalsIgnoreCase(email)) return null;
@@ -38,11 +53,88 @@ public class CourseService {
     // ================================================================
     public List<CourseResponse> getAllApproved(String email) {
         User user = findUserOrNull(email);
+        return toCourseCards(courseRepository.findCatalogByStatus(CourseStatus.Approved), user);
+    }
 
-        return courseRepository.findByStatus(CourseStatus.Approved)
-                .stream()
-                .map(c -> toOnlyCourseResponse(c, user))
-                .toList();
+    // ================================================================
+    // Public: Catalog (filter + sort + keyset pagination)
+    // ================================================================
+    public CursorPageResponse<CourseResponse> getCatalog(CourseCatalogRequest req, String email) {
+        User user = findUserOrNull(email);
+        CourseCatalogSort sort = req.getSort() != null ? req.getSort() : CourseCatalogSort.NEWEST;
+        int size = req.getSize() != null ? req.getSize() : 20;
+        // Lấy dư 1 phần tử để biết còn trang sau hay không
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        String[] cursor = req.getCursor() != null && !req.getCursor().isBlank()
+                ? KeysetCursor.decode(req.getCursor(), 3)
+                : null;
+        if (cursor != null && !sort.name().equals(cursor[0])) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+
+        List<Course> courses = new ArrayList<>();
+        List<Object> sortValues = new ArrayList<>();
+        try {
+            Long cursorId = cursor != null ? Long.valueOf(cursor[2]) : null;
+            switch (sort) {
+                case NEWEST -> {
+                    courses.addAll(courseRepository.findCatalogNewest(
+                            CourseStatus.Approved, req.getLanguage(), req.getCategoryId(), req.getLevel(),
+                            req.getMinPrice(), req.getMaxPrice(), req.getTutorId(), req.getMinRating(),
+                            cursor != null ? LocalDateTime.parse(cursor[1]) : null, cursorId, limit));
+                    courses.forEach(c -> sortValues.add(c.getCreatedAt()));
+                }
+                case PRICE_ASC, PRICE_DESC -> {
+                    BigDecimal cursorPrice = cursor != null ? new BigDecimal(cursor[1]) : null;
+                    courses.addAll(sort == CourseCatalogSort.PRICE_ASC
+                            ? courseRepository.findCatalogPriceAsc(
+                                    CourseStatus.Approved, req.getLanguage(), req.getCategoryId(), req.getLevel(),
+                                    req.getMinPrice(), req.getMaxPrice(), req.getTutorId(), req.getMinRating(),
+                                    cursorPrice, cursorId, limit)
+                            : courseRepository.findCatalogPriceDesc(
+                                    CourseStatus.Approved, req.getLanguage(), req.getCategoryId(), req.getLevel(),
+                                    req.getMinPrice(), req.getMaxPrice(), req.getTutorId(), req.getMinRating(),
+                                    cursorPrice, cursorId, limit));
+                    courses.forEach(c -> sortValues.add(c.getPrice().toPlainString()));
+                }
+                case RATING -> {
+                    for (Object[] row : courseRepository.findCatalogByRating(
+                            CourseStatus.Approved, req.getLanguage(), req.getCategoryId(), req.getLevel(),
+                            req.getMinPrice(), req.getMaxPrice(), req.getTutorId(), req.getMinRating(),
+                            cursor != null ? Double.valueOf(cursor[1]) : null, cursorId, limit)) {
+                        courses.add((Course) row[0]);
+                        sortValues.add(((Number) row[1]).doubleValue());
+                    }
+                }
+                case POPULARITY -> {
+                    for (Object[] row : courseRepository.findCatalogByPopularity(
+                            CourseStatus.Approved, req.getLanguage(), req.getCategoryId(), req.getLevel(),
+                            req.getMinPrice(), req.getMaxPrice(), req.getTutorId(), req.getMinRating(),
+                            cursor != null ? Long.valueOf(cursor[1]) : null, cursorId, limit)) {
+                        courses.add((Course) row[0]);
+                        sortValues.add(((Number) row[1]).longValue());
+                    }
+                }
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+
+        boolean hasMore = courses.size() > size;
+        List<Course> page = hasMore ? courses.subList(0, size) : courses;
+
+        String nextCursor = null;
+        if (hasMore) {
+            Course last = page.get(page.size() - 1);
+            nextCursor = KeysetCursor.encode(sort.name(), sortValues.get(page.size() - 1), last.getCourseID());
+        }
+
+        return CursorPageResponse.<CourseResponse>builder()
+                .items(toCourseCards(page, user))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
 
     // ================================================================
@@ -53,11 +145,8 @@ public class CourseService {
                 .orElseThrow(() -> new AppException(ErrorCode.TUTOR_NOT_FOUND));
 
         User user = findUserOrNull(email);
-
-        return courseRepository.findByTutorAndStatus(tutor, CourseStatus.Approved)
-                .stream()
-                .map(c -> toOnlyCourseResponse(c, user))
-                .toList();
+        return toCourseCards(
+                courseRepository.findCatalogByTutorAndStatus(tutor.getTutorID(), CourseStatus.Approved), user);
     }
 
     // ================================================================
@@ -75,6 +164,35 @@ public class CourseService {
         return toCourseResponse(c, user);
     }
 
+    // ================================================================
+    // Public: Lesson content (body tách khỏi outline)
+    // ================================================================
+
+    /**
+     * ETag của content lesson = contentVersion của course (content chỉ đổi khi admin approve draft).
+     * Controller gọi trước để trả 304 mà không cần đọc content @Lob.
+     */
+    public String getLessonContentETag(Long courseID, Long lessonID) {
+        List<Object[]> rows = lessonRepository.findCourseVersionOfLesson(courseID, lessonID);
+        if (rows.isEmpty()) {
+            throw new AppException(ErrorCode.LESSON_NOT_FOUND);
+        }
+        Object[] row = rows.get(0);
+        if (row[1] != CourseStatus.Approved) {
+            throw new AppException(ErrorCode.COURSE_NOT_APPROVED);
+        }
+        long version = row[0] != null ? ((Number) row[0]).longValue() : 0L;
+        return "\"lesson-" + lessonID + "-v" + version + "\"";
+    }
+
+    public LessonContentResponse getLessonContent(Long lessonID) {
+        String content = lessonRepository.findContentById(lessonID).orElse(null);
+        return LessonContentResponse.builder()
+                .lessonID(lessonID)
+                .content(content)
+                .build();
+    }
+
     // ================================================================
     // Optional: For Admin Internal Use
     // ================================================================
@@ -82,7 +200,11 @@ public class CourseService {
         List<Course> courses = (status == null)
                 ? courseRepository.findAll()
                 : courseRepository.findByStatus(status);
-        return courses.stream().map(c -> toCourseResponse(c, null)).toList();
+        // Không dùng cache: course chưa Approved có thể bị sửa mà không đổi contentVersion
+        // (content summary của course chưa Approved cũng tính trực tiếp, xem toCourseDetailBase)
+        return courses.stream()
+                .map(c -> overlayUserAndStats(toCourseDetailBase(c), c, null))
+                .toList();
     }
 
     // ============================ MAPPERS ============================
@@ -97,32 +219,32 @@ public class CourseService {
                 .build();
     }
 
-    private LessonResponse toLessonResponse(Lesson l) {
-        return LessonResponse.builder()
+    // Outline: không trả content (lấy riêng qua /courses/detail/{courseID}/lessons/{lessonID}/content)
+    private LessonOutlineResponse toLessonResponse(LessonOutline l,
+                                                   Curriculum<CourseSection, LessonOutline, LessonResource> curriculum) {
+        return LessonOutlineResponse.builder()
                 .lessonID(l.getLessonID())
                 .title(l.getTitle())
                 .duration(l.getDuration())
                 .lessonType(l.getLessonType())
                 .videoURL(l.getVideoURL())
-                .content(l.getContent())
                 .orderIndex(l.getOrderIndex())
                 .createdAt(l.getCreatedAt())
-                .resources(l.getResources() != null
-                        ? l.getResources().stream().map(this::toLessonResourceResponse).toList()
-                        : null)
+                .resources(curriculum.resourcesOf(l.getLessonID()).stream()
+                        .map(this::toLessonResourceResponse).toList())
                 .build();
     }
 
-    private CourseSectionResponse toCourseSectionResponse(CourseSection s) {
-        return CourseSectionResponse.builder()
+    private CourseSectionOutlineResponse toCourseSectionResponse(CourseSection s, Long courseId,
+                                                                 Curriculum<CourseSection, LessonOutline, LessonResource> curriculum) {
+        return CourseSectionOutlineResponse.builder()
                 .sectionID(s.getSectionID())
-                .courseID(s.getCourse().getCourseID())
+                .courseID(courseId)
                 .title(s.getTitle())
                 .description(s.getDescription())
                 .orderIndex(s.getOrderIndex())
-                .lessons(s.getLessons() != null
-                        ? s.getLessons().stream().map(this::toLessonResponse).toList()
-                        : null)
+                .lessons(curriculum.lessonsOf(s.getSectionID()).stream()
+                        .map(l -> toLessonResponse(l, curriculum)).toList())
                 .build();
     }
 
@@ -130,15 +252,16 @@ public class CourseService {
 
     private record RatingAgg(double avg, int total) {}
 
-    private RatingAgg aggregateRating(Long courseId) {
-        var reviews = courseReviewRepository.findByCourse_CourseID(courseId);
-        if (reviews == null || reviews.isEmpty()) return new RatingAgg(0.0, 0);
+    // Rating lấy từ CourseStats (O(1)), làm tròn 1 chữ số khi hiển thị
+    private static RatingAgg toRatingAgg(CourseStats stats) {
+        if (stats == null || stats.getReviewCount() == 0) return new RatingAgg(0.0, 0);
+        double avg = Math.round(stats.getAvgRating() * 10.0) / 10.0; // 1 chữ số
+        return new RatingAgg(avg, stats.getReviewCount().intValue());
+    }
 
-        int total = reviews.size();
-        double sum = reviews.stream().mapToDouble(r -> r.getRating() == null ? 0 : r.getRating()).sum();
-        double avg = total == 0 ? 0.0 : sum / total;
-        avg = Math.round(avg * 10.0) / 10.0; // 1 chữ số
-        return new RatingAgg(avg, total);
+    private CourseStats loadStats(Long courseId) {
+        CourseStats stats = courseStatsService.getStats(List.of(courseId)).get(courseId);
+        return stats != null ? stats : courseStatsService.computeStats(List.of(courseId)).get(courseId);
     }
 
     private List<CourseReviewResponse> mapReviews(Long courseId) {
@@ -158,57 +281,44 @@ public class CourseService {
         }).toList();
     }
 
-    // =================== Content Summary (Video/Test/Res) ============
+    // ========================= COURSE DETAIL DTO =====================
 
-    private CourseContentSummaryResponse summarizeCourseContent(Course c) {
-        double totalVideoHours = 0.0;
-        int totalPracticeTests = 0;
-        int totalArticles = 0;
-        int totalResources = 0;
+    private CourseDetailResponse toCourseResponse(Course c, User user) {
+        Long courseId = c.getCourseID();
+        long version = c.currentContentVersion();
 
-        if (c.getSections() != null) {
-            for (CourseSection section : c.getSections()) {
-                if (section.getLessons() == null) continue;
-                for (Lesson l : section.getLessons()) {
-                    if (l.getLessonType() == LessonType.Video && l.getDuration() != null) {
-                        totalVideoHours += l.getDuration() / 60.0; // phút → giờ
-                    }
-                    if (l.getLessonType() == LessonType.Test) totalPracticeTests++;
-                    if (l.getLessonType() == LessonType.Reading) totalArticles++;
-                    if (l.getResources() != null) totalResources += l.getResources().size();
-                }
-            }
+        CourseDetailResponse base = courseDetailCache.get(courseId, version);
+        if (base == null) {
+            base = toCourseDetailBase(c);
+            courseDetailCache.put(courseId, version, base);
         }
-        totalVideoHours = Math.round(totalVideoHours * 10.0) / 10.0;
-
-        return CourseContentSummaryResponse.builder()
-                .totalVideoHours(totalVideoHours)
-                .totalPracticeTests(totalPracticeTests)
-                .totalArticles(totalArticles)
-                .totalDownloadableResources(totalResources)
-                .build();
+        return overlayUserAndStats(base, c, user);
     }
 
-    // ========================= COURSE DETAIL DTO =====================
+    // Phần theo user (wishlist/purchased) + stats (learner/rating) gắn thêm mỗi request
+    private CourseDetailResponse overlayUserAndStats(CourseDetailResponse base, Course c, User user) {
+        Membership membership = user != null ? courseMembershipCache.get(user.getUserID()) : null;
+        boolean isWishListed = membership != null && membership.isWishListed(c.getCourseID());
+        boolean isPurchased = membership != null && membership.isPurchased(c.getCourseID());
 
-    private CourseDetailResponse toCourseResponse(Course c, User user) {
-        boolean isWishListed = (user != null) && wishlistRepository.existsByUserAndCourse(user, c);
-
-        boolean isPurchased = false;
-        if (user != null) {
-            var enrollmentOpt = enrollmentRepository
-                    .findByUser_UserIDAndCourse_CourseID(user.getUserID(), c.getCourseID());
-            if (enrollmentOpt.isPresent()) {
-                var st = enrollmentOpt.get().getStatus();
-                isPurchased = (st == EnrollmentStatus.Active || st == EnrollmentStatus.Completed);
-            }
-        }
+        CourseStats stats = loadStats(c.getCourseID());
+        var rating = toRatingAgg(stats);
+
+        return base.toBuilder()
+                .isWishListed(user != null ? isWishListed : null) // guest -> null
+                .isPurchased(isPurchased)                        // luôn boolean
+                .learnerCount(stats.getLearnerCount())
+                .avgRating(rating.avg())
+                .totalRatings(rating.total())
+                .build();
+    }
 
+    // Phần không phụ thuộc user – được cache theo (courseId, contentVersion)
+    private CourseDetailResponse toCourseDetailBase(Course c) {
         Long courseId = c.getCourseID();
-        long learnerCount = enrollmentRepository.countByCourse_CourseID(courseId);
-        var rating = aggregateRating(courseId);
         var tutorUser = (c.getTutor() != null) ? c.getTutor().getUser() : null;
         var tutor = c.getTutor();
+        var curriculum = curriculumLoader.loadCourseOutline(courseId);
 
         return CourseDetailResponse.builder()
                 .id(courseId)
@@ -229,13 +339,13 @@ public class CourseService {
                                 .sorted(Comparator.comparing(CourseObjective::getOrderIndex))
                                 .map(CourseObjective::getObjectiveText)
                                 .toList())
-                .section(c.getSections() != null
-                        ? c.getSections().stream().map(this::toCourseSectionResponse).toList()
-                        : null)
-                .contentSummary(summarizeCourseContent(c))
-                .isWishListed(user != null ? isWishListed : null) // guest -> null
-                .isPurchased(isPurchased)                        // luôn boolean
-                .learnerCount(learnerCount)
+                .section(curriculum.sections().stream()
+                        .map(sec -> toCourseSectionResponse(sec, courseId, curriculum))
+                        .toList())
+                // Snapshot theo contentVersion chỉ đúng với course Approved (version chỉ bump khi duyệt)
+                .contentSummary(c.getStatus() == CourseStatus.Approved
+                        ? courseContentSummaryService.getSummary(c)
+                        : courseContentSummaryService.computeLive(c))
                 .tutorID(tutor != null ? tutor.getTutorID() : null)
                 .tutorAvatarURL(tutorUser != null ? tutorUser.getAvatarURL() : null)
                 .tutorAddress(tutorUser != null
@@ -243,31 +353,55 @@ public class CourseService {
                         ? tutorUser.getAddress() + ", " + tutorUser.getCountry()
                         : (tutorUser.getAddress() != null ? tutorUser.getAddress() : tutorUser.getCountry()))
                         : null)
-                .avgRating(rating.avg())
-                .totalRatings(rating.total())
                 .createdAt(c.getCreatedAt())
                 .review(mapReviews(courseId))
                 .build();
     }
 
-    // ========================= COURSE LIST DTO =======================
+    // ==================== Catalog aggregates (batch) ================
+
+    /**
+     * Số liệu cho cả trang catalog, load bằng số query cố định
+     * (không phụ thuộc số course): learner count, rating.
+     * Wishlist / purchased lấy từ membership của user (cache), guest -> null.
+     */
+    private record CatalogAggregates(
+            Map<Long, CourseStats> stats,
+            Membership membership
+    ) {}
+
+    private CatalogAggregates loadCatalogAggregates(List<Long> courseIds, User user) {
+        Map<Long, CourseStats> stats = new HashMap<>(courseStatsService.getStats(courseIds));
+        List<Long> missing = courseIds.stream().filter(id -> !stats.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            stats.putAll(courseStatsService.computeStats(missing));
+        }
+
+        Membership membership = user != null ? courseMembershipCache.get(user.getUserID()) : null;
+        return new CatalogAggregates(stats, membership);
+    }
 
-    private CourseResponse toOnlyCourseResponse(Course c, User user) {
-        boolean isWishListed = (user != null) && wishlistRepository.existsByUserAndCourse(user, c);
+    private List<CourseResponse> toCourseCards(List<Course> courses, User user) {
+        if (courses.isEmpty()) return List.of();
 
-        boolean isPurchased = false;
-        if (user != null) {
-            var enrollmentOpt = enrollmentRepository
-                    .findByUser_UserIDAndCourse_CourseID(user.getUserID(), c.getCourseID());
-            if (enrollmentOpt.isPresent()) {
-                var st = enrollmentOpt.get().getStatus();
-                isPurchased = (st == EnrollmentStatus.Active || st == EnrollmentStatus.Completed);
-            }
-        }
+        List<Long> courseIds = courses.stream().map(Course::getCourseID).toList();
+        CatalogAggregates agg = loadCatalogAggregates(courseIds, user);
 
+        return courses.stream()
+                .map(c -> toOnlyCourseResponse(c, user, agg))
+                .toList();
+    }
+
+    // ========================= COURSE LIST DTO =======================
+
+    private CourseResponse toOnlyCourseResponse(Course c, User user, CatalogAggregates agg) {
         Long courseId = c.getCourseID();
-        long learnerCount = enrollmentRepository.countByCourse_CourseID(courseId);
-        var rating = aggregateRating(courseId);
+        boolean isWishListed = agg.membership() != null && agg.membership().isWishListed(courseId);
+        boolean isPurchased = agg.membership() != null && agg.membership().isPurchased(courseId);
+
+        CourseStats stats = agg.stats().get(courseId);
+        long learnerCount = stats != null ? stats.getLearnerCount() : 0L;
+        var rating = toRatingAgg(stats);
         var tutorUser = (c.getTutor() != null) ? c.getTutor().getUser() : null;
 
         return CourseResponse.builder()
@@ -0,0 +1,180 @@
+package edu.lms.service;
+
+import edu.lms.entity.CourseStats;
+import edu.lms.repository.CourseRepository;
+import edu.lms.repository.CourseReviewRepository;
+import edu.lms.repository.CourseStatsRepository;
+import edu.lms.repository.EnrollmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Duy trì read model CourseStats:
+ *  - review tạo/xóa  -> addReview / removeReview
+ *  - enrollment mới  -> addLearner
+ *  - rebuildAll()    -> tính lại toàn bộ từ CourseReview + Enrollment (sửa drift)
+ * Nếu course chưa có row stats thì tính lại riêng course đó rồi insert.
+ * Mọi course phải có 1 row (catalog INNER JOIN course_stats để sort theo cột có index):
+ * tạo khi course được tạo / approve, khởi động bổ sung row còn thiếu.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CourseStatsService {
+
+    private final CourseStatsRepository courseStatsRepository;
+    private final CourseRepository courseRepository;
+    private final CourseReviewRepository courseReviewRepository;
+    private final EnrollmentRepository enrollmentRepository;
+
+    // ======================================================
+    // INCREMENTAL UPDATE
+    // ======================================================
+    @Transactional
+    public void addReview(Long courseId, Double rating) {
+        int updated = courseStatsRepository.addReview(courseId, ratingOrZero(rating), LocalDateTime.now());
+        if (updated == 0) recompute(courseId);
+    }
+
+    @Transactional
+    public void removeReview(Long courseId, Double rating) {
+        int updated = courseStatsRepository.removeReview(courseId, ratingOrZero(rating), LocalDateTime.now());
+        if (updated == 0) recompute(courseId);
+    }
+
+    @Transactional
+    public void addLearner(Long courseId) {
+        int updated = courseStatsRepository.incrementLearnerCount(courseId, LocalDateTime.now());
+        if (updated == 0) recompute(courseId);
+    }
+
+    // ======================================================
+    // READ
+    // ======================================================
+    @Transactional(readOnly = true)
+    public Map<Long, CourseStats> getStats(Collection<Long> courseIds) {
+        if (courseIds.isEmpty()) return Map.of();
+        return courseStatsRepository.findAllById(courseIds).stream()
+                .collect(Collectors.toMap(CourseStats::getCourseID, Function.identity()));
+    }
+
+    /**
+     * Stats cho các course chưa có row (vd: chưa rebuild) – tính trực tiếp
+     * bằng grouped query, không ghi DB.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, CourseStats> computeStats(List<Long> courseIds) {
+        if (courseIds.isEmpty()) return Map.of();
+        return buildStats(courseIds,
+                enrollmentRepository.countByCourseIds(courseIds),
+                courseReviewRepository.sumRatingByCourseIds(courseIds));
+    }
+
+    // ======================================================
+    // REBUILD
+    // ======================================================
+    @Transactional
+    public CourseStats recompute(Long courseId) {
+        CourseStats stats = computeStats(List.of(courseId)).get(courseId);
+        return courseStatsRepository.save(stats);
+    }
+
+    /**
+     * Tính lại toàn bộ stats bằng 2 grouped query.
+     * @return số course có stats bị lệch so với dữ liệu gốc
+     */
+    @Transactional
+    public int rebuildAll() {
+        List<Long> courseIds = courseRepository.findAllCourseIds();
+        Map<Long, CourseStats> fresh = buildStats(courseIds,
+                enrollmentRepository.countGroupByCourse(),
+                courseReviewRepository.sumRatingGroupByCourse());
+        Map<Long, CourseStats> current = getStats(courseIds);
+
+        int drifted = 0;
+        List<CourseStats> toSave = new ArrayList<>();
+        for (CourseStats f : fresh.values()) {
+            CourseStats c = current.get(f.getCourseID());
+            if (c != null
+                    && Objects.equals(c.getReviewCount(), f.getReviewCount())
+                    && Objects.equals(c.getLearnerCount(), f.getLearnerCount())
+                    && Math.abs(c.getRatingSum() - f.getRatingSum()) < 1e-9) {
+                continue;
+            }
+            drifted++;
+            toSave.add(f);
+        }
+        courseStatsRepository.saveAll(toSave);
+
+        log.info("[COURSE STATS] Rebuilt {} courses, {} drifted/missing", courseIds.size(), drifted);
+        return drifted;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initIfEmpty() {
+        int backfilled = courseRepository.backfillCreatedAt(LocalDateTime.now());
+        if (backfilled > 0) {
+            log.info("[COURSE STATS] Backfilled createdAt of {} courses", backfilled);
+        }
+        if (courseStatsRepository.count() == 0) {
+            rebuildAll();
+            return;
+        }
+        List<Long> missing = courseRepository.findCourseIdsWithoutStats();
+        if (!missing.isEmpty()) {
+            courseStatsRepository.saveAll(computeStats(missing).values());
+            log.info("[COURSE STATS] Created stats for {} courses without a row", missing.size());
+        }
+    }
+
+    /**
+     * Đảm bảo course có row stats (không đụng tới row đã có).
+     */
+    @Transactional
+    public void ensureStats(Long courseId) {
+        if (!courseStatsRepository.existsById(courseId)) {
+            recompute(courseId);
+        }
+    }
+
+    // ======================================================
+    // HELPERS
+    // ======================================================
+    private Map<Long, CourseStats> buildStats(List<Long> courseIds,
+                                              List<Object[]> learnerRows,
+                                              List<Object[]> ratingRows) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, CourseStats> result = new HashMap<>();
+        for (Long id : courseIds) {
+            result.put(id, CourseStats.builder().courseID(id).updatedAt(now).build());
+        }
+        for (Object[] row : learnerRows) {
+            CourseStats s = result.get((Long) row[0]);
+            if (s != null) s.setLearnerCount(((Number) row[1]).longValue());
+        }
+        for (Object[] row : ratingRows) {
+            CourseStats s = result.get((Long) row[0]);
+            if (s == null) continue;
+            double sum = row[1] == null ? 0.0 : ((Number) row[1]).doubleValue();
+            long count = ((Number) row[2]).longValue();
+            s.setRatingSum(sum);
+            s.setReviewCount(count);
+            s.setAvgRating(count == 0 ? 0.0 : sum / count);
+        }
+        return result;
+    }
+
+    private static double ratingOrZero(Double rating) {
+        return rating == null ? 0.0 : rating;
+    }
+}
@@ -0,0 +1,133 @@
+package edu.lms.service;
+
+import edu.lms.entity.*;
+import edu.lms.repository.*;
+import edu.lms.repository.LessonRepository.LessonOutline;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Load cây curriculum (section -> lesson -> resource) của 1 course / 1 draft
+ * bằng đúng 3 query (batch theo danh sách id), thay vì đi lazy collection
+ * (1 query / section + 1 query / lesson).
+ * Dùng chung cho course detail public, student course detail và admin curriculum view.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = PRIVATE, makeFinal = true)
+public class CurriculumLoader {
+
+    CourseSectionRepository courseSectionRepository;
+    LessonRepository lessonRepository;
+    LessonResourceRepository lessonResourceRepository;
+    CourseSectionDraftRepository courseSectionDraftRepository;
+    LessonDraftRepository lessonDraftRepository;
+    LessonResourceDraftRepository lessonResourceDraftRepository;
+
+    /**
+     * Section đã sort theo orderIndex; lesson theo section (sort orderIndex); resource theo lesson.
+     */
+    public record Curriculum<S, L, R>(
+            List<S> sections,
+            Map<Long, List<L>> lessonsBySection,
+            Map<Long, List<R>> resourcesByLesson
+    ) {
+        public List<L> lessonsOf(Long sectionId) {
+            return lessonsBySection.getOrDefault(sectionId, List.of());
+        }
+
+        public List<R> resourcesOf(Long lessonId) {
+            return resourcesByLesson.getOrDefault(lessonId, List.of());
+        }
+    }
+
+    // ====================== LIVE COURSE ======================
+    @Transactional(readOnly = true)
+    public Curriculum<CourseSection, Lesson, LessonResource> loadCourse(Long courseId) {
+        List<CourseSection> sections = courseSectionRepository.findByCourse_CourseID(courseId).stream()
+                .sorted(Comparator.comparing(CourseSection::getOrderIndex, Comparator.nullsLast(Integer::compareTo)))
+                .toList();
+        if (sections.isEmpty()) return new Curriculum<>(List.of(), Map.of(), Map.of());
+
+        List<Long> sectionIds = sections.stream().map(CourseSection::getSectionID).toList();
+        List<Lesson> lessons = lessonRepository.findBySection_SectionIDIn(sectionIds);
+        Map<Long, List<Lesson>> lessonsBySection = groupSorted(lessons,
+                l -> l.getSection().getSectionID(), Lesson::getOrderIndex);
+
+        Map<Long, List<LessonResource>> resourcesByLesson = Map.of();
+        if (!lessons.isEmpty()) {
+            List<Long> lessonIds = lessons.stream().map(Lesson::getLessonID).toList();
+            resourcesByLesson = lessonResourceRepository.findByLesson_LessonIDIn(lessonIds).stream()
+                    .collect(Collectors.groupingBy(r -> r.getLesson().getLessonID()));
+        }
+        return new Curriculum<>(sections, lessonsBySection, resourcesByLesson);
+    }
+
+    /**
+     * Giống loadCourse nhưng lesson chỉ là outline (không đọc content @Lob),
+     * dùng cho course detail public / student detail.
+     */
+    @Transactional(readOnly = true)
+    public Curriculum<CourseSection, LessonOutline, LessonResource> loadCourseOutline(Long courseId) {
+        List<CourseSection> sections = courseSectionRepository.findByCourse_CourseID(courseId).stream()
+                .sorted(Comparator.comparing(CourseSection::getOrderIndex, Comparator.nullsLast(Integer::compareTo)))
+                .toList();
+        if (sections.isEmpty()) return new Curriculum<>(List.of(), Map.of(), Map.of());
+
+        List<Long> sectionIds = sections.stream().map(CourseSection::getSectionID).toList();
+        List<LessonOutline> lessons = lessonRepository.findOutlinesBySectionIds(sectionIds);
+        Map<Long, List<LessonOutline>> lessonsBySection = groupSorted(lessons,
+                LessonOutline::getSectionID, LessonOutline::getOrderIndex);
+
+        Map<Long, List<LessonResource>> resourcesByLesson = Map.of();
+        if (!lessons.isEmpty()) {
+            List<Long> lessonIds = lessons.stream().map(LessonOutline::getLessonID).toList();
+            resourcesByLesson = lessonResourceRepository.findByLesson_LessonIDIn(lessonIds).stream()
+                    .collect(Collectors.groupingBy(r -> r.getLesson().getLessonID()));
+        }
+        return new Curriculum<>(sections, lessonsBySection, resourcesByLesson);
+    }
+
+    // ====================== DRAFT ======================
+    @Transactional(readOnly = true)
+    public Curriculum<CourseSectionDraft, LessonDraft, LessonResourceDraft> loadDraft(Long draftId) {
+        List<CourseSectionDraft> sections = courseSectionDraftRepository.findByDraft_DraftID(draftId).stream()
+                .sorted(Comparator.comparing(CourseSectionDraft::getOrderIndex, Comparator.nullsLast(Integer::compareTo)))
+                .toList();
+        if (sections.isEmpty()) return new Curriculum<>(List.of(), Map.of(), Map.of());
+
+        List<Long> sectionIds = sections.stream().map(CourseSectionDraft::getSectionDraftID).toList();
+        List<LessonDraft> lessons = lessonDraftRepository.findBySectionDraft_SectionDraftIDIn(sectionIds);
+        Map<Long, List<LessonDraft>> lessonsBySection = groupSorted(lessons,
+                l -> l.getSectionDraft().getSectionDraftID(), LessonDraft::getOrderIndex);
+
+        Map<Long, List<LessonResourceDraft>> resourcesByLesson = Map.of();
+        if (!lessons.isEmpty()) {
+            List<Long> lessonIds = lessons.stream().map(LessonDraft::getLessonDraftID).toList();
+            resourcesByLesson = lessonResourceDraftRepository.findByLessonDraft_LessonDraftIDIn(lessonIds).stream()
+                    .collect(Collectors.groupingBy(r -> r.getLessonDraft().getLessonDraftID()));
+        }
+        return new Curriculum<>(sections, lessonsBySection, resourcesByLesson);
+    }
+
+    // parentId đọc id từ proxy LAZY (getSection()/getSectionDraft()) -> không trigger thêm query
+    private static <T> Map<Long, List<T>> groupSorted(List<T> items,
+                                                      Function<T, Long> parentId,
+                                                      Function<T, Integer> orderIndex) {
+        Map<Long, List<T>> result = new HashMap<>();
+        for (T item : items) {
+            result.computeIfAbsent(parentId.apply(item), k -> new ArrayList<>()).add(item);
+        }
+        Comparator<T> byOrder = Comparator.comparing(orderIndex, Comparator.nullsLast(Integer::compareTo));
+        result.values().forEach(list -> list.sort(byOrder));
+        return result;
+    }
+}
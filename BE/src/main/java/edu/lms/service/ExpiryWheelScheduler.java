@@ -0,0 +1,177 @@
+package edu.lms.service;
+
+import edu.lms.cache.HierarchicalTimingWheel;
+import edu.lms.repository.BookingPlanSlotRepository;
+import edu.lms.repository.PaymentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hết hạn slot lock (BookingPlanSlot.expiresAt) và payment PENDING (Payment.expiresAt)
+ * bằng timing wheel in-memory thay vì poll DB mỗi phút:
+ *  - Nạp deadline từ DB lúc startup, thêm deadline mới sau commit khi lock slot / tạo payment.
+ *  - Mỗi tick (mặc định 1s) lấy các id tới hạn, release bằng vài câu UPDATE / DELETE theo tập id.
+ *    Tick chạy trên thread riêng, không dùng chung scheduler của @Scheduled
+ *    (job dài như materializeAll / rebuild index không làm trễ việc nhả slot).
+ *  - Query luôn kèm điều kiện status + expiresAt nên deadline cũ (đã Paid / đã gia hạn) vô hại.
+ * BookingSlotCleanupService / PaymentScheduler vẫn chạy thưa để reconcile (restart, lỡ hook...).
+ */
+@Slf4j
+@Component
+public class ExpiryWheelScheduler {
+
+    // Tránh IN () rỗng
+    private static final List<Long> NONE = List.of(-1L);
+
+    private final BookingPlanSlotRepository bookingPlanSlotRepository;
+    private final PaymentRepository paymentRepository;
+    private final TutorAvailabilityIndex tutorAvailabilityIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long tickMs;
+
+    private final HierarchicalTimingWheel slotWheel;
+    private final HierarchicalTimingWheel paymentWheel;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "expiry-wheel");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ExpiryWheelScheduler(
+            BookingPlanSlotRepository bookingPlanSlotRepository,
+            PaymentRepository paymentRepository,
+            TutorAvailabilityIndex tutorAvailabilityIndex,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.expiry.tick-ms:1000}") long tickMs,
+            @Value("${app.expiry.wheel-size:64}") int wheelSize,
+            @Value("${app.expiry.levels:3}") int levels,
+            @Value("${app.expiry.chunk-size:500}") int chunkSize
+    ) {
+        this.bookingPlanSlotRepository = bookingPlanSlotRepository;
+        this.paymentRepository = paymentRepository;
+        this.tutorAvailabilityIndex = tutorAvailabilityIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.tickMs = tickMs;
+        long now = System.currentTimeMillis();
+        this.slotWheel = new HierarchicalTimingWheel(tickMs, wheelSize, levels, now);
+        this.paymentWheel = new HierarchicalTimingWheel(tickMs, wheelSize, levels, now);
+    }
+
+    // ======================================================
+    // REGISTER DEADLINES
+    // ======================================================
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFromDatabase() {
+        bookingPlanSlotRepository.findLockDeadlines()
+                .forEach(row -> slotWheel.schedule((Long) row[0], toMillis((LocalDateTime) row[1])));
+        paymentRepository.findPendingDeadlines()
+                .forEach(row -> paymentWheel.schedule((Long) row[0], toMillis((LocalDateTime) row[1])));
+        log.info("[EXPIRY] Loaded {} slot locks and {} pending payments", slotWheel.size(), paymentWheel.size());
+        ticker.scheduleWithFixedDelay(this::safeTick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Đăng ký deadline cho slot vừa lock (sau khi transaction commit).
+     */
+    public void onSlotsLocked(Collection<Long> slotIds, LocalDateTime expiresAt) {
+        if (slotIds == null || slotIds.isEmpty() || expiresAt == null) return;
+        List<Long> ids = List.copyOf(slotIds);
+        long deadline = toMillis(expiresAt);
+        AfterCommit.run(() -> ids.forEach(id -> slotWheel.schedule(id, deadline)));
+    }
+
+    /**
+     * Đăng ký / cập nhật deadline cho payment PENDING (sau khi transaction commit).
+     */
+    public void onPaymentPending(Long paymentId, LocalDateTime expiresAt) {
+        if (paymentId == null || expiresAt == null) return;
+        long deadline = toMillis(expiresAt);
+        AfterCommit.run(() -> paymentWheel.schedule(paymentId, deadline));
+    }
+
+    // ======================================================
+    // TICK
+    // ======================================================
+    // Exception lọt ra ngoài sẽ huỷ lịch của ScheduledExecutorService -> chỉ log, tick sau chạy tiếp
+    private void safeTick() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            log.error("[EXPIRY] Tick failed", e);
+        }
+    }
+
+    public void tick() {
+        long now = System.currentTimeMillis();
+        List<Long> dueSlots = slotWheel.advance(now);
+        List<Long> duePayments = paymentWheel.advance(now);
+        if (dueSlots.isEmpty() && duePayments.isEmpty()) return;
+
+        int expiredPayments = 0;
+        int releasedSlots = 0;
+        for (int i = 0; i < duePayments.size(); i += chunkSize) {
+            List<Long> chunk = duePayments.subList(i, Math.min(i + chunkSize, duePayments.size()));
+            int[] counts = release(NONE, chunk);
+            expiredPayments += counts[0];
+            releasedSlots += counts[1];
+        }
+        for (int i = 0; i < dueSlots.size(); i += chunkSize) {
+            List<Long> chunk = dueSlots.subList(i, Math.min(i + chunkSize, dueSlots.size()));
+            releasedSlots += release(chunk, NONE)[1];
+        }
+
+        log.info("[EXPIRY] Due: {} slots, {} payments -> expired {} payments, released {} slots",
+                dueSlots.size(), duePayments.size(), expiredPayments, releasedSlots);
+    }
+
+    /**
+     * Expire 1 chunk payment PENDING quá hạn + release / xoá slot lock của chúng (sweep của PaymentScheduler).
+     * @return {số payment expired, số slot released / deleted}
+     */
+    public int[] expirePayments(List<Long> paymentIds) {
+        if (paymentIds == null || paymentIds.isEmpty()) return new int[2];
+        return release(NONE, paymentIds);
+    }
+
+    // 1 transaction / chunk: expire payment -> release slot của payment đó + slot lock hết hạn
+    private int[] release(List<Long> slotIds, List<Long> paymentIds) {
+        int[] result = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            int payments = paymentIds == NONE ? 0 : paymentRepository.expirePending(paymentIds, now);
+
+            List<Long> tutorIds = bookingPlanSlotRepository.findTutorIdsBySlotOrPayment(slotIds, paymentIds);
+            int slots = bookingPlanSlotRepository.releaseExpiredLocks(slotIds, paymentIds, now)
+                    + bookingPlanSlotRepository.deleteExpiredPastLocks(slotIds, paymentIds, now);
+
+            // Bulk UPDATE / DELETE không đi qua entity listener
+            if (slots > 0) tutorIds.forEach(tutorAvailabilityIndex::onTutorChanged);
+            return new int[]{payments, slots};
+        });
+        return result != null ? result : new int[2];
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,46 @@
+package edu.lms.service;
+
+import edu.lms.exception.AppException;
+import edu.lms.exception.ErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encode/decode cursor cho keyset pagination.
+ * Cursor là chuỗi base64url (không padding) của các phần tử nối bằng '|',
+ * client chỉ cần gửi lại nguyên văn, không cần hiểu nội dung.
+ */
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(Object... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) sb.append(SEPARATOR);
+            sb.append(parts[i] == null ? "" : parts[i].toString());
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param expectedParts số phần tử mong đợi, sai số lượng -> INVALID_CURSOR
+     */
+    public static String[] decode(String cursor, int expectedParts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != expectedParts) {
+                throw new AppException(ErrorCode.INVALID_CURSOR);
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+}
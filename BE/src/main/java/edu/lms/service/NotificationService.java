@@ -4,6 +4,7 @@ import edu.lms.entity.Notification;
 import edu.lms.enums.NotificationType;
 import edu.lms.repository.NotificationRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -14,6 +15,12 @@ import java.util.List;
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String INSERT_NOTIFICATION_SQL = """
+            INSERT INTO notifications (user_id, type, title, content, primary_action_url, is_read, created_at)
+            VALUES (?, ?, ?, ?, ?, false, ?)
+            """;
 
     public void send(Long userId, String title, String content, NotificationType type, String url) {
         Notification n = Notification.builder()
@@ -47,6 +54,26 @@ public class NotificationService {
         notificationRepository.save(n);
     }
 
+    /**
+     * Gửi nhiều thông báo bằng 1 batch insert (IDENTITY không cho Hibernate batch insert).
+     * Trả về số thông báo đã gửi.
+     */
+    public int sendAll(List<Notification> notifications) {
+        if (notifications.isEmpty()) return 0;
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_NOTIFICATION_SQL, notifications.stream()
+                .map(n -> new Object[]{
+                        n.getUserId(),
+                        n.getType().name(),
+                        n.getTitle(),
+                        n.getContent(),
+                        n.getPrimaryActionUrl(),
+                        n.getCreatedAt() != null ? n.getCreatedAt() : now
+                })
+                .toList());
+        return notifications.size();
+    }
+
     // Lấy tất cả thông báo của 1 user, sort mới nhất trước
     public List<Notification> getNotificationByUserId(Long userId) {
         return notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
@@ -0,0 +1,267 @@
+package edu.lms.service;
+
+import edu.lms.dto.response.PayOSClientMetricsResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bọc mọi lời gọi HTTP tới PayOS:
+ *  - Bulkhead: tối đa maxConcurrent call cùng lúc, chờ slot tối đa maxWaitMs rồi từ chối
+ *    (PayOS chậm chỉ chiếm 1 phần request thread, không kéo sập cả server).
+ *  - Circuit breaker: tỉ lệ lỗi trong windowSize call gần nhất >= failureRateThreshold -> OPEN,
+ *    từ chối ngay trong openMs; hết hạn -> HALF_OPEN cho 1 call thử, thành công -> CLOSED, lỗi -> OPEN lại.
+ *    Lỗi 4xx là lỗi request, không tính là PayOS lỗi.
+ *  - Metrics theo operation: số call / lỗi / bị từ chối, latency (histogram) cho /admin/payos/metrics.
+ */
+@Slf4j
+@Component
+public class PayOSCallGuard {
+
+    /**
+     * Call bị từ chối (breaker OPEN hoặc bulkhead đầy), PayOS không được gọi
+     */
+    public static class RejectedCallException extends RuntimeException {
+        public RejectedCallException(String message) {
+            super(message);
+        }
+    }
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // Cận trên (ms) của các bucket latency, bucket cuối = phần còn lại
+    private static final long[] LATENCY_BOUNDS_MS = {50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final Semaphore bulkhead;
+    private final long maxWaitMs;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openMs;
+
+    // Trạng thái breaker, truy cập trong synchronized (this)
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    public PayOSCallGuard(
+            @Value("${payos.client.max-concurrent:20}") int maxConcurrent,
+            @Value("${payos.client.max-wait-ms:200}") long maxWaitMs,
+            @Value("${payos.client.window-size:20}") int windowSize,
+            @Value("${payos.client.minimum-calls:10}") int minimumCalls,
+            @Value("${payos.client.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${payos.client.open-ms:30000}") long openMs
+    ) {
+        this.bulkhead = new Semaphore(maxConcurrent, true);
+        this.maxWaitMs = maxWaitMs;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMs = openMs;
+        this.window = new boolean[windowSize];
+    }
+
+    // ======================================================
+    // CALL
+    // ======================================================
+    public <T> T call(String operation, Supplier<T> action) {
+        OperationStats op = stats.computeIfAbsent(operation, k -> new OperationStats());
+
+        if (!tryEnterBreaker()) {
+            op.rejected.increment();
+            throw new RejectedCallException("PayOS circuit breaker is open");
+        }
+        boolean permitted;
+        try {
+            permitted = bulkhead.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permitted = false;
+        }
+        if (!permitted) {
+            abortTrial();
+            op.rejected.increment();
+            throw new RejectedCallException("PayOS bulkhead is full");
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = action.get();
+            failed = false;
+            return result;
+        } catch (HttpClientErrorException e) {
+            // 4xx: PayOS vẫn sống, lỗi nằm ở request
+            failed = false;
+            throw e;
+        } finally {
+            bulkhead.release();
+            op.record(System.nanoTime() - start, failed);
+            onResult(failed);
+        }
+    }
+
+    public void run(String operation, Runnable action) {
+        call(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // ======================================================
+    // CIRCUIT BREAKER
+    // ======================================================
+    private synchronized boolean tryEnterBreaker() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMs) return false;
+            state = State.HALF_OPEN;
+            log.info("[PAYOS] Circuit breaker HALF_OPEN, sending trial call");
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) return false;
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    // Call thử bị bulkhead từ chối -> cho call sau thử lại
+    private synchronized void abortTrial() {
+        if (state == State.HALF_OPEN) trialInFlight = false;
+    }
+
+    private synchronized void onResult(boolean failed) {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            if (failed) {
+                open("trial call failed");
+            } else {
+                state = State.CLOSED;
+                resetWindow();
+                log.info("[PAYOS] Circuit breaker CLOSED");
+            }
+            return;
+        }
+        if (state == State.OPEN) return;
+
+        if (windowCount == windowSize) {
+            if (window[windowIndex]) windowFailures--;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failed;
+        if (failed) windowFailures++;
+        windowIndex = (windowIndex + 1) % windowSize;
+
+        if (windowCount >= minimumCalls && failureRate() >= failureRateThreshold) {
+            open(String.format("failure rate %.0f%% over last %d calls", failureRate() * 100, windowCount));
+        }
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        resetWindow();
+        log.warn("[PAYOS] Circuit breaker OPEN for {} ms: {}", openMs, reason);
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    private double failureRate() {
+        return windowCount == 0 ? 0 : (double) windowFailures / windowCount;
+    }
+
+    // ======================================================
+    // METRICS
+    // ======================================================
+    private static final class OperationStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder totalLatencyMs = new LongAdder();
+        final AtomicLong maxLatencyMs = new AtomicLong();
+        final LongAdder[] buckets = new LongAdder[LATENCY_BOUNDS_MS.length + 1];
+
+        OperationStats() {
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+
+        void record(long elapsedNanos, boolean failed) {
+            long ms = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            calls.increment();
+            if (failed) failures.increment();
+            totalLatencyMs.add(ms);
+            maxLatencyMs.accumulateAndGet(ms, Math::max);
+            int bucket = 0;
+            while (bucket < LATENCY_BOUNDS_MS.length && ms > LATENCY_BOUNDS_MS[bucket]) bucket++;
+            buckets[bucket].increment();
+        }
+
+        // Cận trên của bucket chứa percentile (ước lượng theo histogram)
+        Long percentileMs(double percentile) {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) return null;
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < LATENCY_BOUNDS_MS.length ? LATENCY_BOUNDS_MS[i] : maxLatencyMs.get();
+                }
+            }
+            return maxLatencyMs.get();
+        }
+    }
+
+    public PayOSClientMetricsResponse snapshot() {
+        List<PayOSClientMetricsResponse.OperationMetrics> operations = new ArrayList<>();
+        stats.forEach((name, op) -> {
+            long calls = op.calls.sum();
+            operations.add(PayOSClientMetricsResponse.OperationMetrics.builder()
+                    .operation(name)
+                    .calls(calls)
+                    .failures(op.failures.sum())
+                    .rejected(op.rejected.sum())
+                    .avgLatencyMs(calls == 0 ? null : op.totalLatencyMs.sum() / calls)
+                    .p50LatencyMs(op.percentileMs(0.50))
+                    .p95LatencyMs(op.percentileMs(0.95))
+                    .p99LatencyMs(op.percentileMs(0.99))
+                    .maxLatencyMs(op.maxLatencyMs.get())
+                    .build());
+        });
+
+        synchronized (this) {
+            return PayOSClientMetricsResponse.builder()
+                    .circuitState(state.name())
+                    .windowFailureRate(failureRate())
+                    .availablePermits(bulkhead.availablePermits())
+                    .operations(operations)
+                    .build();
+        }
+    }
+}
@@ -5,10 +5,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.lms.configuration.PayOSProperties;
 import edu.lms.enums.PaymentType;
+import edu.lms.exception.AppException;
+import edu.lms.exception.ErrorCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import vn.payos.type.CheckoutResponseData;
 import vn.payos.type.ItemData;
@@ -25,7 +28,9 @@ import java.util.Map;
 public class PayOSService {
 
     private final PayOSProperties props;
-    private final RestTemplate rest = new RestTemplate();
+    // RestTemplate dùng chung (pool connection + timeout, xem RestConfig)
+    private final RestTemplate rest;
+    private final PayOSCallGuard callGuard;
 
     private static final ObjectMapper mapper =
             new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -79,8 +84,8 @@ public class PayOSService {
 
             String url = props.getEndpoint() + "/payment-requests";
 
-            ResponseEntity<String> response =
-                    rest.postForEntity(url, new HttpEntity<>(body, headers), String.class);
+            ResponseEntity<String> response = callGuard.call("create-payment-link",
+                    () -> rest.postForEntity(url, new HttpEntity<>(body, headers), String.class));
 
             if (response.getBody() == null) {
                 throw new RuntimeException("Empty response from PayOS");
@@ -101,6 +106,13 @@ public class PayOSService {
 
             return new CheckoutWrapper(checkout, expiredAt);
 
+        } catch (PayOSCallGuard.RejectedCallException e) {
+            log.warn("[PAYOS] Create payment link rejected for paymentId={}: {}", paymentId, e.getMessage());
+            throw new AppException(ErrorCode.PAYMENT_GATEWAY_UNAVAILABLE);
+        } catch (ResourceAccessException e) {
+            // Connect / read timeout
+            log.error("[PAYOS] Create payment link timed out for paymentId={}: {}", paymentId, e.getMessage());
+            throw new AppException(ErrorCode.PAYMENT_GATEWAY_UNAVAILABLE);
         } catch (Exception e) {
             log.error("[PAYOS ERROR] {}", e.getMessage(), e);
             throw new RuntimeException("Failed to create PayOS link", e);
@@ -115,7 +127,7 @@ public class PayOSService {
         }
 
         try {
-            String url = "https://api-merchant.payos.vn/v2/payment-requests/" + paymentLinkId + "/cancel";
+            String url = props.getEndpoint() + "/payment-requests/" + paymentLinkId + "/cancel";
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
@@ -124,8 +136,8 @@ public class PayOSService {
 
             HttpEntity<Void> entity = new HttpEntity<>(headers);
 
-            ResponseEntity<String> response =
-                    rest.exchange(url, HttpMethod.POST, entity, String.class);
+            ResponseEntity<String> response = callGuard.call("cancel-payment-link",
+                    () -> rest.exchange(url, HttpMethod.POST, entity, String.class));
 
             log.info("[PAYOS] Cancel payment link {} -> status {} | body={}",
                     paymentLinkId,
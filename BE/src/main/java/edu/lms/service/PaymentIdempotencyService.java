@@ -0,0 +1,157 @@
+package edu.lms.service;
+
+import edu.lms.cache.BoundedTtlCache;
+import edu.lms.dto.request.PaymentRequest;
+import edu.lms.entity.Payment;
+import edu.lms.enums.PaymentStatus;
+import edu.lms.enums.PaymentType;
+import edu.lms.exception.AppException;
+import edu.lms.exception.ErrorCode;
+import edu.lms.repository.PaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Idempotency-Key cho POST /api/payments/create: retry / double-click cùng key trả lại đúng checkoutUrl cũ,
+ * không tạo thêm payment PENDING, link PayOS hay slot Locked.
+ *  - Response gần đây nằm trong cache TTL ngắn (userId:key), replay chỉ đọc lại payment theo id.
+ *  - Cache miss (hết TTL / instance khác) -> tìm payment theo (userId, idempotencyKey).
+ *  - Request cùng key đang chạy trong instance này được xếp hàng bằng lock theo key;
+ *    giữa các instance, unique (user_id, idempotency_key) của Payments là chốt chặn cuối.
+ * Key đã dùng cho course / booking plan khác -> IDEMPOTENCY_KEY_REUSED.
+ * Chỉ replay khi payment còn PENDING chưa hết hạn hoặc đã PAID (đọc lại status theo id mỗi lần replay);
+ * payment đã EXPIRED / CANCELLED / FAILED -> IDEMPOTENCY_KEY_EXPIRED thay vì trả link chết.
+ */
+@Slf4j
+@Service
+public class PaymentIdempotencyService {
+
+    static final int MAX_KEY_LENGTH = 100;
+
+    private record Replay(PaymentType paymentType, Long targetId, Long paymentId, ResponseEntity<?> response) {}
+
+    private final PaymentService paymentService;
+    private final PaymentRepository paymentRepository;
+    private final BoundedTtlCache<String, Replay> responses;
+    private final long lockWaitMs;
+
+    private final ConcurrentHashMap<String, ReentrantLock> inFlight = new ConcurrentHashMap<>();
+
+    public PaymentIdempotencyService(
+            PaymentService paymentService,
+            PaymentRepository paymentRepository,
+            @Value("${app.cache.payment-idempotency.max-size:10000}") int maxSize,
+            @Value("${app.cache.payment-idempotency.ttl:PT15M}") Duration ttl,
+            @Value("${app.cache.payment-idempotency.lock-wait-ms:10000}") long lockWaitMs
+    ) {
+        this.paymentService = paymentService;
+        this.paymentRepository = paymentRepository;
+        this.responses = new BoundedTtlCache<>("payment-idempotency", maxSize, ttl);
+        this.lockWaitMs = lockWaitMs;
+    }
+
+    public ResponseEntity<?> createPayment(PaymentRequest request, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            // Key chỉ nhận qua header
+            request.setIdempotencyKey(null);
+            return paymentService.createPayment(request);
+        }
+        String key = idempotencyKey.trim();
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new AppException(ErrorCode.INVALID_IDEMPOTENCY_KEY);
+        }
+        request.setIdempotencyKey(key);
+        String cacheKey = request.getUserId() + ":" + key;
+
+        ReentrantLock lock = inFlight.computeIfAbsent(cacheKey, k -> new ReentrantLock());
+        if (!tryLock(lock)) {
+            throw new AppException(ErrorCode.PAYMENT_IN_PROGRESS);
+        }
+        try {
+            Replay cached = responses.get(cacheKey);
+            if (cached != null) {
+                return replay(cacheKey, cached, request, key);
+            }
+
+            Payment existing = paymentRepository.findByUserIdAndIdempotencyKey(request.getUserId(), key).orElse(null);
+            if (existing != null) {
+                return replay(cacheKey, remember(cacheKey, existing), request, key);
+            }
+
+            ResponseEntity<?> response;
+            try {
+                response = paymentService.createPayment(request);
+            } catch (DataIntegrityViolationException e) {
+                // Instance khác vừa tạo payment với cùng key (insert chờ transaction kia commit rồi trùng unique)
+                Payment winner = paymentRepository.findByUserIdAndIdempotencyKey(request.getUserId(), key)
+                        .orElseThrow(() -> e);
+                return replay(cacheKey, remember(cacheKey, winner), request, key);
+            }
+            // Course đã có checkout còn hạn -> createPayment trả lại payment cũ (không mang key này), không cache
+            paymentRepository.findByUserIdAndIdempotencyKey(request.getUserId(), key)
+                    .ifPresent(created -> responses.put(cacheKey, new Replay(
+                            request.getPaymentType(), request.getTargetId(), created.getPaymentID(), response)));
+            return response;
+        } finally {
+            lock.unlock();
+            if (!lock.hasQueuedThreads()) {
+                inFlight.remove(cacheKey, lock);
+            }
+        }
+    }
+
+    private Replay remember(String cacheKey, Payment payment) {
+        if (payment.getCheckoutUrl() == null) {
+            // Payment đã ghi nhưng chưa có link PayOS (transaction kia chưa xong)
+            throw new AppException(ErrorCode.PAYMENT_IN_PROGRESS);
+        }
+        Replay replay = new Replay(payment.getPaymentType(), payment.getTargetId(), payment.getPaymentID(),
+                paymentService.checkoutResponse(payment));
+        responses.put(cacheKey, replay);
+        return replay;
+    }
+
+    private ResponseEntity<?> replay(String cacheKey, Replay replay, PaymentRequest request, String key) {
+        if (replay.paymentType() != request.getPaymentType()
+                || !Objects.equals(replay.targetId(), request.getTargetId())) {
+            throw new AppException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+        }
+        // Payment hết hạn sau vài phút, cache giữ lâu hơn -> luôn kiểm tra lại trạng thái
+        Payment payment = paymentRepository.findById(replay.paymentId()).orElse(null);
+        if (!isReplayable(payment)) {
+            responses.evict(cacheKey);
+            log.info("[PAYMENT] Idempotency-Key {} of user {} points to a {} payment, not replayed",
+                    key, request.getUserId(), payment != null ? payment.getStatus() : "missing");
+            throw new AppException(ErrorCode.IDEMPOTENCY_KEY_EXPIRED);
+        }
+        log.info("[PAYMENT] Replayed Idempotency-Key {} of user {}", key, request.getUserId());
+        return replay.response();
+    }
+
+    private static boolean isReplayable(Payment payment) {
+        if (payment == null) return false;
+        if (payment.getStatus() == PaymentStatus.PAID) return true;
+        return payment.getStatus() == PaymentStatus.PENDING
+                && payment.getExpiresAt() != null
+                && payment.getExpiresAt().isAfter(LocalDateTime.now());
+    }
+
+    private boolean tryLock(ReentrantLock lock) {
+        try {
+            return lock.tryLock(lockWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package edu.lms.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Huỷ link PayOS chạy nền trên pool dùng chung (số thread + hàng đợi có giới hạn).
+ * Caller (thường là AfterCommit, lúc lock lịch tutor vẫn đang giữ) chỉ xếp hàng rồi trả về ngay,
+ * không chờ PayOS. Hàng đợi đầy / lỗi chỉ log: payment đã CANCELLED trong DB,
+ * webhook PAID tới sau vẫn bị chặn và huỷ lại link (PaymentWebhookService).
+ */
+@Slf4j
+@Component
+public class PaymentLinkCanceller {
+
+    private final PayOSService payOSService;
+    private final ThreadPoolExecutor executor;
+
+    public PaymentLinkCanceller(
+            PayOSService payOSService,
+            @Value("${app.payos-cancel.threads:4}") int threads,
+            @Value("${app.payos-cancel.queue-capacity:1000}") int queueCapacity
+    ) {
+        this.payOSService = payOSService;
+        AtomicInteger threadNo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "payos-cancel-" + threadNo.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public void cancelAsync(List<String> paymentLinkIds) {
+        int queued = 0;
+        for (String linkId : paymentLinkIds) {
+            try {
+                executor.execute(() -> cancel(linkId));
+                queued++;
+            } catch (RejectedExecutionException e) {
+                log.warn("[PAYOS CANCEL] Queue full, payment link {} not cancelled", linkId);
+            }
+        }
+        log.info("[PAYOS CANCEL] Queued {} / {} payment links", queued, paymentLinkIds.size());
+    }
+
+    private void cancel(String linkId) {
+        try {
+            payOSService.cancelPaymentLink(linkId);
+        } catch (Exception e) {
+            log.error("[PAYOS CANCEL] Cannot cancel payment link {}", linkId, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,10 +1,10 @@
 package edu.lms.service;
 
-import edu.lms.entity.Payment;
-import edu.lms.enums.PaymentStatus;
+import edu.lms.dto.response.PaymentExpiryMetricsResponse;
 import edu.lms.repository.PaymentRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -13,36 +13,79 @@ import java.util.List;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class PaymentScheduler {
 
     private final PaymentRepository paymentRepository;
-    private final PaymentWebhookService paymentWebhookService; // nếu bạn muốn rollback slot booking
+    private final ExpiryWheelScheduler expiryWheelScheduler;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+
+    // Metrics, chỉ thread scheduler ghi
+    private volatile PaymentExpiryMetricsResponse lastRun = PaymentExpiryMetricsResponse.builder()
+            .runs(0L).totalExpiredPayments(0L).totalReleasedSlots(0L).build();
+
+    public PaymentScheduler(
+            PaymentRepository paymentRepository,
+            ExpiryWheelScheduler expiryWheelScheduler,
+            @Value("${app.expiry.chunk-size:500}") int chunkSize,
+            @Value("${app.expiry.sweep-max-chunks:200}") int maxChunksPerRun
+    ) {
+        this.paymentRepository = paymentRepository;
+        this.expiryWheelScheduler = expiryWheelScheduler;
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+    }
 
     /**
-     * 🕒 Kiểm tra mỗi 1 phút để tự động hết hạn payment PENDING quá 15 phút
+     * 🕒 Sweep dự phòng: payment PENDING quá hạn mà ExpiryWheelScheduler chưa xử lý.
+     * Đọc id theo chunk (keyset paymentID), mỗi chunk 1 transaction gồm vài câu UPDATE / DELETE theo tập id
+     * (payment -> EXPIRED, slot Locked của chúng -> Available hoặc xoá nếu đã qua giờ bắt đầu).
      */
-    @Scheduled(fixedRate = 60000) // 1 phút
+    @Scheduled(fixedDelayString = "${app.expiry.sweep-interval-ms:600000}")
     public void expireOldPayments() {
-        List<Payment> expiredPayments = paymentRepository.findAllByStatusAndExpiresAtBefore(
-                PaymentStatus.PENDING,
-                LocalDateTime.now()
-        );
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
 
-        if (expiredPayments.isEmpty()) return;
+        long afterId = 0L;
+        int chunks = 0;
+        int expiredPayments = 0;
+        int releasedSlots = 0;
+        while (chunks < maxChunksPerRun) {
+            List<Long> ids = paymentRepository.findExpiredPendingIds(now, afterId, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) break;
 
-        for (Payment p : expiredPayments) {
-            p.setStatus(PaymentStatus.EXPIRED);
-            p.setIsPaid(false);
-            paymentRepository.save(p);
+            int[] counts = expiryWheelScheduler.expirePayments(ids);
+            expiredPayments += counts[0];
+            releasedSlots += counts[1];
+            chunks++;
 
-            // Nếu là Booking → rollback luôn slot bị khóa
-            paymentWebhookService.handlePaymentRollback(p, "EXPIRED");
+            afterId = ids.get(ids.size() - 1);
+            if (ids.size() < chunkSize) break;
+        }
+        if (chunks == maxChunksPerRun) {
+            log.warn("[AUTO-EXPIRE] Reached {} chunks in one run, remaining payments deferred to next run", chunks);
+        }
+
+        long duration = System.currentTimeMillis() - started;
+        PaymentExpiryMetricsResponse previous = lastRun;
+        lastRun = PaymentExpiryMetricsResponse.builder()
+                .runs(previous.getRuns() + 1)
+                .lastRunAt(now)
+                .lastDurationMs(duration)
+                .lastChunks(chunks)
+                .lastExpiredPayments(expiredPayments)
+                .lastReleasedSlots(releasedSlots)
+                .totalExpiredPayments(previous.getTotalExpiredPayments() + expiredPayments)
+                .totalReleasedSlots(previous.getTotalReleasedSlots() + releasedSlots)
+                .build();
 
-            log.warn("[AUTO-EXPIRE] Payment {} expired at {} → marked EXPIRED",
-                    p.getOrderCode(), p.getExpiresAt());
+        if (expiredPayments > 0 || releasedSlots > 0) {
+            log.info("[AUTO-EXPIRE] Expired {} payments, released {} slots in {} chunks ({} ms)",
+                    expiredPayments, releasedSlots, chunks, duration);
         }
+    }
 
-        log.info("Auto-expired {} payments", expiredPayments.size());
+    public PaymentExpiryMetricsResponse getMetrics() {
+        return lastRun;
     }
 }
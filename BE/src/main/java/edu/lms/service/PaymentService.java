@@ -11,6 +11,8 @@ import edu.lms.mapper.PaymentMapper;
 import edu.lms.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,6 +20,7 @@ import vn.payos.type.CheckoutResponseData;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -38,7 +41,12 @@ public class PaymentService {
     private final PaymentMapper paymentMapper;
     private final UserPackageRepository userPackageRepository;
     private final SettingRepository settingRepository;
-    private final WithdrawService withdrawService;
+    private final WalletLedgerService walletLedgerService;
+    private final CourseStatsService courseStatsService;
+    private final CourseMembershipCache courseMembershipCache;
+    private final TutorAvailabilityIndex tutorAvailabilityIndex;
+    private final ExpiryWheelScheduler expiryWheelScheduler;
+    private final NotificationService notificationService;
     // =============================
     // TÍNH NET CHO 1 PAYMENT
     // =============================
@@ -76,6 +84,21 @@ public class PaymentService {
             Course course = courseRepository.findById(request.getTargetId())
                     .orElseThrow(() -> new AppException(ErrorCode.COURSE_NOT_FOUND));
 
+            // Đã enroll -> không cho mua lại (unique (userID, courseID) của Enrollments là chốt chặn cuối)
+            if (enrollmentRepository.findByUser_UserIDAndCourse_CourseID(
+                    request.getUserId(), course.getCourseID()).isPresent()) {
+                throw new AppException(ErrorCode.ENROLLMENT_ALREADY_EXISTS);
+            }
+
+            // Đang có link thanh toán còn hạn cho course này (double-click / retry không kèm key) -> trả lại link cũ
+            List<Payment> live = paymentRepository.findLiveCourseCheckouts(
+                    request.getUserId(), course.getCourseID(), LocalDateTime.now(), PageRequest.of(0, 1));
+            if (!live.isEmpty()) {
+                log.info("[PAYMENT] Reusing pending checkout {} for user {} / course {}",
+                        live.get(0).getPaymentID(), request.getUserId(), course.getCourseID());
+                return checkoutResponse(live.get(0));
+            }
+
             amount = course.getPrice();
             tutorId = course.getTutor().getTutorID();
             description = "Course: " + course.getTitle();
@@ -90,6 +113,7 @@ public class PaymentService {
                     .amount(amount)
                     .isPaid(false)
                     .expiresAt(LocalDateTime.now().plusMinutes(3))
+                    .idempotencyKey(request.getIdempotencyKey())
                     .build();
 
             paymentRepository.save(payment);
@@ -119,11 +143,23 @@ public class PaymentService {
             BigDecimal totalAmount = BigDecimal.valueOf(plan.getPricePerHours() * slots.size());
             description = "Slot 1:1 " + plan.getTitle();
 
+            LocalDateTime lockedAt = LocalDateTime.now();
+            List<Long> lockedSlotIds = new ArrayList<>();
             for (SlotRequest s : slots) {
-                boolean taken = bookingPlanSlotRepository.existsByTutorIDAndStartTimeAndEndTime(
-                        plan.getTutorID(), s.getStartTime(), s.getEndTime());
-                if (taken) throw new AppException(ErrorCode.BOOKING_SLOT_NOT_AVAILABLE);
+                // Slot đã được materialize -> lock bằng UPDATE có điều kiện (chỉ 1 request thắng)
+                Long existingSlotId = bookingPlanSlotRepository.findFirstByTutorIDAndStartTimeAndEndTime(
+                                plan.getTutorID(), s.getStartTime(), s.getEndTime())
+                        .map(BookingPlanSlot::getSlotID)
+                        .orElse(null);
+                if (existingSlotId != null) {
+                    int locked = bookingPlanSlotRepository.lockIfAvailable(
+                            List.of(existingSlotId), user.getUserID(), userPackage, lockedAt, lockedAt.plusMinutes(15));
+                    if (locked != 1) throw new AppException(ErrorCode.BOOKING_SLOT_NOT_AVAILABLE);
+                    lockedSlotIds.add(existingSlotId);
+                    continue;
+                }
 
+                // Chưa có slot -> tạo mới; unique (tutorID, startTime) chặn 2 request cùng tạo
                 BookingPlanSlot slot = BookingPlanSlot.builder()
                         .bookingPlanID(plan.getBookingPlanID())
                         .tutorID(plan.getTutorID())
@@ -131,13 +167,20 @@ public class PaymentService {
                         .startTime(s.getStartTime())
                         .endTime(s.getEndTime())
                         .status(SlotStatus.Locked)
-                        .lockedAt(LocalDateTime.now())
-                        .expiresAt(LocalDateTime.now().plusMinutes(15))
+                        .lockedAt(lockedAt)
+                        .expiresAt(lockedAt.plusMinutes(15))
                         .userPackage(userPackage)
                         .build();
-
-                bookingPlanSlotRepository.save(slot);
+                try {
+                    bookingPlanSlotRepository.saveAndFlush(slot);
+                } catch (DataIntegrityViolationException e) {
+                    throw new AppException(ErrorCode.BOOKING_SLOT_NOT_AVAILABLE);
+                }
+                lockedSlotIds.add(slot.getSlotID());
             }
+            expiryWheelScheduler.onSlotsLocked(lockedSlotIds, lockedAt.plusMinutes(15));
+            // lockIfAvailable là bulk UPDATE, không đi qua entity listener
+            tutorAvailabilityIndex.onTutorChanged(plan.getTutorID());
 
             payment = Payment.builder()
                     .userId(user.getUserID())
@@ -149,6 +192,7 @@ public class PaymentService {
                     .amount(totalAmount)
                     .isPaid(false)
                     .expiresAt(LocalDateTime.now().plusMinutes(3))
+                    .idempotencyKey(request.getIdempotencyKey())
                     .build();
 
             paymentRepository.save(payment);
@@ -179,6 +223,7 @@ public class PaymentService {
                 : payment.getExpiresAt();
 
         updatePaymentWithPayOSData(payment, data, expiredAt);
+        expiryWheelScheduler.onPaymentPending(payment.getPaymentID(), payment.getExpiresAt());
 
         return ResponseEntity.ok(Map.of(
                 "checkoutUrl", data.getCheckoutUrl(),
@@ -186,6 +231,16 @@ public class PaymentService {
         ));
     }
 
+    /**
+     * Response của createPayment dựng lại từ payment đã có link PayOS (replay Idempotency-Key / reuse link)
+     */
+    public ResponseEntity<Map<String, Object>> checkoutResponse(Payment payment) {
+        return ResponseEntity.ok(Map.of(
+                "checkoutUrl", payment.getCheckoutUrl(),
+                "expiresAt", payment.getExpiresAt()
+        ));
+    }
+
     // ======================================================
     // CẬP NHẬT PAYMENT SAU KHI TẠO LINK PAYOS
     // ======================================================
@@ -236,7 +291,17 @@ public class PaymentService {
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXIST));
 
-            Enrollment enrollment = Enrollment.builder()
+            Enrollment enrollment = enrollmentRepository
+                    .findByUser_UserIDAndCourse_CourseID(userId, course.getCourseID())
+                    .orElse(null);
+
+            if (enrollment != null) {
+                // 2 payment cùng course đều PAID: không enroll lần 2, không cộng ví tutor, chờ admin hoàn tiền
+                markDuplicateForRefund(payment, course);
+                return;
+            }
+
+            enrollment = Enrollment.builder()
                     .user(user)
                     .course(course)
                     .status(EnrollmentStatus.Active)
@@ -244,19 +309,16 @@ public class PaymentService {
                     .build();
 
             enrollmentRepository.save(enrollment);
+            courseStatsService.addLearner(course.getCourseID());
+            courseMembershipCache.onEnrolled(userId, course.getCourseID());
 
             Tutor tutor = course.getTutor();
             payment.setEnrollment(enrollment);
             payment.setTutorId(tutor.getTutorID());
             paymentRepository.save(payment);
 
-            // CẬP NHẬT SỐ DƯ VÍ TUTOR = TÍNH LẠI THEO THUẬT TOÁN
-            BigDecimal newBalance = withdrawService.calculateCurrentBalance(tutor.getTutorID());
-            tutor.setWalletBalance(newBalance);
-            tutorRepository.save(tutor);
-
-            log.info("[WALLET] Updated wallet_balance for tutor {} = {} after COURSE payment",
-                    tutor.getTutorID(), tutor.getWalletBalance());
+            // CỘNG VÍ TUTOR (ghi sổ ledger, chỉ 1 lần cho mỗi payment)
+            walletLedgerService.creditPayment(payment, tutor.getTutorID());
 
             log.info("[COURSE PAYMENT] User {} enrolled in course '{}'",
                     userId, course.getTitle());
@@ -290,14 +352,9 @@ public class PaymentService {
                 }
             }
 
-            // CẬP NHẬT SỐ DƯ VÍ TUTOR = TÍNH LẠI THEO THUẬT TOÁN
+            // CỘNG VÍ TUTOR (ghi sổ ledger, chỉ 1 lần cho mỗi payment)
             if (tutor != null) {
-                BigDecimal newBalance = withdrawService.calculateCurrentBalance(tutor.getTutorID());
-                tutor.setWalletBalance(newBalance);
-                tutorRepository.save(tutor);
-
-                log.info("[WALLET] Updated wallet_balance for tutor {} = {} after BOOKING payment",
-                        tutor.getTutorID(), tutor.getWalletBalance());
+                walletLedgerService.creditPayment(payment, tutor.getTutorID());
             }
 
             log.info("[BOOKING PAYMENT] User {} confirmed {} slots",
@@ -305,6 +362,24 @@ public class PaymentService {
         }
     }
 
+    private void markDuplicateForRefund(Payment payment, Course course) {
+        payment.setStatus(PaymentStatus.REFUND_PENDING);
+        payment.setTutorId(course.getTutor().getTutorID());
+        paymentRepository.save(payment);
+
+        log.warn("[COURSE PAYMENT] User {} already enrolled in course {} → duplicate payment {} marked REFUND_PENDING",
+                payment.getUserId(), course.getCourseID(), payment.getPaymentID());
+
+        notificationService.sendNotification(
+                payment.getUserId(),
+                "Thanh toán trùng - Chờ hoàn tiền",
+                "Bạn đã sở hữu khoá học '" + course.getTitle() + "' nên thanh toán #" + payment.getPaymentID() +
+                        " bị trùng. Hệ thống sẽ hoàn lại " + payment.getAmount() + " VND cho bạn.",
+                NotificationType.REFUND_AVAILABLE,
+                "/payment-history"
+        );
+    }
+
     // ======================================================
     // LẤY PAYMENT (ADMIN / TUTOR / USER)
     // ======================================================
@@ -0,0 +1,255 @@
+package edu.lms.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.lms.entity.PaymentWebhookEvent;
+import edu.lms.enums.WebhookEventStatus;
+import edu.lms.repository.PaymentWebhookEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Inbox webhook PayOS: controller chỉ verify chữ ký + ghi 1 dòng rồi trả 200 ngay,
+ * phần xử lý (PaymentWebhookService.handleWebhook) chạy trên pool worker có giới hạn:
+ *  - Mỗi orderCode luôn vào cùng 1 worker (1 thread, hàng đợi bounded) -> event của 1 payment xử lý tuần tự,
+ *    event sau chỉ chạy khi event trước đã DONE.
+ *  - Exactly-once: hiệu ứng nghiệp vụ + đánh dấu DONE trong cùng transaction, DONE chỉ thành công
+ *    nếu worker còn giữ lease (claim có điều kiện) -> lần xử lý trễ / trùng bị rollback.
+ *  - Lỗi -> retry với backoff luỹ thừa tới maxAttempts, sau đó FAILED (log error, xử lý tay).
+ *  - Hàng đợi đầy / restart / lease hết hạn: event vẫn PENDING trong DB, poller định kỳ đẩy lại.
+ */
+@Slf4j
+@Component
+public class PaymentWebhookInbox {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final PaymentWebhookEventRepository webhookEventRepository;
+    private final PaymentWebhookService paymentWebhookService;
+    private final ObjectMapper mapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor[] workers;
+    private final int batchSize;
+    private final long leaseMs;
+    private final int maxAttempts;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+
+    // orderCode đang nằm trong hàng đợi của worker (tránh xếp hàng trùng)
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    public PaymentWebhookInbox(
+            PaymentWebhookEventRepository webhookEventRepository,
+            PaymentWebhookService paymentWebhookService,
+            ObjectMapper mapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.webhook.workers:4}") int workerCount,
+            @Value("${app.webhook.queue-capacity:1000}") int queueCapacity,
+            @Value("${app.webhook.batch-size:200}") int batchSize,
+            @Value("${app.webhook.lease-ms:120000}") long leaseMs,
+            @Value("${app.webhook.max-attempts:8}") int maxAttempts,
+            @Value("${app.webhook.backoff-base-ms:2000}") long backoffBaseMs,
+            @Value("${app.webhook.backoff-max-ms:600000}") long backoffMaxMs
+    ) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.paymentWebhookService = paymentWebhookService;
+        this.mapper = mapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.leaseMs = leaseMs;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+
+        this.workers = new ThreadPoolExecutor[workerCount];
+        AtomicInteger threadNo = new AtomicInteger();
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "payos-webhook-" + threadNo.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    // ======================================================
+    // INGEST (thread request webhook)
+    // ======================================================
+    /**
+     * Ghi event vào inbox rồi giao cho worker.
+     * @return false nếu event (orderCode, code) đã nhận trước đó (PayOS gửi lại)
+     */
+    public boolean accept(String orderCode, String code, Map<String, Object> payload) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> webhookEventRepository.saveAndFlush(
+                    PaymentWebhookEvent.builder()
+                            .orderCode(orderCode)
+                            .eventCode(code)
+                            .payload(writePayload(payload))
+                            .status(WebhookEventStatus.PENDING)
+                            .nextAttemptAt(now)
+                            .receivedAt(now)
+                            .build()));
+        } catch (DataIntegrityViolationException e) {
+            log.info("[WEBHOOK INBOX] Duplicate webhook orderCode={} code={} ignored", orderCode, code);
+            return false;
+        }
+        dispatch(orderCode);
+        return true;
+    }
+
+    // ======================================================
+    // DISPATCH
+    // ======================================================
+    private void dispatch(String orderCode) {
+        if (!queued.add(orderCode)) return;
+        ThreadPoolExecutor worker = workers[Math.floorMod(orderCode.hashCode(), workers.length)];
+        try {
+            worker.execute(() -> {
+                queued.remove(orderCode);
+                drain(orderCode);
+            });
+        } catch (RejectedExecutionException e) {
+            // Hàng đợi đầy: event vẫn PENDING trong DB, poller sẽ đẩy lại
+            queued.remove(orderCode);
+            log.warn("[WEBHOOK INBOX] Worker queue full, orderCode={} deferred to poller", orderCode);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.webhook.poll-interval-ms:5000}")
+    public void poll() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer released = transactionTemplate.execute(status -> webhookEventRepository.releaseExpiredLeases(now));
+        if (released != null && released > 0) {
+            log.warn("[WEBHOOK INBOX] Released {} events with expired lease", released);
+        }
+        webhookEventRepository.findDueOrderCodes(now, PageRequest.of(0, batchSize))
+                .forEach(this::dispatch);
+    }
+
+    // ======================================================
+    // PROCESS (thread worker)
+    // ======================================================
+    /**
+     * Xử lý lần lượt các event chưa xong của 1 order; dừng ở event đầu tiên chưa tới hạn / đang bị giữ / lỗi
+     * để event sau không vượt event trước.
+     */
+    private void drain(String orderCode) {
+        try {
+            for (PaymentWebhookEvent event : webhookEventRepository.findOpenByOrderCode(orderCode)) {
+                if (event.getStatus() != WebhookEventStatus.PENDING
+                        || event.getNextAttemptAt().isAfter(LocalDateTime.now())) {
+                    return;
+                }
+                if (!process(event)) return;
+            }
+        } catch (RuntimeException e) {
+            log.error("[WEBHOOK INBOX] Drain of orderCode={} failed: {}", orderCode, e.getMessage(), e);
+        }
+    }
+
+    private boolean process(PaymentWebhookEvent event) {
+        Long eventId = event.getEventId();
+        // Token claim = hạn lease (cắt tới ms cho khớp độ chính xác cột DATETIME)
+        LocalDateTime lease = LocalDateTime.now().plus(leaseMs, ChronoUnit.MILLIS).truncatedTo(ChronoUnit.MILLIS);
+        Integer claimed = transactionTemplate.execute(status -> webhookEventRepository.claim(eventId, lease));
+        if (claimed == null || claimed == 0) return false;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                paymentWebhookService.handleWebhook(event.getOrderCode(), event.getEventCode(),
+                        readPayload(event.getPayload()));
+                if (webhookEventRepository.markDone(eventId, lease, LocalDateTime.now()) == 0) {
+                    throw new IllegalStateException("Lease of webhook event " + eventId + " was lost");
+                }
+            });
+            log.info("[WEBHOOK INBOX] Processed event {} orderCode={} code={}",
+                    eventId, event.getOrderCode(), event.getEventCode());
+            return true;
+        } catch (RuntimeException e) {
+            recordFailure(event, lease, e);
+            return false;
+        }
+    }
+
+    private void recordFailure(PaymentWebhookEvent event, LocalDateTime lease, RuntimeException error) {
+        int attempt = event.getAttempts() + 1;
+        boolean exhausted = attempt >= maxAttempts;
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoffMs(attempt), ChronoUnit.MILLIS);
+        String message = String.valueOf(error.getMessage());
+        String lastError = message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+
+        transactionTemplate.executeWithoutResult(status -> webhookEventRepository.markFailedAttempt(
+                event.getEventId(), lease,
+                exhausted ? WebhookEventStatus.FAILED : WebhookEventStatus.PENDING,
+                nextAttemptAt, lastError));
+
+        if (exhausted) {
+            log.error("[WEBHOOK INBOX] Event {} orderCode={} FAILED after {} attempts: {}",
+                    event.getEventId(), event.getOrderCode(), attempt, lastError, error);
+        } else {
+            log.warn("[WEBHOOK INBOX] Event {} orderCode={} attempt {} failed, retry at {}: {}",
+                    event.getEventId(), event.getOrderCode(), attempt, nextAttemptAt, lastError);
+        }
+    }
+
+    // base * 2^(attempt-1), tối đa backoffMaxMs, jitter ±20% để các retry không dồn cùng lúc
+    private long backoffMs(int attempt) {
+        long delay = backoffBaseMs << Math.min(attempt - 1, 20);
+        delay = Math.min(delay, backoffMaxMs);
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return (long) (delay * jitter);
+    }
+
+    // ======================================================
+    // HELPERS
+    // ======================================================
+    private String writePayload(Map<String, Object> payload) {
+        if (payload == null) return null;
+        try {
+            return mapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize webhook payload", e);
+        }
+    }
+
+    private Map<String, Object> readPayload(String payload) {
+        if (payload == null) return null;
+        try {
+            return mapper.readValue(payload, new TypeReference<Map<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read webhook payload", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Event đang chờ vẫn PENDING / PROCESSING trong DB, instance sau xử lý tiếp
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdownNow();
+        }
+    }
+}
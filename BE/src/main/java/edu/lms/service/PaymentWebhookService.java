@@ -29,120 +29,128 @@ public class PaymentWebhookService {
      * Handle webhook callback from PayOS
      * code = "00" -> PAID
      * code != "00" -> FAILED/CANCELLED
+     * Chạy trên worker của PaymentWebhookInbox, trong transaction cùng với việc đánh dấu event DONE:
+     * exception được ném ra để rollback + retry, không nuốt lỗi ở đây.
      */
     public void handleWebhook(String orderCode, String code, Map<String, Object> payload) {
         log.info("Handling webhook | orderCode={} | code={} | payload={}", orderCode, code, payload);
 
-        paymentRepository.findByOrderCode(orderCode).ifPresentOrElse(payment -> {
-            try {
-                boolean isPaid = "00".equals(code);
-
-                // ===================================================
-                //PAYMENT ĐÃ BỊ CANCELLED TỪ TRƯỚC → BLOCK PAID
-                // ===================================================
-                if (payment.getStatus() == PaymentStatus.CANCELLED) {
-
-                    log.warn("[BLOCK] Payment {} was CANCELLED earlier → ignoring webhook PAID",
-                            payment.getPaymentID());
+        Payment payment = paymentRepository.findByOrderCode(orderCode).orElse(null);
+        if (payment == null) {
+            log.warn("Payment not found for orderCode={}", orderCode);
+            return;
+        }
 
-                    // Hủy link PayOS nếu vẫn tồn tại
-                    if (payment.getPaymentLinkId() != null) {
-                        try {
-                            payOSService.cancelPaymentLink(payment.getPaymentLinkId());
-                        } catch (Exception ex) {
-                            log.error("[BLOCK] Cannot cancel PayOS link {}", payment.getPaymentLinkId(), ex);
-                        }
-                    }
+        boolean isPaid = "00".equals(code);
 
-                    payment.setIsPaid(false);
-                    payment.setPaidAt(null);
+        // ===================================================
+        //PAYMENT ĐÃ BỊ CANCELLED TỪ TRƯỚC → BLOCK PAID
+        // ===================================================
+        if (payment.getStatus() == PaymentStatus.CANCELLED) {
 
-                    if (payload != null)
-                        payment.setTransactionResponse(payload.toString());
+            log.warn("[BLOCK] Payment {} was CANCELLED earlier → ignoring webhook PAID",
+                    payment.getPaymentID());
 
-                    paymentRepository.save(payment);
-                    return;
+            // Hủy link PayOS nếu vẫn tồn tại
+            if (payment.getPaymentLinkId() != null) {
+                try {
+                    payOSService.cancelPaymentLink(payment.getPaymentLinkId());
+                } catch (Exception ex) {
+                    log.error("[BLOCK] Cannot cancel PayOS link {}", payment.getPaymentLinkId(), ex);
                 }
+            }
 
-                boolean hasRejectedSlot = false;
-                List<BookingPlanSlot> slots = null;
+            payment.setIsPaid(false);
+            payment.setPaidAt(null);
 
-                if (payment.getPaymentType() == PaymentType.Booking) {
-                    slots = bookingPlanSlotRepository.findAllByPaymentID(payment.getPaymentID());
+            if (payload != null)
+                payment.setTransactionResponse(payload.toString());
 
-                    if (slots == null || slots.isEmpty()) {
-                        log.warn("No slots found for booking payment {}", payment.getPaymentID());
-                    } else {
-                        hasRejectedSlot = slots.stream()
-                                .anyMatch(s -> s.getStatus() == SlotStatus.Rejected);
-                    }
-                }
+            paymentRepository.save(payment);
+            return;
+        }
 
-                // ===================================================
-                //SLOT ĐÃ BỊ REJECT → FORCE CANCEL PAYMENT
-                // ===================================================
-                if (hasRejectedSlot) {
+        // ===================================================
+        //PAYMENT ĐÃ PAID / CHỜ HOÀN TIỀN → KHÔNG XỬ LÝ LẠI (enrollment / ví chỉ 1 lần)
+        // ===================================================
+        if (payment.getStatus() == PaymentStatus.PAID || payment.getStatus() == PaymentStatus.REFUND_PENDING) {
+            log.info("[PAYOS] Payment {} already {} → ignoring webhook code={}", orderCode, payment.getStatus(), code);
+            return;
+        }
 
-                    log.warn("[FORCE CANCEL] Payment {} contains REJECTED slot → CANCEL payment",
-                            payment.getPaymentID());
+        boolean hasRejectedSlot = false;
+        List<BookingPlanSlot> slots = null;
 
-                    // Hủy link PayOS
-                    if (payment.getPaymentLinkId() != null) {
-                        try {
-                            payOSService.cancelPaymentLink(payment.getPaymentLinkId());
-                        } catch (Exception ex) {
-                            log.error("[FORCE CANCEL] Cannot cancel PayOS link {}", payment.getPaymentLinkId(), ex);
-                        }
-                    }
+        if (payment.getPaymentType() == PaymentType.Booking) {
+            slots = bookingPlanSlotRepository.findAllByPaymentID(payment.getPaymentID());
+
+            if (slots == null || slots.isEmpty()) {
+                log.warn("No slots found for booking payment {}", payment.getPaymentID());
+            } else {
+                hasRejectedSlot = slots.stream()
+                        .anyMatch(s -> s.getStatus() == SlotStatus.Rejected);
+            }
+        }
 
-                    payment.setStatus(PaymentStatus.CANCELLED);
-                    payment.setIsPaid(false);
-                    payment.setPaidAt(null);
+        // ===================================================
+        //SLOT ĐÃ BỊ REJECT → FORCE CANCEL PAYMENT
+        // ===================================================
+        if (hasRejectedSlot) {
 
-                    if (payload != null)
-                        payment.setTransactionResponse(payload.toString());
+            log.warn("[FORCE CANCEL] Payment {} contains REJECTED slot → CANCEL payment",
+                    payment.getPaymentID());
 
-                    paymentRepository.save(payment);
-                    return;
+            // Hủy link PayOS
+            if (payment.getPaymentLinkId() != null) {
+                try {
+                    payOSService.cancelPaymentLink(payment.getPaymentLinkId());
+                } catch (Exception ex) {
+                    log.error("[FORCE CANCEL] Cannot cancel PayOS link {}", payment.getPaymentLinkId(), ex);
                 }
+            }
 
-                // ===================================================
-                //PAYMENT SUCCESS (VALID)
-                // ===================================================
-                if (isPaid) {
+            payment.setStatus(PaymentStatus.CANCELLED);
+            payment.setIsPaid(false);
+            payment.setPaidAt(null);
 
-                    payment.setStatus(PaymentStatus.PAID);
-                    payment.setIsPaid(true);
-                    payment.setPaidAt(LocalDateTime.now());
-                    paymentRepository.save(payment);
+            if (payload != null)
+                payment.setTransactionResponse(payload.toString());
 
-                    log.info("[PAYOS] Payment {} marked as PAID", orderCode);
+            paymentRepository.save(payment);
+            return;
+        }
 
-                    paymentService.processPostPayment(payment);
-                } else {
+        // ===================================================
+        //PAYMENT SUCCESS (VALID)
+        // ===================================================
+        if (isPaid) {
 
-                    // ===================================================
-                    //PAYMENT FAILED
-                    // ===================================================
-                    payment.setStatus(PaymentStatus.FAILED);
-                    payment.setIsPaid(false);
-                    paymentRepository.save(payment);
+            payment.setStatus(PaymentStatus.PAID);
+            payment.setIsPaid(true);
+            payment.setPaidAt(LocalDateTime.now());
+            paymentRepository.save(payment);
 
-                    log.warn("[PAYOS] Payment {} FAILED → rollback slots", orderCode);
-                    handlePaymentRollback(payment, "FAILED");
-                }
+            log.info("[PAYOS] Payment {} marked as PAID", orderCode);
 
-                // Save webhook payload
-                if (payload != null)
-                    payment.setTransactionResponse(payload.toString());
+            paymentService.processPostPayment(payment);
+        } else {
 
-                paymentRepository.save(payment);
+            // ===================================================
+            //PAYMENT FAILED
+            // ===================================================
+            payment.setStatus(PaymentStatus.FAILED);
+            payment.setIsPaid(false);
+            paymentRepository.save(payment);
 
-            } catch (Exception e) {
-                log.error("Webhook error for {}: {}", orderCode, e.getMessage(), e);
-            }
+            log.warn("[PAYOS] Payment {} FAILED → rollback slots", orderCode);
+            handlePaymentRollback(payment, "FAILED");
+        }
 
-        }, () -> log.warn("Payment not found for orderCode={}", orderCode));
+        // Save webhook payload
+        if (payload != null)
+            payment.setTransactionResponse(payload.toString());
+
+        paymentRepository.save(payment);
     }
 
     /**
@@ -160,19 +168,31 @@ public class PaymentWebhookService {
         List<BookingPlanSlot> slots =
                 bookingPlanSlotRepository.findAllByPaymentID(payment.getPaymentID());
 
-        long deletedCount = 0;
+        long releasedCount = 0;
+        LocalDateTime now = LocalDateTime.now();
 
         for (BookingPlanSlot slot : slots) {
             if (slot.getStatus() == SlotStatus.Locked) {
-                bookingPlanSlotRepository.delete(slot);
-                deletedCount++;
+                // Slot tương lai -> trả về Available để learner khác book, còn lại xoá
+                if (slot.getStartTime().isAfter(now)) {
+                    slot.setStatus(SlotStatus.Available);
+                    slot.setUserID(null);
+                    slot.setLockedAt(null);
+                    slot.setExpiresAt(null);
+                    slot.setPaymentID(null);
+                    slot.setUserPackage(null);
+                    bookingPlanSlotRepository.save(slot);
+                } else {
+                    bookingPlanSlotRepository.delete(slot);
+                }
+                releasedCount++;
 
-                log.warn("[ROLLBACK] Deleted slot {} ({} - {}) due to {}",
+                log.warn("[ROLLBACK] Released slot {} ({} - {}) due to {}",
                         slot.getSlotID(), slot.getStartTime(), slot.getEndTime(), reason);
             }
         }
 
-        log.warn("[ROLLBACK] Payment {} marked FAILED. Slots removed={}",
-                payment.getOrderCode(), deletedCount);
+        log.warn("[ROLLBACK] Payment {} marked FAILED. Slots released={}",
+                payment.getOrderCode(), releasedCount);
     }
 }
@@ -0,0 +1,117 @@
+package edu.lms.service;
+
+import edu.lms.enums.CourseStatus;
+import edu.lms.enums.TutorStatus;
+import edu.lms.repository.CourseCategoryRepository;
+import edu.lms.repository.CourseRepository;
+import edu.lms.repository.TutorRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ETag cho các endpoint GET public (catalog, course detail, tutor, category).
+ * ETag được tính từ 1 query fingerprint nhỏ (count + max updatedAt / contentVersion),
+ * controller so với If-None-Match và trả 304 trước khi gọi service build response.
+ * Response có isWishListed / isPurchased thì ghép thêm userId + fingerprint membership,
+ * và chỉ cho cache private.
+ */
+@Service
+public class PublicEtagService {
+
+    private final CourseRepository courseRepository;
+    private final TutorRepository tutorRepository;
+    private final CourseCategoryRepository courseCategoryRepository;
+    private final CourseMembershipCache courseMembershipCache;
+
+    private final CacheControl publicCacheControl;
+    private final CacheControl privateCacheControl;
+
+    public PublicEtagService(
+            CourseRepository courseRepository,
+            TutorRepository tutorRepository,
+            CourseCategoryRepository courseCategoryRepository,
+            CourseMembershipCache courseMembershipCache,
+            @Value("${app.http-cache.max-age:PT1M}") Duration maxAge,
+            @Value("${app.http-cache.shared-max-age:PT5M}") Duration sharedMaxAge
+    ) {
+        this.courseRepository = courseRepository;
+        this.tutorRepository = tutorRepository;
+        this.courseCategoryRepository = courseCategoryRepository;
+        this.courseMembershipCache = courseMembershipCache;
+        // Guest: browser + CDN / reverse proxy được cache, hết hạn thì revalidate bằng ETag
+        this.publicCacheControl = CacheControl.maxAge(maxAge).sMaxAge(sharedMaxAge).cachePublic();
+        // User đăng nhập: chỉ browser cache, luôn revalidate (304 gần như miễn phí)
+        this.privateCacheControl = CacheControl.noCache().cachePrivate();
+    }
+
+    // ======================================================
+    // ETAG
+    // ======================================================
+    public String courseListEtag(Long userId) {
+        return personalize("courses",
+                fingerprint(courseRepository.fingerprintByStatus(CourseStatus.Approved)), userId);
+    }
+
+    /**
+     * @return null nếu course không tồn tại (để service trả lỗi như bình thường)
+     */
+    public String courseDetailEtag(Long courseId, Long userId) {
+        List<Object[]> rows = courseRepository.fingerprintById(courseId);
+        if (rows.isEmpty()) return null;
+        return personalize("course-" + courseId, fingerprint(rows), userId);
+    }
+
+    public String tutorListEtag() {
+        return etag("tutors", fingerprint(tutorRepository.fingerprintByStatus(TutorStatus.APPROVED)));
+    }
+
+    public String tutorDetailEtag(Long tutorId) {
+        List<Object[]> rows = tutorRepository.fingerprintById(tutorId);
+        if (rows.isEmpty()) return null;
+        return etag("tutor-" + tutorId, fingerprint(rows));
+    }
+
+    public String categoriesEtag() {
+        return etag("categories", fingerprint(courseCategoryRepository.fingerprint()));
+    }
+
+    // ======================================================
+    // CACHE-CONTROL
+    // ======================================================
+    public CacheControl cacheControl(Long userId) {
+        return userId != null ? privateCacheControl : publicCacheControl;
+    }
+
+    public CacheControl publicCacheControl() {
+        return publicCacheControl;
+    }
+
+    public CacheControl privateCacheControl() {
+        return privateCacheControl;
+    }
+
+    // ======================================================
+    // HELPERS
+    // ======================================================
+    private String personalize(String prefix, String fingerprint, Long userId) {
+        if (userId == null) return etag(prefix, fingerprint);
+        String membership = courseMembershipCache.get(userId).fingerprint();
+        return etag(prefix, fingerprint + "|u" + userId + "|" + membership);
+    }
+
+    private static String fingerprint(List<Object[]> rows) {
+        return rows.isEmpty() ? "" : Arrays.toString(rows.get(0));
+    }
+
+    private static String etag(String prefix, String fingerprint) {
+        String hash = DigestUtils.md5DigestAsHex(fingerprint.getBytes(StandardCharsets.UTF_8));
+        return "\"" + prefix + "-" + hash + "\"";
+    }
+}
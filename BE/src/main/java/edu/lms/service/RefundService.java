@@ -3,18 +3,15 @@ package edu.lms.service;
 import edu.lms.dto.request.RefundInfoRequest;
 import edu.lms.dto.response.RefundRequestResponse;
 import edu.lms.entity.RefundRequest;
-import edu.lms.entity.Tutor;
 import edu.lms.enums.RefundStatus;
 import edu.lms.exception.AppException;
 import edu.lms.exception.ErrorCode;
 import edu.lms.repository.RefundRequestRepository;
-import edu.lms.repository.TutorRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -27,8 +24,7 @@ import static lombok.AccessLevel.PRIVATE;
 public class RefundService {
 
     RefundRequestRepository refundRepo;
-    WithdrawService withdrawService;
-    TutorRepository tutorRepository;
+    WalletLedgerService walletLedgerService;
 
     public void submitRefundInfo(Long refundId, RefundInfoRequest dto, Long userId) {
         RefundRequest req = refundRepo.findById(refundId)
@@ -75,24 +71,17 @@ public class RefundService {
         RefundRequest req = refundRepo.findById(refundId)
                 .orElseThrow(() -> new AppException(ErrorCode.REFUND_NOT_FOUND));
 
-        Tutor tutor = req.getTutor();
-        Long tutorId = tutor.getTutorID();
-
-        // 1) Check đủ tiền trong ví (theo thuật toán mới)
-        BigDecimal currentBalance = withdrawService.calculateCurrentBalance(tutorId);
-        if (req.getRefundAmount().compareTo(currentBalance) > 0) {
-            throw new AppException(ErrorCode.INVALID_AMOUNT);
+        if (req.getStatus() == RefundStatus.APPROVED) {
+            throw new AppException(ErrorCode.INVALID_STATUS);
         }
 
+        // 1) Trừ ví tutor (ghi sổ ledger); không đủ số dư -> INVALID_AMOUNT, rollback
+        walletLedgerService.debitRefund(req);
+
         // 2) Cập nhật trạng thái refund
         req.setStatus(RefundStatus.APPROVED);
         req.setProcessedAt(LocalDateTime.now());
         refundRepo.save(req);
-
-        // 3) Re-calc lại balance và update snapshot wallet_balance
-        BigDecimal newBalance = withdrawService.calculateCurrentBalance(tutorId);
-        tutor.setWalletBalance(newBalance);
-        tutorRepository.save(tutor);
     }
 
     public void reject(Long refundId) {
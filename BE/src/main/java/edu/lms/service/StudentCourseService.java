@@ -3,10 +3,10 @@ package edu.lms.service;
 
 import edu.lms.dto.response.*;
 import edu.lms.entity.Enrollment;
-import edu.lms.entity.UserLesson;
 import edu.lms.exception.AppException;
 import edu.lms.exception.ErrorCode;
 import edu.lms.repository.EnrollmentRepository;
+import edu.lms.repository.LessonRepository.LessonOutline;
 import edu.lms.repository.UserCourseSectionRepository;
 import edu.lms.repository.UserLessonRepository;
 import lombok.RequiredArgsConstructor;
@@ -14,6 +14,9 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +25,7 @@ public class StudentCourseService {
     private final EnrollmentRepository enrollmentRepository;
     private final UserCourseSectionRepository userCourseSectionRepository;
     private final UserLessonRepository userLessonRepository;
+    private final CurriculumLoader curriculumLoader;
 
     /** Danh sách khoá học đã ghi danh (nhẹ, không trả về lessons) */
     public List<StudentCourseListItemResponse> getCoursesSummary(Long userId) {
@@ -70,9 +74,10 @@ public class StudentCourseService {
 
         var course  = enrollment.getCourse();
         var tutor   = course.getTutor();
+        var curriculum = curriculumLoader.loadCourseOutline(courseId);
 
         // Nếu khoá không có section
-        if (course.getSections() == null || course.getSections().isEmpty()) {
+        if (curriculum.sections().isEmpty()) {
             return StudentCourseResponse.builder()
                     .courseID(course.getCourseID())
                     .courseTitle(course.getTitle())
@@ -88,18 +93,29 @@ public class StudentCourseService {
                     .build();
         }
 
-        var sectionProgressList = course.getSections().stream().map(section -> {
-            var ucs = userCourseSectionRepository
-                    .findByUser_UserIDAndSection_SectionID(userId, section.getSectionID())
-                    .orElse(null);
-            BigDecimal sectionProgress = (ucs != null) ? ucs.getProgress() : BigDecimal.ZERO;
+        // Progress của user: 2 query cho cả khoá thay vì 1 query / section + 1 query / lesson
+        Map<Long, BigDecimal> sectionProgressById = userCourseSectionRepository
+                .findByUser_UserIDAndSection_Course_CourseID(userId, courseId).stream()
+                .collect(Collectors.toMap(
+                        ucs -> ucs.getSection().getSectionID(),
+                        ucs -> ucs.getProgress() != null ? ucs.getProgress() : BigDecimal.ZERO,
+                        (a, b) -> a));
+        List<Long> lessonIds = curriculum.lessonsBySection().values().stream()
+                .flatMap(List::stream)
+                .map(LessonOutline::getLessonID)
+                .toList();
+        Set<Long> doneLessonIds = lessonIds.isEmpty() ? Set.of()
+                : userLessonRepository.findByUser_UserIDAndLesson_LessonIDIn(userId, lessonIds).stream()
+                .filter(ul -> Boolean.TRUE.equals(ul.getIsDone()))
+                .map(ul -> ul.getLesson().getLessonID())
+                .collect(Collectors.toSet());
+
+        var sectionProgressList = curriculum.sections().stream().map(section -> {
+            BigDecimal sectionProgress = sectionProgressById.getOrDefault(section.getSectionID(), BigDecimal.ZERO);
             boolean sectionDone = sectionProgress.compareTo(BigDecimal.valueOf(100)) >= 0;
 
-            var lessonList = section.getLessons().stream().map(lesson -> {
-                boolean isDone = userLessonRepository
-                        .findByUser_UserIDAndLesson_LessonID(userId, lesson.getLessonID())
-                        .map(UserLesson::getIsDone)
-                        .orElse(false);
+            var lessonList = curriculum.lessonsOf(section.getSectionID()).stream().map(lesson -> {
+                boolean isDone = doneLessonIds.contains(lesson.getLessonID());
                 return LessonInSectionResponse.builder()
                         .lessonId(lesson.getLessonID())
                         .lessonTitle(lesson.getTitle())
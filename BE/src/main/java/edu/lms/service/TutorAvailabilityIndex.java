@@ -0,0 +1,232 @@
+package edu.lms.service;
+
+import edu.lms.entity.BookingPlanSlot;
+import edu.lms.exception.AppException;
+import edu.lms.exception.ErrorCode;
+import edu.lms.repository.BookingPlanSlotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Index "tutor nào rảnh trong khoảng thời gian X".
+ * Thời gian từ 00:00 hôm nay tới horizon-days ngày sau được chia thành bucket (mặc định 30 phút).
+ *  - freeByTutor:    tutor -> BitSet bucket rảnh (nằm trọn trong slot Available đã materialize
+ *                    của booking plan active + open, xem BookingSlotMaterializer)
+ *  - tutorsByBucket: bucket -> BitSet ordinal tutor rảnh (inverted), query = AND các bucket trong window
+ * Chi phí query chỉ phụ thuộc số bucket trong window x số tutor / 64, không phụ thuộc số slot.
+ * Cập nhật từng tutor sau commit khi slot / plan đổi (AvailabilityChangeListener),
+ * rebuild mỗi ngày để cuốn horizon.
+ */
+@Slf4j
+@Component
+public class TutorAvailabilityIndex {
+
+    private final BookingPlanSlotRepository bookingPlanSlotRepository;
+    private final TutorScheduleIndex tutorScheduleIndex;
+    private final int bucketMinutes;
+    private final int horizonDays;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private LocalDateTime horizonStart = LocalDate.now().atStartOfDay();
+    private BitSet[] tutorsByBucket = new BitSet[0];
+    private final Map<Long, BitSet> freeByTutor = new HashMap<>();
+    private final Map<Long, Integer> ordinalByTutor = new HashMap<>();
+    private final List<Long> tutorByOrdinal = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    public TutorAvailabilityIndex(
+            BookingPlanSlotRepository bookingPlanSlotRepository,
+            TutorScheduleIndex tutorScheduleIndex,
+            @Value("${app.availability.bucket-minutes:30}") int bucketMinutes,
+            @Value("${app.availability.horizon-days:28}") int horizonDays
+    ) {
+        this.bookingPlanSlotRepository = bookingPlanSlotRepository;
+        this.tutorScheduleIndex = tutorScheduleIndex;
+        this.bucketMinutes = bucketMinutes;
+        this.horizonDays = horizonDays;
+    }
+
+    // ======================================================
+    // BUILD / UPDATE
+    // ======================================================
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.availability.rebuild-cron:0 0 0 * * *}") // cuốn horizon lúc 00:00
+    public void rebuild() {
+        LocalDateTime start = LocalDate.now().atStartOfDay();
+        LocalDateTime end = start.plusDays(horizonDays);
+
+        Map<Long, List<BookingPlanSlot>> bookable = bookingPlanSlotRepository.findBookableInRange(null, start, end).stream()
+                .collect(Collectors.groupingBy(BookingPlanSlot::getTutorID));
+
+        lock.writeLock().lock();
+        try {
+            horizonStart = start;
+            tutorsByBucket = new BitSet[bucketCount()];
+            for (int i = 0; i < tutorsByBucket.length; i++) tutorsByBucket[i] = new BitSet();
+            freeByTutor.clear();
+            ordinalByTutor.clear();
+            tutorByOrdinal.clear();
+            freeOrdinals.clear();
+
+            bookable.forEach((tutorId, slots) -> apply(tutorId, computeFree(slots, start)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("[AVAILABILITY] Index rebuilt: {} tutors, {} buckets of {} min", freeByTutor.size(), bucketCount(), bucketMinutes);
+    }
+
+    /**
+     * Gọi khi slot / booking plan của tutor đổi; refresh 1 lần sau commit cho mỗi tutor / transaction.
+     * Dùng chung hook này để bỏ slot Locked / Paid đã cache trong TutorScheduleIndex.
+     */
+    public void onTutorChanged(Long tutorId) {
+        if (tutorId == null) return;
+        AfterCommit.runOnce("availability:" + tutorId, () -> {
+            tutorScheduleIndex.invalidateOccupied(tutorId);
+            refresh(tutorId);
+        });
+    }
+
+    public void refresh(Long tutorId) {
+        LocalDateTime start;
+        lock.readLock().lock();
+        try {
+            start = horizonStart;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        BitSet free = computeFree(
+                bookingPlanSlotRepository.findBookableInRange(tutorId, start, start.plusDays(horizonDays)),
+                start);
+
+        lock.writeLock().lock();
+        try {
+            // Horizon vừa được cuốn trong lúc query -> rebuild đã có dữ liệu mới
+            if (start.equals(horizonStart)) {
+                apply(tutorId, free);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ======================================================
+    // QUERY
+    // ======================================================
+    /**
+     * Tutor rảnh trong suốt [from, to) (làm tròn ra biên bucket).
+     */
+    public Set<Long> freeTutorIds(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to) || from.isBefore(LocalDateTime.now())) {
+            throw new AppException(ErrorCode.INVALID_AVAILABILITY_WINDOW);
+        }
+
+        lock.readLock().lock();
+        try {
+            int first = floorBucket(from, horizonStart);
+            int last = ceilBucket(to, horizonStart);
+            if (first < 0 || last > tutorsByBucket.length) {
+                throw new AppException(ErrorCode.INVALID_AVAILABILITY_WINDOW);
+            }
+
+            BitSet acc = (BitSet) tutorsByBucket[first].clone();
+            for (int i = first + 1; i < last && !acc.isEmpty(); i++) {
+                acc.and(tutorsByBucket[i]);
+            }
+
+            Set<Long> result = new HashSet<>();
+            acc.stream().forEach(ord -> result.add(tutorByOrdinal.get(ord)));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ======================================================
+    // HELPERS
+    // ======================================================
+    private int bucketCount() {
+        return horizonDays * 24 * 60 / bucketMinutes;
+    }
+
+    // Gọi khi đang giữ write lock: thay bitmap của tutor, cập nhật inverted index theo phần chênh lệch
+    private void apply(Long tutorId, BitSet free) {
+        BitSet old = freeByTutor.get(tutorId);
+        Integer ord = ordinalByTutor.get(tutorId);
+
+        if (old != null && ord != null) {
+            BitSet removed = (BitSet) old.clone();
+            removed.andNot(free);
+            final int o = ord;
+            removed.stream().forEach(i -> tutorsByBucket[i].clear(o));
+        }
+
+        if (free.isEmpty()) {
+            freeByTutor.remove(tutorId);
+            if (ord != null) {
+                ordinalByTutor.remove(tutorId);
+                tutorByOrdinal.set(ord, null);
+                freeOrdinals.push(ord);
+            }
+            return;
+        }
+
+        if (ord == null) {
+            ord = freeOrdinals.isEmpty() ? tutorByOrdinal.size() : freeOrdinals.pop();
+            if (ord == tutorByOrdinal.size()) tutorByOrdinal.add(tutorId);
+            else tutorByOrdinal.set(ord, tutorId);
+            ordinalByTutor.put(tutorId, ord);
+        }
+        final int o = ord;
+        free.stream().forEach(i -> tutorsByBucket[i].set(o));
+        freeByTutor.put(tutorId, free);
+    }
+
+    // slots đã sort theo startTime; gộp các slot liền nhau rồi lấy các bucket nằm trọn bên trong
+    private BitSet computeFree(List<BookingPlanSlot> slots, LocalDateTime start) {
+        int count = bucketCount();
+        BitSet free = new BitSet(count);
+
+        LocalDateTime runStart = null;
+        LocalDateTime runEnd = null;
+        for (BookingPlanSlot slot : slots) {
+            if (runEnd != null && !slot.getStartTime().isAfter(runEnd)) {
+                if (slot.getEndTime().isAfter(runEnd)) runEnd = slot.getEndTime();
+                continue;
+            }
+            markRun(free, runStart, runEnd, start, count);
+            runStart = slot.getStartTime();
+            runEnd = slot.getEndTime();
+        }
+        markRun(free, runStart, runEnd, start, count);
+        return free;
+    }
+
+    private void markRun(BitSet free, LocalDateTime runStart, LocalDateTime runEnd, LocalDateTime start, int count) {
+        if (runStart == null) return;
+        int from = Math.max(ceilBucket(runStart, start), 0);
+        int to = Math.min(floorBucket(runEnd, start), count);
+        if (from < to) free.set(from, to);
+    }
+
+    private int floorBucket(LocalDateTime t, LocalDateTime start) {
+        return (int) Math.floorDiv(Duration.between(start, t).toMinutes(), bucketMinutes);
+    }
+
+    private int ceilBucket(LocalDateTime t, LocalDateTime start) {
+        return (int) Math.floorDiv(Duration.between(start, t).toMinutes() + bucketMinutes - 1, bucketMinutes);
+    }
+}
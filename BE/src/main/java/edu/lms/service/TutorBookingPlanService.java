@@ -11,11 +11,15 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.*;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -26,6 +30,8 @@ import java.util.stream.Collectors;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @Transactional
 public class TutorBookingPlanService {
+    static final int MAX_DAYS_PER_WEEK = 4;
+
     NotificationService notificationService;
     BookingPlanRepository bookingPlanRepository;
     BookingPlanSlotRepository bookingPlanSlotRepository;
@@ -34,6 +40,10 @@ public class TutorBookingPlanService {
     NotificationRepository notificationRepository;
     PaymentRepository paymentRepository;
     PayOSService payOSService;
+    TutorSearchIndex tutorSearchIndex;
+    BookingSlotMaterializer bookingSlotMaterializer;
+    BookingPlanTeardownService bookingPlanTeardownService;
+    TutorScheduleIndex tutorScheduleIndex;
 
     // =========================================================
     // CREATE BOOKING PLAN
@@ -44,11 +54,14 @@ public class TutorBookingPlanService {
                 tutor.getTutorID(), request.getTitle(), request.getStartTime(), request.getEndTime());
 
         validatePlanRequest(request);
+
+        // Tuần tự hoá các thao tác plan của tutor này tới hết transaction, kiểm tra trên TutorScheduleIndex
+        tutorScheduleIndex.lockTutor(tutor.getTutorID());
+
+        // Validate giới hạn 4 ngày/tuần
+        validateMaxDaysPerWeek(tutor.getTutorID(), request.getTitle(), null);
         
-        // Validate giới hạn 4 ngày/tuần (với pessimistic lock trong repository)
-        validateMaxDaysPerWeek(tutor.getTutorID(), request.getTitle());
-        
-        // Kiểm tra overlap (với pessimistic lock trong repository)
+        // Kiểm tra overlap
         ensureNoOverlappingPlans(
                 tutor.getTutorID(),
                 request.getTitle(),
@@ -75,18 +88,16 @@ public class TutorBookingPlanService {
                 .isOpen(true)
                 .build();
 
-        bookingPlan = bookingPlanRepository.save(bookingPlan);
+        bookingPlan = savePlan(bookingPlan);
+        tutorSearchIndex.onTutorChanged(tutor.getTutorID());
 
-        long totalMinutes = Duration.between(
-                bookingPlan.getStartHours(),
-                bookingPlan.getEndHours()
-        ).toMinutes();
-        int possibleSlots = (int) (totalMinutes / bookingPlan.getSlotDuration());
+        // Sinh slot cho rolling horizon ngay trong transaction tạo plan
+        BookingSlotMaterializer.Result materialized = bookingSlotMaterializer.materialize(bookingPlan);
 
         return BookingPlanCreateResponse.builder()
                 .success(true)
                 .bookingPlanId(bookingPlan.getBookingPlanID())
-                .slotsCreated(possibleSlots)
+                .slotsCreated(materialized.created())
                 .build();
     }
 
@@ -95,6 +106,7 @@ public class TutorBookingPlanService {
     // =========================================================
     public BookingPlanUpdateResponse updateBookingPlan(Long currentUserId, Long bookingPlanId, TutorBookingPlanRequest request) {
         Tutor tutor = getApprovedTutorByUserId(currentUserId);
+        tutorScheduleIndex.lockTutor(tutor.getTutorID());
         BookingPlan bookingPlan = bookingPlanRepository.findById(bookingPlanId)
                 .orElseThrow(() -> new AppException(ErrorCode.BOOKING_PLAN_NOT_FOUND));
 
@@ -104,44 +116,9 @@ public class TutorBookingPlanService {
         validatePlanRequest(request);
         
         // Nếu đang thay đổi title (ngày) sang một ngày khác, validate giới hạn 4 ngày/tuần
-        boolean isChangingDay = !bookingPlan.getTitle().equals(request.getTitle());
-        if (isChangingDay) {
-            // Kiểm tra xem title mới đã tồn tại trong các booking plan khác (không tính plan đang update) chưa
-            List<BookingPlan> existingPlansWithNewTitle = bookingPlanRepository
-                    .findByTutorIDAndTitle(tutor.getTutorID(), request.getTitle());
-            boolean newTitleAlreadyExists = existingPlansWithNewTitle.stream()
-                    .anyMatch(plan -> plan.getIsActive() && !plan.getBookingPlanID().equals(bookingPlanId));
-            
-            // Nếu title mới chưa tồn tại, cần kiểm tra xem có vượt quá 4 ngày không
-            if (!newTitleAlreadyExists) {
-                // Đếm số ngày hiện tại (bao gồm cả plan đang update)
-                Long currentDaysCount = bookingPlanRepository.countDistinctDaysByTutorID(tutor.getTutorID());
-                if (currentDaysCount == null) {
-                    currentDaysCount = 0L;
-                }
-                
-                // Kiểm tra xem title cũ có phải là duy nhất không (chỉ có plan đang update cho ngày đó)
-                List<BookingPlan> plansWithOldTitle = bookingPlanRepository
-                        .findByTutorIDAndTitle(tutor.getTutorID(), bookingPlan.getTitle());
-                long activePlansWithOldTitle = plansWithOldTitle.stream()
-                        .filter(plan -> plan.getIsActive())
-                        .count();
-                boolean oldTitleIsUnique = activePlansWithOldTitle == 1 
-                        && plansWithOldTitle.stream()
-                        .anyMatch(plan -> plan.getBookingPlanID().equals(bookingPlanId));
-                
-                // Tính toán số ngày sau khi update:
-                // - Nếu title cũ là duy nhất (chỉ có plan đang update), khi đổi sang title mới chưa tồn tại:
-                //   + Số ngày không đổi (thay thế: title cũ mất, title mới thêm)
-                // - Nếu title cũ không phải duy nhất, khi đổi sang title mới chưa tồn tại:
-                //   + Số ngày tăng lên 1 (title cũ vẫn còn, title mới được thêm)
-                // - Nếu title mới đã tồn tại: số ngày không đổi (hợp nhất)
-                
-                // Vì vậy: chỉ cần kiểm tra nếu title cũ không phải duy nhất và đã có 4 ngày
-                if (!oldTitleIsUnique && currentDaysCount >= 4) {
-                    throw new AppException(ErrorCode.BOOKING_PLAN_MAX_DAYS_EXCEEDED);
-                }
-            }
+        // (không tính plan đang update ở title cũ)
+        if (!bookingPlan.getTitle().equals(request.getTitle())) {
+            validateMaxDaysPerWeek(tutor.getTutorID(), request.getTitle(), bookingPlanId);
         }
         
         ensureNoOverlappingPlans(
@@ -157,7 +134,6 @@ public class TutorBookingPlanService {
         // Lưu thông tin thời gian cũ trước khi update
         LocalTime oldStartHours = bookingPlan.getStartHours();
         LocalTime oldEndHours = bookingPlan.getEndHours();
-        Integer oldSlotDuration = bookingPlan.getSlotDuration();
 
         // Normalize empty string to null for meetingUrl
         String meetingUrl = request.getMeetingUrl();
@@ -172,11 +148,15 @@ public class TutorBookingPlanService {
         bookingPlan.setPricePerHours(request.getPricePerHours().doubleValue());
         bookingPlan.setMeetingUrl(meetingUrl);
 
-        bookingPlanRepository.save(bookingPlan);
+        savePlan(bookingPlan);
+        tutorSearchIndex.onTutorChanged(tutor.getTutorID());
 
         int affectedSlots = 0;
         if (timeFieldsChanged) {
-            affectedSlots = adjustSlotsForNewPlan(bookingPlan, oldStartHours, oldEndHours, oldSlotDuration);
+            affectedSlots = adjustSlotsForNewPlan(bookingPlan, oldStartHours, oldEndHours);
+            // Reconcile slot trống theo template mới (tạo slot mới, xoá slot không còn khớp)
+            BookingSlotMaterializer.Result materialized = bookingSlotMaterializer.materialize(bookingPlan);
+            affectedSlots += materialized.created() + materialized.removed();
         }
 
         return BookingPlanUpdateResponse.builder()
@@ -194,6 +174,7 @@ public class TutorBookingPlanService {
      */
     public void deleteAllBookingPlansForTutor(Long tutorId) {
         log.info("Deleting all booking plans for tutor {}", tutorId);
+        tutorScheduleIndex.lockTutor(tutorId);
         
         // Lấy tất cả booking plans của tutor
         List<BookingPlan> allPlans = bookingPlanRepository.findByTutorID(tutorId);
@@ -203,113 +184,12 @@ public class TutorBookingPlanService {
             return;
         }
 
-        int totalPlansDeleted = 0;
-        int totalSlotsWithLearner = 0;
-
-        // Xóa từng booking plan
-        for (BookingPlan plan : allPlans) {
-            // Lấy tất cả slots của booking plan
-            List<BookingPlanSlot> allSlots = bookingPlanSlotRepository
-                    .findByBookingPlanIDOrderByStartTimeAsc(plan.getBookingPlanID());
-
-            // Xử lý từng slot có learner
-            for (BookingPlanSlot slot : allSlots) {
-                Long learnerUserId = slot.getUserID();
-                
-                if (learnerUserId != null) {
-                    // Slot có learner → gửi thông báo và xóa
-                    totalSlotsWithLearner++;
-                    handleSlotDeletionForTutorSuspension(slot, plan, learnerUserId);
-                    bookingPlanSlotRepository.delete(slot);
-                } else {
-                    // Slot không có learner → xóa trực tiếp
-                    bookingPlanSlotRepository.delete(slot);
-                }
-            }
-
-            // Xóa booking plan
-            bookingPlanRepository.delete(plan);
-            totalPlansDeleted++;
-        }
+        // Xoá theo lô: refund / notification batch insert, slot + plan xoá bằng bulk DELETE
+        BookingPlanTeardownService.TeardownReport report = bookingPlanTeardownService.teardown(
+                allPlans, BookingPlanTeardownService.Reason.TUTOR_SUSPENDED, null);
 
         log.info("Deleted {} booking plans for tutor {} ({} slots had learners and notifications were sent)", 
-                totalPlansDeleted, tutorId, totalSlotsWithLearner);
-    }
-
-    /**
-     * Xử lý xóa slot khi tutor bị suspend/delete: chỉ thông báo cho learner (không thông báo cho tutor)
-     */
-    private void handleSlotDeletionForTutorSuspension(BookingPlanSlot slot, BookingPlan plan, Long learnerUserId) {
-        if (slot.getStatus() == SlotStatus.Locked) {
-            // Slot đang thanh toán → hủy payment link và thông báo
-            if (slot.getPaymentID() != null) {
-                Payment payment = paymentRepository.findById(slot.getPaymentID()).orElse(null);
-                if (payment != null && payment.getPaymentLinkId() != null) {
-//                    try {
-//                        payOSService.cancelPaymentLink(payment.getPaymentLinkId());
-//                        payment.setStatus(PaymentStatus.CANCELLED);
-//                        payment.setIsPaid(false);
-//                        payment.setPaidAt(null);
-//                        payment.setExpiresAt(LocalDateTime.now());
-//                        paymentRepository.save(payment);
-//                        log.info("Payment {} cancelled due to tutor suspension/deletion", payment.getPaymentID());
-//                    } catch (Exception e) {
-//                        log.error("Cannot cancel payment link {}", payment.getPaymentLinkId(), e);
-//                    }
-                }
-            }
-
-//            // Thông báo cho learner
-//            sendNotification(
-//                    learnerUserId,
-//                    "Lịch học đã bị hủy - Tutor đã bị khóa tài khoản",
-//                    "Buổi học vào lúc " + formatDateTime(slot.getStartTime()) +
-//                            " đã bị hủy do tutor bị khóa tài khoản. " +
-//                            "Link thanh toán đã bị vô hiệu hoá, bạn sẽ không bị trừ tiền. " +
-//                            "Vui lòng chọn tutor và lịch học mới.",
-//                    NotificationType.TUTOR_CANCEL_BOOKING,
-//                    "/learner/booking"
-//            );
-        } else if (slot.getStatus() == SlotStatus.Paid) {
-            // Slot đã thanh toán → tạo refund request và thông báo
-            BigDecimal refundAmount = calculateRefundAmount(slot, plan);
-
-            RefundRequest refund = RefundRequest.builder()
-                    .bookingPlanId(plan.getBookingPlanID())
-                    .slotId(slot.getSlotID())
-                    .userId(learnerUserId)
-                    .packageId(slot.getUserPackage() != null ? slot.getUserPackage().getUserPackageID() : null)
-                    .refundAmount(refundAmount)
-                    .status(RefundStatus.PENDING)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-            refundRequestRepository.save(refund);
-
-            // Thông báo cho learner
-            notificationService.sendNotification(
-                    learnerUserId,
-                    "Lịch học đã bị hủy - Tutor đã bị khóa tài khoản - Yêu cầu hoàn tiền",
-                    "Buổi học vào lúc " + formatDateTime(slot.getStartTime()) +
-                            " đã bị hủy do tutor bị khóa tài khoản. " +
-                            "Hệ thống đã tạo yêu cầu hoàn tiền. " +
-                            "Vui lòng nhập thông tin ngân hàng để nhận tiền.",
-                    NotificationType.REFUND_AVAILABLE,
-                    "/learner/refunds"
-            );
-        } else {
-            // Slot Available nhưng có userID
-            // Thông báo cho learner
-            notificationService.sendNotification(
-                    learnerUserId,
-                    "Lịch học đã bị hủy - Tutor đã bị khóa tài khoản",
-                    "Buổi học vào lúc " + formatDateTime(slot.getStartTime()) +
-                            " đã bị hủy do tutor bị khóa tài khoản. " +
-                            "Vui lòng chọn tutor và lịch học mới.",
-                    NotificationType.TUTOR_CANCEL_BOOKING,
-                    "/learner/booking"
-            );
-        }
+                report.plans(), tutorId, report.slotsWithLearner());
     }
 
     // =========================================================
@@ -317,41 +197,23 @@ public class TutorBookingPlanService {
     // =========================================================
     public OperationStatusResponse deleteBookingPlan(Long currentUserId, Long bookingPlanId) {
         Tutor tutor = getApprovedTutorByUserId(currentUserId);
+        tutorScheduleIndex.lockTutor(tutor.getTutorID());
         BookingPlan bookingPlan = bookingPlanRepository.findById(bookingPlanId)
                 .orElseThrow(() -> new AppException(ErrorCode.BOOKING_PLAN_NOT_FOUND));
 
         ensurePlanOwner(tutor, bookingPlan);
         log.info("Tutor {} (approved) deleting booking plan {}", tutor.getTutorID(), bookingPlanId);
 
-        // Lấy tất cả slots của booking plan
-        List<BookingPlanSlot> allSlots = bookingPlanSlotRepository
-                .findByBookingPlanIDOrderByStartTimeAsc(bookingPlanId);
-
         // Lấy tutor user ID để gửi thông báo
         Long tutorUserId = tutor.getUser() != null ? tutor.getUser().getUserID() : null;
 
-        int slotsWithLearner = 0;
-        int deletedSlots = 0;
+        // Xoá theo lô: huỷ payment / refund / notification theo batch, slot + plan xoá bằng bulk DELETE
+        BookingPlanTeardownService.TeardownReport report = bookingPlanTeardownService.teardown(
+                List.of(bookingPlan), BookingPlanTeardownService.Reason.PLAN_DELETED, tutorUserId);
+        tutorSearchIndex.onTutorChanged(tutor.getTutorID());
 
-        // Xử lý từng slot có learner
-        for (BookingPlanSlot slot : allSlots) {
-            Long learnerUserId = slot.getUserID();
-            
-            if (learnerUserId != null) {
-                // Slot có learner → gửi thông báo và xóa
-                slotsWithLearner++;
-                handleSlotDeletion(slot, bookingPlan, learnerUserId, tutorUserId);
-                bookingPlanSlotRepository.delete(slot);
-                deletedSlots++;
-            } else {
-                // Slot không có learner → xóa trực tiếp
-                bookingPlanSlotRepository.delete(slot);
-                deletedSlots++;
-            }
-        }
-
-        // Xóa booking plan
-        bookingPlanRepository.delete(bookingPlan);
+        int deletedSlots = report.slotsDeleted();
+        int slotsWithLearner = report.slotsWithLearner();
 
         String message = String.format(
                 "Booking plan deleted. %d slots deleted (%d slots had learners and notifications were sent).",
@@ -364,121 +226,6 @@ public class TutorBookingPlanService {
         return OperationStatusResponse.success(message);
     }
 
-    /**
-     * Xử lý xóa slot có learner: gửi thông báo cho cả tutor và learner, xử lý payment/refund
-     */
-    private void handleSlotDeletion(BookingPlanSlot slot, BookingPlan plan, Long learnerUserId, Long tutorUserId) {
-        if (slot.getStatus() == SlotStatus.Locked) {
-            // Slot đang thanh toán → hủy payment link và thông báo
-            if (slot.getPaymentID() != null) {
-                Payment payment = paymentRepository.findById(slot.getPaymentID()).orElse(null);
-                if (payment != null && payment.getPaymentLinkId() != null) {
-                    try {
-                        payOSService.cancelPaymentLink(payment.getPaymentLinkId());
-                        payment.setStatus(PaymentStatus.CANCELLED);
-                        payment.setIsPaid(false);
-                        payment.setPaidAt(null);
-                        payment.setExpiresAt(LocalDateTime.now());
-                        paymentRepository.save(payment);
-                        log.info("Payment {} cancelled due to booking plan deletion", payment.getPaymentID());
-                    } catch (Exception e) {
-                        log.error("Cannot cancel payment link {}", payment.getPaymentLinkId(), e);
-                    }
-                }
-            }
-
-            // Thông báo cho learner
-            notificationService.sendNotification(
-                    learnerUserId,
-                    "Lịch học đã bị hủy",
-                    "Buổi học vào lúc " + formatDateTime(slot.getStartTime()) +
-                            " đã bị hủy do tutor xóa lịch làm việc. " +
-                            "Link thanh toán đã bị vô hiệu hoá, bạn sẽ không bị trừ tiền. " +
-                            "Vui lòng chọn lịch học mới.",
-                    NotificationType.TUTOR_CANCEL_BOOKING,
-                    "/learner/booking"
-            );
-
-            // Thông báo cho tutor
-            if (tutorUserId != null) {
-                notificationService.sendNotification(
-                        tutorUserId,
-                        "Đã xóa slot có learner đang thanh toán",
-                        "Buổi học vào lúc " + formatDateTime(slot.getStartTime()) +
-                                " có learner đang thanh toán đã bị xóa khi bạn xóa lịch làm việc. " +
-                                "Hệ thống đã hủy link thanh toán và thông báo cho learner.",
-                        NotificationType.TUTOR_CANCEL_BOOKING,
-                        "/tutor/booking-plan"
-                );
-            }
-        } else if (slot.getStatus() == SlotStatus.Paid) {
-            // Slot đã thanh toán → tạo refund request và thông báo
-            BigDecimal refundAmount = calculateRefundAmount(slot, plan);
-
-            RefundRequest refund = RefundRequest.builder()
-                    .bookingPlanId(plan.getBookingPlanID())
-                    .slotId(slot.getSlotID())
-                    .userId(learnerUserId)
-                    .packageId(slot.getUserPackage() != null ? slot.getUserPackage().getUserPackageID() : null)
-                    .refundAmount(refundAmount)
-                    .status(RefundStatus.PENDING)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-            refundRequestRepository.save(refund);
-
-            // Thông báo cho learner
-            notificationService.sendNotification(
-                    learnerUserId,
-                    "Lịch học đã bị hủy - Yêu cầu hoàn tiền",
-                    "Buổi học vào lúc " + formatDateTime(slot.getStartTime()) +
-                            " đã bị hủy do tutor xóa lịch làm việc. " +
-                            "Hệ thống đã tạo yêu cầu hoàn tiền. " +
-                            "Vui lòng nhập thông tin ngân hàng để nhận tiền.",
-                    NotificationType.REFUND_AVAILABLE,
-                    "/learner/refunds"
-            );
-
-            // Thông báo cho tutor
-            if (tutorUserId != null) {
-                notificationService.sendNotification(
-                        tutorUserId,
-                        "Đã xóa slot đã thanh toán - Yêu cầu hoàn tiền",
-                        "Buổi học vào lúc " + formatDateTime(slot.getStartTime()) +
-                                " đã được thanh toán nhưng đã bị xóa khi bạn xóa lịch làm việc. " +
-                                "Hệ thống đã tạo yêu cầu hoàn tiền cho learner.",
-                        NotificationType.REFUND_AVAILABLE,
-                        "/tutor/booking-plan"
-                );
-            }
-        } else {
-            // Slot Available nhưng có userID (có thể là trường hợp đặc biệt)
-            // Thông báo cho learner
-            notificationService.sendNotification(
-                    learnerUserId,
-                    "Lịch học đã bị hủy",
-                    "Buổi học vào lúc " + formatDateTime(slot.getStartTime()) +
-                            " đã bị hủy do tutor xóa lịch làm việc. " +
-                            "Vui lòng chọn lịch học mới.",
-                    NotificationType.TUTOR_CANCEL_BOOKING,
-                    "/learner/booking"
-            );
-
-            // Thông báo cho tutor
-            if (tutorUserId != null) {
-                notificationService.sendNotification(
-                        tutorUserId,
-                        "Đã xóa slot có learner",
-                        "Buổi học vào lúc " + formatDateTime(slot.getStartTime()) +
-                                " có learner đã book nhưng đã bị xóa khi bạn xóa lịch làm việc. " +
-                                "Hệ thống đã thông báo cho learner.",
-                        NotificationType.TUTOR_CANCEL_BOOKING,
-                        "/tutor/booking-plan"
-                );
-            }
-        }
-    }
-
     // =========================================================
     // QUERY
     // =========================================================
@@ -533,12 +280,19 @@ public class TutorBookingPlanService {
                         (existing, replacement) -> existing
                 ));
 
+        // Slot của tất cả plan trong 1 query, group theo plan (giữ thứ tự startTime)
+        Map<Long, List<BookingPlanSlot>> slotsByPlan = meetingUrlMap.isEmpty()
+                ? Map.of()
+                : bookingPlanSlotRepository
+                        .findByBookingPlanIDInOrderByStartTimeAscSlotIDAsc(meetingUrlMap.keySet())
+                        .stream()
+                        .collect(Collectors.groupingBy(BookingPlanSlot::getBookingPlanID));
+
         List<BookingPlanDetailResponse> planDetailResponses = plans.stream()
                 .map(plan -> {
-                    List<BookingPlanSlot> slots = bookingPlanSlotRepository
-                            .findByBookingPlanIDOrderByStartTimeAsc(plan.getBookingPlanID());
-                    
-                    List<BookingPlanSlotSummaryResponse> slotResponses = slots.stream()
+                    List<BookingPlanSlotSummaryResponse> slotResponses = slotsByPlan
+                            .getOrDefault(plan.getBookingPlanID(), List.of())
+                            .stream()
                             .map(slot -> toSlotSummary(slot, meetingUrlMap))
                             .toList();
 
@@ -555,13 +309,67 @@ public class TutorBookingPlanService {
                 .build();
     }
 
+    /**
+     * Lịch 1 tuần (thứ 2 -> chủ nhật chứa date) của tutor: khung giờ các plan + slot đã có learner (Locked / Paid).
+     * Đọc từ TutorScheduleIndex, không query slot theo từng plan.
+     */
+    @Transactional(readOnly = true)
+    public TutorWeekCalendarResponse getMyWeekCalendar(Long currentUserId, LocalDate date) {
+        Tutor tutor = getApprovedTutorByUserId(currentUserId);
+        LocalDate weekStart = (date != null ? date : LocalDate.now())
+                .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDateTime from = weekStart.atStartOfDay();
+        LocalDateTime to = from.plusWeeks(1);
+
+        List<TutorScheduleIndex.PlanWindow> plans = tutorScheduleIndex.plans(tutor.getTutorID());
+        Map<Long, String> titleByPlan = plans.stream()
+                .collect(Collectors.toMap(TutorScheduleIndex.PlanWindow::bookingPlanId,
+                        TutorScheduleIndex.PlanWindow::title, (existing, replacement) -> existing));
+
+        List<CalendarEntryResponse> entries = new ArrayList<>();
+        for (TutorScheduleIndex.PlanWindow plan : plans) {
+            LocalDate day = weekStart.with(TemporalAdjusters.nextOrSame(mapTitleToDayOfWeek(plan.title())));
+            entries.add(CalendarEntryResponse.builder()
+                    .type("PLAN")
+                    .bookingPlanId(plan.bookingPlanId())
+                    .title(plan.title())
+                    .startTime(day.atTime(plan.start()))
+                    .endTime(day.atTime(plan.end()))
+                    .build());
+        }
+        for (TutorScheduleIndex.OccupiedSlot slot : tutorScheduleIndex.occupied(tutor.getTutorID(), from, to)) {
+            entries.add(CalendarEntryResponse.builder()
+                    .type(slot.status().name())
+                    .bookingPlanId(slot.bookingPlanId())
+                    .slotId(slot.slotId())
+                    .title(titleByPlan.get(slot.bookingPlanId()))
+                    .startTime(slot.start())
+                    .endTime(slot.end())
+                    .build());
+        }
+        entries.sort(Comparator.comparing(CalendarEntryResponse::getStartTime));
+
+        return TutorWeekCalendarResponse.builder()
+                .tutorId(tutor.getTutorID())
+                .weekStart(weekStart)
+                .weekEnd(weekStart.plusDays(6))
+                .entries(entries)
+                .build();
+    }
+
+    /**
+     * Chi tiết plan kèm slot bắt đầu trong [from, to) (null = không giới hạn)
+     */
     @Transactional(readOnly = true)
-    public BookingPlanDetailResponse getBookingPlanDetail(Long bookingPlanId) {
+    public BookingPlanDetailResponse getBookingPlanDetail(Long bookingPlanId, LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new AppException(ErrorCode.INVALID_DATE_RANGE);
+        }
         BookingPlan bookingPlan = bookingPlanRepository.findById(bookingPlanId)
                 .orElseThrow(() -> new AppException(ErrorCode.BOOKING_PLAN_NOT_FOUND));
 
         List<BookingPlanSlot> slots = bookingPlanSlotRepository
-                .findByBookingPlanIDOrderByStartTimeAsc(bookingPlanId);
+                .findPlanSlotsInRange(bookingPlanId, from, to);
 
         // Tạo map để lấy meetingUrl nhanh (chỉ cho slot đã thanh toán)
         String meetingUrl = bookingPlan.getMeetingUrl() != null ? bookingPlan.getMeetingUrl() : "";
@@ -619,24 +427,11 @@ public class TutorBookingPlanService {
      * Logic:
      * - Nếu title (ngày) đã tồn tại: cho phép tạo thêm plan cho ngày đó (số ngày không tăng)
      * - Nếu title chưa tồn tại và đã có 4 ngày: không cho phép (số ngày sẽ tăng lên 5)
-     * - Sử dụng pessimistic lock trong repository để tránh race condition
+     * - Update (excludeId != null): plan đang update không giữ title cũ nếu nó là plan duy nhất của ngày đó
+     * - Đọc từ TutorScheduleIndex, caller phải giữ tutorScheduleIndex.lockTutor
      */
-    private void validateMaxDaysPerWeek(Long tutorId, String newTitle) {
-        // Đếm số ngày duy nhất hiện tại của tutor (với pessimistic lock)
-        Long currentDaysCount = bookingPlanRepository.countDistinctDaysByTutorID(tutorId);
-        if (currentDaysCount == null) {
-            currentDaysCount = 0L;
-        }
-
-        // Kiểm tra xem title (ngày) mới đã tồn tại chưa
-        List<BookingPlan> existingPlansWithSameTitle = bookingPlanRepository
-                .findByTutorIDAndTitle(tutorId, newTitle);
-        boolean titleAlreadyExists = existingPlansWithSameTitle.stream()
-                .anyMatch(plan -> plan.getIsActive());
-
-        // Nếu tutor đã có 4 ngày và title mới chưa tồn tại, thì không cho phép
-        // Vì tạo plan mới cho ngày chưa có sẽ làm số ngày tăng lên 5, vượt quá giới hạn
-        if (currentDaysCount >= 4 && !titleAlreadyExists) {
+    private void validateMaxDaysPerWeek(Long tutorId, String newTitle, Long excludeId) {
+        if (tutorScheduleIndex.daysAfter(tutorId, newTitle, excludeId) > MAX_DAYS_PER_WEEK) {
             throw new AppException(ErrorCode.BOOKING_PLAN_MAX_DAYS_EXCEEDED);
         }
     }
@@ -648,12 +443,23 @@ public class TutorBookingPlanService {
             LocalTime endTime,
             Long excludeId
     ) {
-        List<BookingPlan> overlappingPlans = bookingPlanRepository.findOverlappingPlans(
-                tutorId, title, startTime, endTime, excludeId);
+        if (tutorScheduleIndex.overlaps(tutorId, title, startTime, endTime, excludeId)) {
+            throw new AppException(ErrorCode.BOOKING_TIME_CONFLICT);
+        }
+    }
 
-        if (!overlappingPlans.isEmpty()) {
+    // Flush ngay để unique (tutor_id, title, start_hours) báo trùng trong method (vd: instance khác vừa tạo)
+    private BookingPlan savePlan(BookingPlan bookingPlan) {
+        BookingPlan saved;
+        try {
+            saved = bookingPlanRepository.saveAndFlush(bookingPlan);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Booking plan of tutor {} conflicts at DB level: title={}, start={}",
+                    bookingPlan.getTutorID(), bookingPlan.getTitle(), bookingPlan.getStartHours());
             throw new AppException(ErrorCode.BOOKING_TIME_CONFLICT);
         }
+        tutorScheduleIndex.onPlanSaved(saved);
+        return saved;
     }
 
     private Tutor getApprovedTutorByUserId(Long currentUserId) {
@@ -698,26 +504,14 @@ public class TutorBookingPlanService {
     /**
      * Điều chỉnh slots khi update booking plan theo 3 trường hợp:
      * 1. Slot trùng giữa thời gian cũ và mới → GIỮ NGUYÊN
-     * 2. Slot có trong thời gian mới nhưng không tồn tại trước đó → TẠO MỚI
+     * 2. Slot có trong thời gian mới nhưng không tồn tại trước đó → TẠO MỚI (BookingSlotMaterializer)
      * 3. Slot cũ không còn nằm trong thời gian mới → XOÁ (nếu không có learner) hoặc giữ lại và thông báo (nếu có learner)
      */
-    private int adjustSlotsForNewPlan(BookingPlan plan, LocalTime oldStartHours, LocalTime oldEndHours, Integer oldSlotDuration) {
+    private int adjustSlotsForNewPlan(BookingPlan plan, LocalTime oldStartHours, LocalTime oldEndHours) {
         List<BookingPlanSlot> existingSlots = bookingPlanSlotRepository
                 .findByBookingPlanIDOrderByStartTimeAsc(plan.getBookingPlanID());
 
-        // Tính toán thời gian trùng nhau giữa cũ và mới
-        LocalTime intersectionStart = oldStartHours.isBefore(plan.getStartHours()) 
-                ? plan.getStartHours() 
-                : oldStartHours;
-        LocalTime intersectionEnd = oldEndHours.isBefore(plan.getEndHours()) 
-                ? oldEndHours 
-                : plan.getEndHours();
-        
-        // Nếu không có intersection, tất cả slots cũ sẽ bị xử lý
-        boolean hasIntersection = !intersectionStart.isAfter(intersectionEnd);
-
         int affected = 0;
-        int created = 0;
         int deleted = 0;
         int kept = 0;
 
@@ -738,9 +532,7 @@ public class TutorBookingPlanService {
 
             if (isInNewTime && isInOldTime) {
                 // TRƯỜNG HỢP 1: Slot trùng giữa thời gian cũ và mới → GIỮ NGUYÊN
-                // Đảm bảo slot duration vẫn hợp lệ với slot duration mới
-                // Nếu slot duration thay đổi, slot cũ vẫn được giữ nguyên (vì đã có learner hoặc đã được book)
-                // Không làm gì cả, giữ nguyên toàn bộ thông tin slot (userID, status, paymentID, etc.)
+                // Slot trống lệch template mới (đổi duration / ngày) sẽ được materializer reconcile
                 kept++;
                 log.debug("Slot {} kept unchanged (overlapping time range)", slot.getSlotID());
             } else if (!isInNewTime) {
@@ -753,127 +545,19 @@ public class TutorBookingPlanService {
                 }
                 affected++;
             }
-            // Nếu slot chỉ nằm trong thời gian mới nhưng không nằm trong thời gian cũ
-            // → Đây là slot mới, sẽ được tạo ở bước sau
-        }
-
-        // TRƯỜNG HỢP 2: Tạo slots mới cho thời gian mới
-        if (hasIntersection) {
-            // Tạo slots cho phần thời gian mới ngoài intersection
-            created += generateSlotsForTimeRange(
-                    plan,
-                    plan.getStartHours(),
-                    intersectionStart,
-                    existingSlots
-            );
-            created += generateSlotsForTimeRange(
-                    plan,
-                    intersectionEnd,
-                    plan.getEndHours(),
-                    existingSlots
-            );
-        } else {
-            // Không có intersection, tạo toàn bộ slots mới
-            created += generateSlotsForTimeRange(
-                    plan,
-                    plan.getStartHours(),
-                    plan.getEndHours(),
-                    existingSlots
-            );
-        }
-
-        log.info("Updated booking plan {}: kept={}, created={}, deleted={}, affected={}", 
-                plan.getBookingPlanID(), kept, created, deleted, affected);
-
-        return affected + created;
-    }
-
-    /**
-     * Tạo slots mới cho một khoảng thời gian, tránh trùng với slots đã tồn tại
-     */
-    private int generateSlotsForTimeRange(
-            BookingPlan plan,
-            LocalTime rangeStart,
-            LocalTime rangeEnd,
-            List<BookingPlanSlot> existingSlots
-    ) {
-        if (rangeStart.isAfter(rangeEnd) || rangeStart.equals(rangeEnd)) {
-            return 0;
-        }
-
-        int created = 0;
-        LocalTime currentStart = rangeStart;
-        
-        while (currentStart.isBefore(rangeEnd)) {
-            final LocalTime slotStart = currentStart; // Final variable for lambda
-            LocalTime currentEnd = currentStart.plusMinutes(plan.getSlotDuration());
-            
-            // Nếu vượt quá rangeEnd, dừng lại
-            if (currentEnd.isAfter(rangeEnd)) {
-                break;
-            }
-
-            final LocalTime slotEnd = currentEnd; // Final variable for lambda
-
-            // Kiểm tra xem slot này đã tồn tại chưa (so sánh theo thời gian)
-            boolean slotExists = existingSlots.stream()
-                    .anyMatch(slot -> {
-                        LocalTime existingSlotStart = slot.getStartTime().toLocalTime();
-                        LocalTime existingSlotEnd = slot.getEndTime().toLocalTime();
-                        return existingSlotStart.equals(slotStart) && existingSlotEnd.equals(slotEnd);
-                    });
-
-            if (!slotExists) {
-                // Tạo slot mới - cần xác định ngày cụ thể
-                // Vì booking plan chỉ có thời gian (LocalTime), cần xác định ngày từ title hoặc sử dụng ngày hiện tại
-                // Giả sử slots được tạo cho các tuần sắp tới, bắt đầu từ tuần hiện tại
-                LocalDateTime slotStartDateTime = getNextOccurrenceOfDay(
-                        plan.getTitle(),
-                        slotStart
-                );
-                LocalDateTime slotEndDateTime = slotStartDateTime.plusMinutes(plan.getSlotDuration());
-
-                BookingPlanSlot newSlot = BookingPlanSlot.builder()
-                        .bookingPlanID(plan.getBookingPlanID())
-                        .tutorID(plan.getTutorID())
-                        .userID(null) // Chưa có learner
-                        .startTime(slotStartDateTime)
-                        .endTime(slotEndDateTime)
-                        .status(SlotStatus.Available)
-                        .build();
-
-//                bookingPlanSlotRepository.save(newSlot);
-//                created++;
-            }
-
-            currentStart = currentEnd;
+            // TRƯỜNG HỢP 2: slot mới được tạo bởi BookingSlotMaterializer sau bước này
         }
 
-        return created;
-    }
-
-    /**
-     * Lấy ngày tiếp theo của một ngày trong tuần (dựa trên title)
-     * Ví dụ: "Monday" → thứ 2 tuần này hoặc tuần sau
-     */
-    private LocalDateTime getNextOccurrenceOfDay(String dayTitle, LocalTime time) {
-        // Map title sang DayOfWeek
-        java.time.DayOfWeek targetDay = mapTitleToDayOfWeek(dayTitle);
-        LocalDate today = LocalDate.now();
-        LocalDate nextOccurrence = today;
-
-        // Tìm ngày tiếp theo có DayOfWeek trùng với targetDay
-        while (nextOccurrence.getDayOfWeek() != targetDay) {
-            nextOccurrence = nextOccurrence.plusDays(1);
-        }
+        log.info("Updated booking plan {}: kept={}, deleted={}, affected={}", 
+                plan.getBookingPlanID(), kept, deleted, affected);
 
-        return LocalDateTime.of(nextOccurrence, time);
+        return affected;
     }
 
     /**
      * Map title (ví dụ: "Monday", "Thứ 2") sang DayOfWeek
      */
-    private java.time.DayOfWeek mapTitleToDayOfWeek(String title) {
+    static java.time.DayOfWeek mapTitleToDayOfWeek(String title) {
         String lowerTitle = title.toLowerCase().trim();
         
         // Hỗ trợ tiếng Anh
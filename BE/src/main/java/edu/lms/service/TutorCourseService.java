@@ -37,6 +37,7 @@ public class TutorCourseService {
     LessonRepository lessonRepository;
     LessonResourceRepository lessonResourceRepository;
     TutorCourseMapper tutorCourseMapper;
+    CourseStatsService courseStatsService;
     CourseObjectiveRepository courseObjectiveRepository;
     CourseObjectiveDraftRepository courseObjectiveDraftRepository;
 
@@ -113,6 +114,8 @@ public class TutorCourseService {
         course.setLevel(request.getLevel());
 
         courseRepository.save(course);
+        // Catalog join CourseStats -> tạo row stats ngay khi có course
+        courseStatsService.ensureStats(course.getCourseID());
 
         log.info("Tutor [{}] created new course [{}]", tutor.getTutorID(), course.getTitle());
         return tutorCourseMapper.toTutorCourseResponse(course);
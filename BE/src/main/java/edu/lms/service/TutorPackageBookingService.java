@@ -27,6 +27,8 @@ public class TutorPackageBookingService {
 
     BookingPlanSlotRepository bookingPlanSlotRepository;
     UserPackageRepository userPackageRepository;
+    TutorAvailabilityIndex tutorAvailabilityIndex;
+    ExpiryWheelScheduler expiryWheelScheduler;
 
     public OperationStatusResponse lockSlots(Long currentUserId, PackageSlotRequest request) {
         UserPackage userPackage = getUserPackage(currentUserId, request.getUserPackageId());
@@ -35,28 +37,20 @@ public class TutorPackageBookingService {
         validateSlotQuota(userPackage, request.getSlotIds().size());
 
         List<BookingPlanSlot> slots = getSlotsOrThrow(request.getSlotIds());
-        validateSlotsBelongToTutor(slots, userPackage.getTutorPackage().getTutor());
+        Tutor tutor = userPackage.getTutorPackage().getTutor();
+        validateSlotsBelongToTutor(slots, tutor);
 
+        // Lock bằng 1 câu UPDATE có điều kiện (Available / hết hạn, chưa bắt đầu) -> không double-booking
         LocalDateTime now = LocalDateTime.now();
-
-        for (BookingPlanSlot slot : slots) {
-            releaseIfExpired(slot);
-
-            if (slot.getStatus() != SlotStatus.Available || slot.getUserID() != null) {
-                throw new AppException(ErrorCode.BOOKING_SLOT_NOT_AVAILABLE);
-            }
-
-            if (!slot.getStartTime().isAfter(now)) {
-                throw new AppException(ErrorCode.BOOKING_SLOT_NOT_AVAILABLE);
-            }
-
-            slot.setUserID(currentUserId);
-            slot.setStatus(SlotStatus.Locked);
-            slot.setLockedAt(now);
-            slot.setExpiresAt(now.plusMinutes(10));
+        int locked = bookingPlanSlotRepository.lockIfAvailable(
+                request.getSlotIds(), currentUserId, null, now, now.plusMinutes(10));
+        if (locked != slots.size()) {
+            throw new AppException(ErrorCode.BOOKING_SLOT_NOT_AVAILABLE);
         }
 
-        bookingPlanSlotRepository.saveAll(slots);
+        // Bulk UPDATE không đi qua entity listener
+        tutorAvailabilityIndex.onTutorChanged(tutor.getTutorID());
+        expiryWheelScheduler.onSlotsLocked(request.getSlotIds(), now.plusMinutes(10));
         return OperationStatusResponse.success("Slots locked successfully.");
     }
 
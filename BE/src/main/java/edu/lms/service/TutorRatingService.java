@@ -0,0 +1,120 @@
+package edu.lms.service;
+
+import edu.lms.entity.TutorRatingStats;
+import edu.lms.repository.CourseReviewRepository;
+import edu.lms.repository.TutorRatingStatsRepository;
+import edu.lms.repository.TutorRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Rating trung bình của tutor = ratingSum / reviewCount trên toàn bộ review
+ * của các course thuộc tutor. Mỗi review tạo/xóa chỉ cập nhật 1 row (O(1)),
+ * job đối soát tính lại tất cả tutor bằng 1 grouped query.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TutorRatingService {
+
+    private final TutorRatingStatsRepository tutorRatingStatsRepository;
+    private final TutorRepository tutorRepository;
+    private final CourseReviewRepository courseReviewRepository;
+    private final TutorSearchIndex tutorSearchIndex;
+
+    @Transactional
+    public void addReview(Long tutorId, Double rating) {
+        apply(tutorId, rating == null ? 0.0 : rating, 1L);
+    }
+
+    @Transactional
+    public void removeReview(Long tutorId, Double rating) {
+        apply(tutorId, rating == null ? 0.0 : -rating, -1L);
+    }
+
+    private void apply(Long tutorId, double ratingDelta, long delta) {
+        if (tutorId == null) return;
+        LocalDateTime now = LocalDateTime.now();
+        TutorRatingStats stats;
+        if (tutorRatingStatsRepository.applyReview(tutorId, ratingDelta, delta, now) == 0) {
+            // Chưa có stats -> tính lại riêng tutor này (review hiện tại đã được flush)
+            stats = recompute(tutorId);
+        } else {
+            stats = tutorRatingStatsRepository.findById(tutorId).orElseGet(() -> recompute(tutorId));
+        }
+        tutorRepository.updateRating(tutorId, toRating(stats.getRatingSum(), stats.getReviewCount()), now);
+        tutorSearchIndex.onTutorChanged(tutorId);
+    }
+
+    private TutorRatingStats recompute(Long tutorId) {
+        Object[] row = courseReviewRepository.sumRatingByTutor(tutorId).get(0);
+        return tutorRatingStatsRepository.save(TutorRatingStats.builder()
+                .tutorID(tutorId)
+                .ratingSum(((Number) row[0]).doubleValue())
+                .reviewCount(((Number) row[1]).longValue())
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Đối soát: tính lại rating của toàn bộ tutor trong 1 lần quét review.
+     * @return số tutor có stats bị lệch
+     */
+    @Scheduled(cron = "${app.rating.recompute-cron:0 30 3 * * *}") // mặc định 03:30 mỗi ngày
+    @Transactional
+    public int reconcileAll() {
+        Map<Long, TutorRatingStats> current = tutorRatingStatsRepository.findAll().stream()
+                .collect(Collectors.toMap(TutorRatingStats::getTutorID, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> seen = new HashSet<>();
+        List<TutorRatingStats> toSave = new ArrayList<>();
+        int drifted = 0;
+
+        for (Object[] row : courseReviewRepository.sumRatingGroupByTutor()) {
+            Long tutorId = (Long) row[0];
+            double sum = row[1] == null ? 0.0 : ((Number) row[1]).doubleValue();
+            long count = ((Number) row[2]).longValue();
+            seen.add(tutorId);
+
+            TutorRatingStats s = current.get(tutorId);
+            if (s != null && s.getReviewCount() == count && Math.abs(s.getRatingSum() - sum) < 1e-9) {
+                continue;
+            }
+            drifted++;
+            toSave.add(TutorRatingStats.builder()
+                    .tutorID(tutorId).ratingSum(sum).reviewCount(count).updatedAt(now).build());
+            tutorRepository.updateRating(tutorId, toRating(sum, count), now);
+        }
+
+        // Tutor có stats nhưng không còn review nào
+        for (TutorRatingStats s : current.values()) {
+            if (seen.contains(s.getTutorID()) || s.getReviewCount() == 0) continue;
+            drifted++;
+            s.setRatingSum(0.0);
+            s.setReviewCount(0L);
+            s.setUpdatedAt(now);
+            toSave.add(s);
+            tutorRepository.updateRating(s.getTutorID(), BigDecimal.ZERO, now);
+        }
+
+        tutorRatingStatsRepository.saveAll(toSave);
+        log.info("[TUTOR RATING] Reconciled {} tutors, {} drifted", seen.size(), drifted);
+        return drifted;
+    }
+
+    private static BigDecimal toRating(double sum, long count) {
+        if (count <= 0) return BigDecimal.ZERO;
+        return BigDecimal.valueOf(sum / count).setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,277 @@
+package edu.lms.service;
+
+import edu.lms.entity.BookingPlan;
+import edu.lms.entity.BookingPlanSlot;
+import edu.lms.enums.SlotStatus;
+import edu.lms.exception.AppException;
+import edu.lms.exception.ErrorCode;
+import edu.lms.repository.BookingPlanRepository;
+import edu.lms.repository.BookingPlanSlotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Index lịch theo tutor (in-memory), thay cho các query PESSIMISTIC_WRITE / READ khi tạo / sửa booking plan:
+ *  - plansByTitle: title (ngày) -> TreeMap startHours -> khung giờ của plan active (không chồng nhau)
+ *    => kiểm tra overlap = lowerEntry, đếm số ngày = số title.
+ *  - occupied: slot Locked / Paid từ 00:00 ngày nạp, TreeMap theo startTime (lịch "tuần của tôi").
+ * Nạp lười theo tutor. Plan cập nhật sau commit (onPlanSaved / onPlansRemoved);
+ * slot đổi -> bỏ occupied (TutorAvailabilityIndex.onTutorChanged gọi invalidateOccupied).
+ * Tạo / sửa / xoá plan của cùng tutor được tuần tự hoá bằng striped lock (lockTutor), giữ tới hết transaction.
+ * Lock chỉ có tác dụng trong 1 instance: unique (tutor_id, title, start_hours) của booking_plan là chốt chặn cuối.
+ */
+@Slf4j
+@Component
+public class TutorScheduleIndex {
+
+    public record PlanWindow(Long bookingPlanId, String title, LocalTime start, LocalTime end, Integer slotDuration) {}
+
+    public record OccupiedSlot(Long slotId, Long bookingPlanId, LocalDateTime start, LocalDateTime end, SlotStatus status) {}
+
+    // Truy cập trong synchronized (schedule)
+    private static final class Schedule {
+        final Map<String, NavigableMap<LocalTime, PlanWindow>> plansByTitle = new HashMap<>();
+        LocalDateTime occupiedFrom; // null = chưa nạp occupied
+        NavigableMap<LocalDateTime, OccupiedSlot> occupied;
+    }
+
+    private final BookingPlanRepository bookingPlanRepository;
+    private final BookingPlanSlotRepository bookingPlanSlotRepository;
+    private final ReentrantLock[] stripes;
+    private final long lockTimeoutMs;
+
+    private final ConcurrentHashMap<Long, Schedule> schedules = new ConcurrentHashMap<>();
+    // Tăng mỗi lần dữ liệu của tutor đổi; bản nạp từ DB chỉ được cache nếu generation không đổi trong lúc query
+    private final ConcurrentHashMap<Long, Long> generations = new ConcurrentHashMap<>();
+
+    public TutorScheduleIndex(
+            BookingPlanRepository bookingPlanRepository,
+            BookingPlanSlotRepository bookingPlanSlotRepository,
+            @Value("${app.schedule.lock-stripes:64}") int lockStripes,
+            @Value("${app.schedule.lock-timeout-ms:5000}") long lockTimeoutMs
+    ) {
+        this.bookingPlanRepository = bookingPlanRepository;
+        this.bookingPlanSlotRepository = bookingPlanSlotRepository;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.stripes = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) stripes[i] = new ReentrantLock();
+    }
+
+    // ======================================================
+    // STRIPED LOCK
+    // ======================================================
+    /**
+     * Khoá lịch của tutor tới khi transaction hiện tại kết thúc (commit / rollback).
+     * Index được cập nhật ở afterCommit, trước khi lock nhả ở afterCompletion,
+     * nên request kế tiếp của cùng tutor luôn thấy plan vừa lưu.
+     */
+    public void lockTutor(Long tutorId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("lockTutor requires an active transaction");
+        }
+        ReentrantLock lock = stripes[Math.floorMod(Long.hashCode(tutorId), stripes.length)];
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            log.warn("[SCHEDULE] Timed out waiting for schedule lock of tutor {}", tutorId);
+            throw new AppException(ErrorCode.BOOKING_PLAN_BUSY);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    // ======================================================
+    // QUERY
+    // ======================================================
+    /**
+     * Có plan active nào cùng title (ngày) chồng lên [start, end) không (bỏ qua excludeId).
+     */
+    public boolean overlaps(Long tutorId, String title, LocalTime start, LocalTime end, Long excludeId) {
+        Schedule schedule = schedule(tutorId);
+        synchronized (schedule) {
+            NavigableMap<LocalTime, PlanWindow> day = schedule.plansByTitle.get(title);
+            if (day == null) return false;
+            // Các plan trong 1 ngày không chồng nhau -> end tăng dần theo start,
+            // plan đầu tiên (khác excludeId) bắt đầu trước end là plan duy nhất cần xét
+            for (PlanWindow window : day.headMap(end, false).descendingMap().values()) {
+                if (window.bookingPlanId().equals(excludeId)) continue;
+                return window.end().isAfter(start);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Số ngày (title khác nhau) của tutor nếu plan excludeId (null = plan mới) nằm ở title.
+     */
+    public int daysAfter(Long tutorId, String title, Long excludeId) {
+        Schedule schedule = schedule(tutorId);
+        synchronized (schedule) {
+            Set<String> titles = new HashSet<>();
+            schedule.plansByTitle.forEach((t, day) -> {
+                boolean onlyExcluded = day.size() == 1
+                        && day.firstEntry().getValue().bookingPlanId().equals(excludeId);
+                if (!onlyExcluded) titles.add(t);
+            });
+            titles.add(title);
+            return titles.size();
+        }
+    }
+
+    public List<PlanWindow> plans(Long tutorId) {
+        Schedule schedule = schedule(tutorId);
+        synchronized (schedule) {
+            List<PlanWindow> result = new ArrayList<>();
+            schedule.plansByTitle.values().forEach(day -> result.addAll(day.values()));
+            return result;
+        }
+    }
+
+    /**
+     * Slot Locked / Paid của tutor bắt đầu trong [from, to).
+     * Khoảng trước ngày nạp cache (quá khứ) đọc thẳng từ DB.
+     */
+    public List<OccupiedSlot> occupied(Long tutorId, LocalDateTime from, LocalDateTime to) {
+        Schedule schedule = schedule(tutorId);
+        LocalDateTime occupiedFrom;
+        synchronized (schedule) {
+            occupiedFrom = schedule.occupiedFrom;
+        }
+        if (occupiedFrom == null) {
+            occupiedFrom = loadOccupied(tutorId, schedule);
+        }
+        if (from.isBefore(occupiedFrom)) {
+            return bookingPlanSlotRepository.findOccupiedByTutorID(tutorId, from, to).stream()
+                    .map(TutorScheduleIndex::toOccupied)
+                    .toList();
+        }
+        synchronized (schedule) {
+            // Vừa bị invalidate sau khi nạp -> dữ liệu đang đổi, đọc DB cho chắc
+            if (schedule.occupied == null) {
+                return bookingPlanSlotRepository.findOccupiedByTutorID(tutorId, from, to).stream()
+                        .map(TutorScheduleIndex::toOccupied)
+                        .toList();
+            }
+            return List.copyOf(schedule.occupied.subMap(from, true, to, false).values());
+        }
+    }
+
+    // ======================================================
+    // UPDATE (sau commit)
+    // ======================================================
+    public void onPlanSaved(BookingPlan plan) {
+        Long tutorId = plan.getTutorID();
+        PlanWindow window = toWindow(plan);
+        boolean active = Boolean.TRUE.equals(plan.getIsActive());
+        AfterCommit.run(() -> update(tutorId, schedule -> {
+            removePlan(schedule, window.bookingPlanId());
+            if (active) putPlan(schedule, window);
+        }));
+    }
+
+    public void onPlansRemoved(Long tutorId, Collection<Long> planIds) {
+        if (tutorId == null || planIds == null || planIds.isEmpty()) return;
+        List<Long> ids = List.copyOf(planIds);
+        AfterCommit.run(() -> update(tutorId, schedule -> ids.forEach(id -> removePlan(schedule, id))));
+    }
+
+    /**
+     * Slot của tutor đổi (đã commit) -> nạp lại occupied ở lần đọc sau.
+     */
+    public void invalidateOccupied(Long tutorId) {
+        if (tutorId == null) return;
+        update(tutorId, schedule -> {
+            schedule.occupiedFrom = null;
+            schedule.occupied = null;
+        });
+    }
+
+    // ======================================================
+    // HELPERS
+    // ======================================================
+    private void update(Long tutorId, Consumer<Schedule> change) {
+        generations.merge(tutorId, 1L, Long::sum);
+        schedules.computeIfPresent(tutorId, (id, schedule) -> {
+            synchronized (schedule) {
+                change.accept(schedule);
+            }
+            return schedule;
+        });
+    }
+
+    private Schedule schedule(Long tutorId) {
+        Schedule cached = schedules.get(tutorId);
+        if (cached != null) return cached;
+
+        long generation = generations.getOrDefault(tutorId, 0L);
+        Schedule loaded = new Schedule();
+        bookingPlanRepository.findByTutorIDAndIsActiveTrueOrderByTitleAscStartHoursAsc(tutorId)
+                .forEach(plan -> putPlan(loaded, toWindow(plan)));
+
+        // Có thay đổi trong lúc query -> dùng bản vừa nạp cho lần này, không cache
+        Schedule installed = schedules.compute(tutorId, (id, current) -> current != null ? current
+                : generations.getOrDefault(id, 0L) == generation ? loaded : null);
+        return installed != null ? installed : loaded;
+    }
+
+    private LocalDateTime loadOccupied(Long tutorId, Schedule schedule) {
+        long generation = generations.getOrDefault(tutorId, 0L);
+        LocalDateTime from = LocalDate.now().atStartOfDay();
+        NavigableMap<LocalDateTime, OccupiedSlot> occupied = new TreeMap<>();
+        bookingPlanSlotRepository.findOccupiedByTutorID(tutorId, from, null)
+                .forEach(slot -> occupied.put(slot.getStartTime(), toOccupied(slot)));
+
+        synchronized (schedule) {
+            if (generations.getOrDefault(tutorId, 0L) == generation) {
+                schedule.occupiedFrom = from;
+                schedule.occupied = occupied;
+            }
+        }
+        return from;
+    }
+
+    private static void putPlan(Schedule schedule, PlanWindow window) {
+        if (window.start() == null || window.end() == null) return;
+        schedule.plansByTitle.computeIfAbsent(window.title(), t -> new TreeMap<>()).put(window.start(), window);
+    }
+
+    private static void removePlan(Schedule schedule, Long bookingPlanId) {
+        Iterator<NavigableMap<LocalTime, PlanWindow>> days = schedule.plansByTitle.values().iterator();
+        while (days.hasNext()) {
+            NavigableMap<LocalTime, PlanWindow> day = days.next();
+            day.values().removeIf(window -> window.bookingPlanId().equals(bookingPlanId));
+            if (day.isEmpty()) days.remove();
+        }
+    }
+
+    private static PlanWindow toWindow(BookingPlan plan) {
+        return new PlanWindow(plan.getBookingPlanID(), plan.getTitle(),
+                plan.getStartHours(), plan.getEndHours(), plan.getSlotDuration());
+    }
+
+    private static OccupiedSlot toOccupied(BookingPlanSlot slot) {
+        return new OccupiedSlot(slot.getSlotID(), slot.getBookingPlanID(),
+                slot.getStartTime(), slot.getEndTime(), slot.getStatus());
+    }
+}
@@ -0,0 +1,463 @@
+package edu.lms.service;
+
+import edu.lms.dto.request.TutorSearchRequest;
+import edu.lms.dto.response.TutorSearchItemResponse;
+import edu.lms.dto.response.TutorSearchResponse;
+import edu.lms.enums.TutorSearchSort;
+import edu.lms.enums.TutorStatus;
+import edu.lms.repository.TutorRepository;
+import edu.lms.repository.TutorRepository.TutorDirectoryRow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Index tìm kiếm tutor in-memory (chỉ tutor APPROVED).
+ *  - Facet (teachingLanguage, specialization, country): posting list dạng BitSet theo từng giá trị.
+ *  - Numeric (price, rating, experience): cột đã sort (slot + value) để lọc range bằng binary search
+ *    và trả kết quả theo thứ tự sort mà không cần sort lại.
+ *  - Availability (availableFrom / availableTo): giao với tập tutor rảnh từ TutorAvailabilityIndex.
+ * Load toàn bộ lúc startup, cập nhật từng tutor qua onTutorChanged (sau commit, vá tại chỗ trong các cột),
+ * rebuild định kỳ để bắt các thay đổi không đi qua hook (vd: user đổi country / avatar).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TutorSearchIndex {
+
+    enum Facet {
+        TEACHING_LANGUAGE("teachingLanguage", TutorSearchItemResponse::getTeachingLanguage, TutorSearchRequest::getTeachingLanguage),
+        SPECIALIZATION("specialization", TutorSearchItemResponse::getSpecialization, TutorSearchRequest::getSpecialization),
+        COUNTRY("country", TutorSearchItemResponse::getCountry, TutorSearchRequest::getCountry);
+
+        final String key;
+        final Function<TutorSearchItemResponse, String> docValue;
+        final Function<TutorSearchRequest, String> filterValue;
+
+        Facet(String key,
+              Function<TutorSearchItemResponse, String> docValue,
+              Function<TutorSearchRequest, String> filterValue) {
+            this.key = key;
+            this.docValue = docValue;
+            this.filterValue = filterValue;
+        }
+    }
+
+    // 1 tutor trong index; keys = giá trị facet đã normalize (để gỡ khỏi posting khi update)
+    private record Doc(TutorSearchItemResponse item, EnumMap<Facet, List<String>> keys) {}
+
+    private static final Function<Doc, Double> PRICE = d -> d.item().getPricePerHour();
+    private static final Function<Doc, Double> RATING = d -> d.item().getRating();
+    private static final Function<Doc, Double> EXPERIENCE = d -> d.item().getExperience() != null
+            ? d.item().getExperience().doubleValue() : null;
+
+    private final TutorRepository tutorRepository;
+    private final TutorAvailabilityIndex tutorAvailabilityIndex;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // slot -> doc (null = slot trống, được tái sử dụng)
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<Long, Integer> slotByTutorId = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final BitSet live = new BitSet();
+
+    // facet -> (giá trị normalize -> slots), và giá trị hiển thị (giữ nguyên hoa thường lần đầu gặp)
+    private final EnumMap<Facet, Map<String, BitSet>> postings = new EnumMap<>(Facet.class);
+    private final EnumMap<Facet, Map<String, String>> labels = new EnumMap<>(Facet.class);
+
+    private NumericColumn priceColumn = NumericColumn.EMPTY;
+    private NumericColumn ratingColumn = NumericColumn.EMPTY;
+    private NumericColumn experienceColumn = NumericColumn.EMPTY;
+
+    {
+        for (Facet f : Facet.values()) {
+            postings.put(f, new HashMap<>());
+            labels.put(f, new HashMap<>());
+        }
+    }
+
+    // ======================================================
+    // BUILD / UPDATE
+    // ======================================================
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.search.tutor.rebuild-interval-ms:900000}",
+            fixedDelayString = "${app.search.tutor.rebuild-interval-ms:900000}")
+    public void rebuild() {
+        List<TutorDirectoryRow> rows = tutorRepository.findDirectory(TutorStatus.APPROVED, null, Pageable.unpaged());
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            slotByTutorId.clear();
+            freeSlots.clear();
+            live.clear();
+            postings.values().forEach(Map::clear);
+            labels.values().forEach(Map::clear);
+            rows.forEach(this::insert);
+            rebuildColumns();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("[TUTOR SEARCH] Index rebuilt with {} tutors", rows.size());
+    }
+
+    /**
+     * Gọi khi dữ liệu của tutor đổi (approve, suspend, update info, booking plan, rating).
+     * Index được cập nhật sau khi transaction commit.
+     */
+    public void onTutorChanged(Long tutorId) {
+        if (tutorId == null) return;
+        AfterCommit.run(() -> refresh(tutorId));
+        // approve / suspend cũng làm tutor vào / ra khỏi availability index
+        tutorAvailabilityIndex.onTutorChanged(tutorId);
+    }
+
+    // Chỉ vá vị trí của tutor này trong từng cột (binary search + copy mảng), không sort lại cả index
+    public void refresh(Long tutorId) {
+        Optional<TutorDirectoryRow> row = tutorRepository.findDirectoryRow(tutorId);
+        lock.writeLock().lock();
+        try {
+            Integer oldSlot = slotByTutorId.get(tutorId);
+            Doc oldDoc = oldSlot != null ? docs.get(oldSlot) : null;
+            removeSlot(tutorId);
+            Integer newSlot = row.filter(r -> r.getStatus() == TutorStatus.APPROVED).map(this::insert).orElse(null);
+            Doc newDoc = newSlot != null ? docs.get(newSlot) : null;
+
+            priceColumn = priceColumn.replace(oldSlot, value(oldDoc, PRICE), newSlot, value(newDoc, PRICE));
+            ratingColumn = ratingColumn.replace(oldSlot, value(oldDoc, RATING), newSlot, value(newDoc, RATING));
+            experienceColumn = experienceColumn.replace(oldSlot, value(oldDoc, EXPERIENCE),
+                    newSlot, value(newDoc, EXPERIENCE));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByTutorId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ======================================================
+    // SEARCH
+    // ======================================================
+    public TutorSearchResponse search(TutorSearchRequest req) {
+        long start = System.nanoTime();
+        int page = req.getPage() != null ? req.getPage() : 0;
+        int size = req.getSize() != null ? req.getSize() : 20;
+        TutorSearchSort sort = req.getSort() != null ? req.getSort() : TutorSearchSort.RATING;
+
+        // Lọc "rảnh trong khoảng thời gian" (tính trên TutorAvailabilityIndex, ngoài lock của index này)
+        Set<Long> freeTutorIds = (req.getAvailableFrom() != null || req.getAvailableTo() != null)
+                ? tutorAvailabilityIndex.freeTutorIds(req.getAvailableFrom(), req.getAvailableTo())
+                : null;
+
+        lock.readLock().lock();
+        try {
+            // 1. Range filters (dùng chung cho kết quả và facet count)
+            BitSet numeric = (BitSet) live.clone();
+            if (req.getMinPrice() != null || req.getMaxPrice() != null) {
+                numeric.and(priceColumn.range(req.getMinPrice(), req.getMaxPrice()));
+            }
+            if (req.getMinRating() != null) {
+                numeric.and(ratingColumn.range(req.getMinRating(), null));
+            }
+            if (req.getMinExperience() != null) {
+                numeric.and(experienceColumn.range(req.getMinExperience().doubleValue(), null));
+            }
+            if (freeTutorIds != null) {
+                BitSet available = new BitSet();
+                for (Long tutorId : freeTutorIds) {
+                    Integer slot = slotByTutorId.get(tutorId);
+                    if (slot != null) available.set(slot);
+                }
+                numeric.and(available);
+            }
+
+            // 2. Facet filters
+            EnumMap<Facet, BitSet> facetFilters = new EnumMap<>(Facet.class);
+            for (Facet f : Facet.values()) {
+                String value = f.filterValue.apply(req);
+                if (value == null || value.isBlank()) continue;
+                BitSet posting = postings.get(f).get(normalize(value));
+                facetFilters.put(f, posting != null ? posting : new BitSet());
+            }
+
+            BitSet match = (BitSet) numeric.clone();
+            facetFilters.values().forEach(match::and);
+
+            // 3. Facet counts: mỗi facet đếm theo các filter còn lại (để user đổi lựa chọn trong cùng facet)
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            for (Facet f : Facet.values()) {
+                BitSet base = (BitSet) numeric.clone();
+                facetFilters.forEach((other, bits) -> {
+                    if (other != f) base.and(bits);
+                });
+                facets.put(f.key, countValues(f, base));
+            }
+
+            // 4. Sort + phân trang
+            List<Integer> ordered = switch (sort) {
+                case RATING -> ratingColumn.ordered(match, true);
+                case PRICE_ASC -> priceColumn.ordered(match, false);
+                case PRICE_DESC -> priceColumn.ordered(match, true);
+                case EXPERIENCE -> experienceColumn.ordered(match, true);
+            };
+            // Offset tính bằng long: page lớn không bị tràn int thành số âm (trả trang rỗng)
+            int from = (int) Math.min((long) page * size, ordered.size());
+            int to = Math.min(from + size, ordered.size());
+            List<TutorSearchItemResponse> items = ordered.subList(from, to).stream()
+                    .map(slot -> docs.get(slot).item())
+                    .toList();
+
+            log.debug("[TUTOR SEARCH] {} matches in {} µs", ordered.size(), (System.nanoTime() - start) / 1000);
+            return TutorSearchResponse.builder()
+                    .items(items)
+                    .total(ordered.size())
+                    .page(page)
+                    .size(size)
+                    .facets(facets)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ======================================================
+    // HELPERS (gọi khi đang giữ write lock)
+    // ======================================================
+    private int insert(TutorDirectoryRow row) {
+        TutorSearchItemResponse item = TutorSearchItemResponse.builder()
+                .tutorId(row.getTutorId())
+                .userId(row.getUserId())
+                .userName(row.getUserName())
+                .avatarURL(row.getAvatarURL())
+                .country(row.getCountry())
+                .teachingLanguage(row.getTeachingLanguage())
+                .specialization(row.getSpecialization())
+                .pricePerHour(row.getPricePerHour())
+                .rating(row.getRating() != null ? row.getRating().doubleValue() : null)
+                .experience(row.getExperience() != null ? row.getExperience().intValue() : null)
+                .build();
+
+        int slot = freeSlots.isEmpty() ? docs.size() : freeSlots.pop();
+        EnumMap<Facet, List<String>> keys = new EnumMap<>(Facet.class);
+        for (Facet f : Facet.values()) {
+            List<String> fk = new ArrayList<>();
+            for (String label : splitValues(f.docValue.apply(item))) {
+                String key = normalize(label);
+                fk.add(key);
+                postings.get(f).computeIfAbsent(key, k -> new BitSet()).set(slot);
+                labels.get(f).putIfAbsent(key, label);
+            }
+            keys.put(f, fk);
+        }
+
+        Doc doc = new Doc(item, keys);
+        if (slot == docs.size()) docs.add(doc);
+        else docs.set(slot, doc);
+        slotByTutorId.put(item.getTutorId(), slot);
+        live.set(slot);
+        return slot;
+    }
+
+    private void removeSlot(Long tutorId) {
+        Integer slot = slotByTutorId.remove(tutorId);
+        if (slot == null) return;
+        Doc doc = docs.get(slot);
+        doc.keys().forEach((f, fk) -> {
+            for (String key : fk) {
+                BitSet bits = postings.get(f).get(key);
+                if (bits == null) continue;
+                bits.clear(slot);
+                if (bits.isEmpty()) {
+                    postings.get(f).remove(key);
+                    labels.get(f).remove(key);
+                }
+            }
+        });
+        docs.set(slot, null);
+        live.clear(slot);
+        freeSlots.push(slot);
+    }
+
+    // O(n log n), chỉ dùng khi rebuild toàn bộ; cập nhật từng tutor đi qua NumericColumn.replace
+    private void rebuildColumns() {
+        priceColumn = NumericColumn.build(docs, PRICE);
+        ratingColumn = NumericColumn.build(docs, RATING);
+        experienceColumn = NumericColumn.build(docs, EXPERIENCE);
+    }
+
+    private static Double value(Doc doc, Function<Doc, Double> extractor) {
+        return doc != null ? extractor.apply(doc) : null;
+    }
+
+    private Map<String, Integer> countValues(Facet f, BitSet base) {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+        postings.get(f).forEach((key, bits) -> {
+            BitSet tmp = (BitSet) bits.clone();
+            tmp.and(base);
+            int c = tmp.cardinality();
+            if (c > 0) counts.add(Map.entry(labels.get(f).get(key), c));
+        });
+        counts.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        Map<String, Integer> result = new LinkedHashMap<>();
+        counts.forEach(e -> result.put(e.getKey(), e.getValue()));
+        return result;
+    }
+
+    // "English, Japanese" -> [English, Japanese]
+    private static List<String> splitValues(String raw) {
+        if (raw == null || raw.isBlank()) return List.of();
+        return Arrays.stream(raw.split("[,;/]"))
+                .map(String::trim)
+                .filter(v -> !v.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Cột numeric đã sort tăng dần: slots[i] có giá trị values[i]. Doc không có giá trị thì không nằm trong cột.
+     */
+    private static final class NumericColumn {
+
+        static final NumericColumn EMPTY = new NumericColumn(new int[0], new double[0]);
+
+        final int[] slots;
+        final double[] values;
+
+        private NumericColumn(int[] slots, double[] values) {
+            this.slots = slots;
+            this.values = values;
+        }
+
+        static NumericColumn build(List<Doc> docs, Function<Doc, Double> extractor) {
+            double[] valueBySlot = new double[docs.size()];
+            List<Integer> present = new ArrayList<>();
+            for (int slot = 0; slot < docs.size(); slot++) {
+                Doc d = docs.get(slot);
+                Double v = d != null ? extractor.apply(d) : null;
+                if (v == null) continue;
+                valueBySlot[slot] = v;
+                present.add(slot);
+            }
+            present.sort(Comparator.<Integer>comparingDouble(slot -> valueBySlot[slot])
+                    .thenComparingInt(slot -> slot));
+
+            int[] slots = present.stream().mapToInt(Integer::intValue).toArray();
+            double[] values = Arrays.stream(slots).mapToDouble(slot -> valueBySlot[slot]).toArray();
+            return new NumericColumn(slots, values);
+        }
+
+        /**
+         * Cột mới sau khi bỏ (oldSlot, oldValue) và thêm (newSlot, newValue); value null = không nằm trong cột.
+         * O(log n) tìm vị trí + O(n) copy mảng, cột cũ không bị sửa.
+         */
+        NumericColumn replace(Integer oldSlot, Double oldValue, Integer newSlot, Double newValue) {
+            NumericColumn column = this;
+            if (oldSlot != null && oldValue != null) column = column.remove(oldSlot, oldValue);
+            if (newSlot != null && newValue != null) column = column.add(newSlot, newValue);
+            return column;
+        }
+
+        private NumericColumn remove(int slot, double value) {
+            int i = position(value, slot);
+            if (i >= slots.length || slots[i] != slot) return this;
+            int[] newSlots = new int[slots.length - 1];
+            double[] newValues = new double[values.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, i);
+            System.arraycopy(values, 0, newValues, 0, i);
+            System.arraycopy(slots, i + 1, newSlots, i, slots.length - i - 1);
+            System.arraycopy(values, i + 1, newValues, i, values.length - i - 1);
+            return new NumericColumn(newSlots, newValues);
+        }
+
+        private NumericColumn add(int slot, double value) {
+            int i = position(value, slot);
+            int[] newSlots = new int[slots.length + 1];
+            double[] newValues = new double[values.length + 1];
+            System.arraycopy(slots, 0, newSlots, 0, i);
+            System.arraycopy(values, 0, newValues, 0, i);
+            newSlots[i] = slot;
+            newValues[i] = value;
+            System.arraycopy(slots, i, newSlots, i + 1, slots.length - i);
+            System.arraycopy(values, i, newValues, i + 1, values.length - i);
+            return new NumericColumn(newSlots, newValues);
+        }
+
+        // index đầu tiên có (values[i], slots[i]) >= (value, slot), cùng thứ tự với build()
+        private int position(double value, int slot) {
+            int lo = 0, hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = Double.compare(values[mid], value);
+                if (cmp < 0 || (cmp == 0 && slots[mid] < slot)) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        // Slots có min <= value <= max (null = không giới hạn)
+        BitSet range(Double min, Double max) {
+            int from = min != null ? lowerBound(min) : 0;
+            int to = max != null ? upperBound(max) : values.length;
+            BitSet result = new BitSet();
+            for (int i = from; i < to; i++) result.set(slots[i]);
+            return result;
+        }
+
+        // Slots trong match theo thứ tự cột; doc không có giá trị xếp cuối (theo slot)
+        List<Integer> ordered(BitSet match, boolean descending) {
+            List<Integer> result = new ArrayList<>(match.cardinality());
+            BitSet rest = (BitSet) match.clone();
+            for (int k = 0; k < slots.length; k++) {
+                int slot = slots[descending ? slots.length - 1 - k : k];
+                if (match.get(slot)) {
+                    result.add(slot);
+                    rest.clear(slot);
+                }
+            }
+            rest.stream().forEach(result::add);
+            return result;
+        }
+
+        // index đầu tiên có values[i] >= v
+        private int lowerBound(double v) {
+            int lo = 0, hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] < v) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        // index đầu tiên có values[i] > v
+        private int upperBound(double v) {
+            int lo = 0, hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] <= v) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
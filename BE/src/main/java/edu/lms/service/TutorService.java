@@ -2,6 +2,7 @@ package edu.lms.service;
 
 import edu.lms.dto.request.TutorApplyRequest;
 import edu.lms.dto.request.TutorUpdateRequest;
+import edu.lms.dto.response.CursorPageResponse;
 import edu.lms.dto.response.TutorApplicationDetailResponse;
 import edu.lms.dto.response.TutorApplicationListResponse;
 import edu.lms.dto.response.TutorApplyResponse;
@@ -15,6 +16,7 @@ public interface TutorService {
     
     // Public methods
     TutorDetailResponse getTutorDetail(Long tutorId);
+    CursorPageResponse<TutorApplicationListResponse> getTutorDirectory(String cursor, int size);
     
     // Admin methods
     List<TutorApplicationListResponse> getPendingApplications();
@@ -8,10 +8,13 @@ import edu.lms.entity.*;
 import edu.lms.enums.TutorStatus;
 import edu.lms.enums.TutorVerificationStatus;
 import edu.lms.enums.CourseStatus;
+import edu.lms.exception.AppException;
+import edu.lms.exception.ErrorCode;
 import edu.lms.exception.TutorApplicationException;
 import edu.lms.exception.TutorNotFoundException;
 import edu.lms.mapper.TutorCourseMapper;
 import edu.lms.repository.TutorRepository;
+import edu.lms.repository.TutorRepository.TutorDirectoryRow;
 import edu.lms.repository.TutorVerificationRepository;
 import edu.lms.repository.UserRepository;
 import edu.lms.repository.CourseRepository;
@@ -19,6 +22,8 @@ import edu.lms.repository.BookingPlanRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -41,6 +46,7 @@ public class TutorServiceImpl implements TutorService {
     private final BookingPlanRepository bookingPlanRepository;
     private final TutorCourseMapper tutorCourseMapper;
     private final TutorBookingPlanService tutorBookingPlanService;
+    private final TutorSearchIndex tutorSearchIndex;
 
     @Override
     public void applyToBecomeTutor(Long userID, TutorApplyRequest request) {
@@ -296,6 +302,7 @@ public class TutorServiceImpl implements TutorService {
         tutor.setTeachingLanguage(verification.getTeachingLanguage());
         tutor.setBio(verification.getBio());
         tutorRepository.save(tutor);
+        tutorSearchIndex.onTutorChanged(tutor.getTutorID());
         
         log.info("Tutor application approved successfully for verification ID: {}, tutor ID: {}", verificationId, tutor.getTutorID());
     }
@@ -371,56 +378,68 @@ public class TutorServiceImpl implements TutorService {
     @Override
     public List<TutorApplicationListResponse> getAllTutors(String status) {
         log.info("Getting all tutors with status filter: {}", status);
-        
-        List<Tutor> tutors;
+
+        TutorStatus tutorStatus = null;
         if (status != null && !status.isEmpty()) {
             try {
-                TutorStatus tutorStatus = TutorStatus.valueOf(status.toUpperCase());
-                tutors = tutorRepository.findAllByStatus(tutorStatus);
-                log.info("Found {} tutors with status: {}", tutors.size(), status);
+                tutorStatus = TutorStatus.valueOf(status.toUpperCase());
             } catch (IllegalArgumentException e) {
                 log.error("Invalid status provided: {}", status);
                 throw new IllegalArgumentException("Invalid status: " + status);
             }
-        } else {
-            tutors = tutorRepository.findAll();
-            log.info("Found {} total tutors", tutors.size());
         }
-        
-        return tutors.stream()
-                .map(tutor -> {
-                    TutorVerification latestVerification = 
-                        tutorVerificationRepository.findTopByTutorOrderBySubmittedAtDesc(tutor)
-                            .orElse(null);
-                    
-                    // Ưu tiên dùng dữ liệu từ verification nếu có, nếu không thì dùng từ tutor
-                    String specialization = latestVerification != null && latestVerification.getSpecialization() != null
-                            ? latestVerification.getSpecialization()
-                            : tutor.getSpecialization();
-                    String teachingLanguage = latestVerification != null && latestVerification.getTeachingLanguage() != null
-                            ? latestVerification.getTeachingLanguage()
-                            : tutor.getTeachingLanguage();
-                    
-                    // Tính giá booking tối thiểu từ các booking plans active
-                    Double pricePerHour = calculateMinPricePerHour(tutor.getTutorID());
-                    
-                    return TutorApplicationListResponse.builder()
-                            .verificationId(latestVerification != null ? latestVerification.getTutorVerificationID() : null)
-                            .tutorId(tutor.getTutorID())
-                            .userId(tutor.getUser().getUserID())
-                            .userEmail(tutor.getUser().getEmail())
-                            .userName(tutor.getUser().getFullName())
-                            .avatarURL(tutor.getUser().getAvatarURL())
-                            .country(tutor.getUser().getCountry())
-                            .specialization(specialization)
-                            .teachingLanguage(teachingLanguage)
-                            .pricePerHour(pricePerHour)
-                            .status(tutor.getStatus().name())
-                            .submittedAt(latestVerification != null ? latestVerification.getSubmittedAt() : null)
-                            .reviewedAt(latestVerification != null ? latestVerification.getReviewedAt() : null)
-                            .build();
-                })
+
+        // 1 query: tutor + user + verification mới nhất + giá min (không query theo từng tutor)
+        List<TutorApplicationListResponse> tutors = tutorRepository
+                .findDirectory(tutorStatus, null, Pageable.unpaged()).stream()
+                .map(this::toTutorListResponse)
                 .collect(Collectors.toList());
+        log.info("Found {} tutors with status: {}", tutors.size(), status);
+        return tutors;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<TutorApplicationListResponse> getTutorDirectory(String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), 100);
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                afterId = Long.valueOf(KeysetCursor.decode(cursor, 1)[0]);
+            } catch (NumberFormatException e) {
+                throw new AppException(ErrorCode.INVALID_CURSOR);
+            }
+        }
+
+        // Lấy dư 1 phần tử để biết còn trang sau hay không
+        List<TutorDirectoryRow> rows = tutorRepository.findDirectory(
+                TutorStatus.APPROVED, afterId, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<TutorDirectoryRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        return CursorPageResponse.<TutorApplicationListResponse>builder()
+                .items(page.stream().map(this::toTutorListResponse).toList())
+                .nextCursor(hasMore ? KeysetCursor.encode(page.get(page.size() - 1).getTutorId()) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private TutorApplicationListResponse toTutorListResponse(TutorDirectoryRow row) {
+        return TutorApplicationListResponse.builder()
+                .verificationId(row.getVerificationId())
+                .tutorId(row.getTutorId())
+                .userId(row.getUserId())
+                .userEmail(row.getUserEmail())
+                .userName(row.getUserName())
+                .avatarURL(row.getAvatarURL())
+                .country(row.getCountry())
+                .specialization(row.getSpecialization())
+                .teachingLanguage(row.getTeachingLanguage())
+                .pricePerHour(row.getPricePerHour())
+                .status(row.getStatus() != null ? row.getStatus().name() : null)
+                .submittedAt(row.getSubmittedAt())
+                .reviewedAt(row.getReviewedAt())
+                .build();
     }
 
     @Override
@@ -465,6 +484,7 @@ public class TutorServiceImpl implements TutorService {
         
         tutor.setStatus(TutorStatus.SUSPENDED);
         tutorRepository.save(tutor);
+        tutorSearchIndex.onTutorChanged(tutorId);
         
         log.info("Tutor suspended successfully: {}", tutorId);
     }
@@ -478,6 +498,7 @@ public class TutorServiceImpl implements TutorService {
         
         tutor.setStatus(TutorStatus.APPROVED);
         tutorRepository.save(tutor);
+        tutorSearchIndex.onTutorChanged(tutorId);
         
         log.info("Tutor unsuspended successfully: {}", tutorId);
     }
@@ -516,6 +537,7 @@ public class TutorServiceImpl implements TutorService {
         }
         
         tutorRepository.save(tutor);
+        tutorSearchIndex.onTutorChanged(tutorId);
         log.info("Tutor information updated successfully for tutor ID: {}", tutorId);
     }
 
@@ -3,7 +3,6 @@ package edu.lms.service;
 import edu.lms.dto.request.SlotBookingRequest;
 import edu.lms.dto.response.OperationStatusResponse;
 import edu.lms.entity.BookingPlanSlot;
-import edu.lms.enums.SlotStatus;
 import edu.lms.exception.AppException;
 import edu.lms.exception.ErrorCode;
 import edu.lms.repository.BookingPlanSlotRepository;
@@ -23,6 +22,8 @@ import java.util.List;
 public class TutorSlotBookingService {
 
     BookingPlanSlotRepository bookingPlanSlotRepository;
+    TutorAvailabilityIndex tutorAvailabilityIndex;
+    ExpiryWheelScheduler expiryWheelScheduler;
     static final int LOCK_DURATION_MINUTES = 10;
 
     public OperationStatusResponse lockSlots(Long currentUserId, SlotBookingRequest request) {
@@ -33,27 +34,19 @@ public class TutorSlotBookingService {
             throw new AppException(ErrorCode.BOOKING_SLOT_NOT_FOUND);
         }
 
+        // Lock bằng 1 câu UPDATE có điều kiện: 2 learner cùng lock 1 slot thì chỉ 1 người thắng
         LocalDateTime now = LocalDateTime.now();
-        for (BookingPlanSlot slot : slots) {
-            releaseIfExpired(slot);
-
-            if (slot.getStatus() != SlotStatus.Available || slot.getUserID() != null) {
-                throw new AppException(ErrorCode.BOOKING_SLOT_NOT_AVAILABLE);
-            }
-
-            if (!slot.getStartTime().isAfter(now)) {
-                throw new AppException(ErrorCode.BOOKING_SLOT_NOT_AVAILABLE);
-            }
-
-            slot.setUserID(currentUserId);
-            slot.setStatus(SlotStatus.Locked);
-            slot.setLockedAt(now);
-            slot.setExpiresAt(now.plusMinutes(LOCK_DURATION_MINUTES));
-            slot.setUserPackage(null);
-            slot.setPaymentID(null);
+        int locked = bookingPlanSlotRepository.lockIfAvailable(
+                request.getSlotIds(), currentUserId, null, now, now.plusMinutes(LOCK_DURATION_MINUTES));
+        if (locked != request.getSlotIds().size()) {
+            // Rollback cả các slot vừa lock được trong request này
+            throw new AppException(ErrorCode.BOOKING_SLOT_NOT_AVAILABLE);
         }
 
-        bookingPlanSlotRepository.saveAll(slots);
+        // Bulk UPDATE không đi qua entity listener
+        slots.stream().map(BookingPlanSlot::getTutorID).distinct()
+                .forEach(tutorAvailabilityIndex::onTutorChanged);
+        expiryWheelScheduler.onSlotsLocked(request.getSlotIds(), now.plusMinutes(LOCK_DURATION_MINUTES));
 
         return OperationStatusResponse.success("Slots locked successfully.");
     }
@@ -67,19 +60,4 @@ public class TutorSlotBookingService {
             throw new AppException(ErrorCode.INVALID_KEY);
         }
     }
-
-    private void releaseIfExpired(BookingPlanSlot slot) {
-        if (slot.getStatus() == SlotStatus.Locked &&
-                slot.getExpiresAt() != null &&
-                slot.getExpiresAt().isBefore(LocalDateTime.now())) {
-            slot.setStatus(SlotStatus.Available);
-            slot.setUserID(null);
-            slot.setLockedAt(null);
-            slot.setExpiresAt(null);
-            slot.setPaymentID(null);
-            slot.setUserPackage(null);
-        }
-    }
 }
-
-
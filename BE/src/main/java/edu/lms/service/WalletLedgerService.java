@@ -0,0 +1,176 @@
+package edu.lms.service;
+
+import edu.lms.entity.Payment;
+import edu.lms.entity.RefundRequest;
+import edu.lms.entity.Setting;
+import edu.lms.entity.WalletLedgerEntry;
+import edu.lms.entity.WithdrawMoney;
+import edu.lms.enums.PaymentType;
+import edu.lms.enums.RefundStatus;
+import edu.lms.enums.WalletEntryType;
+import edu.lms.enums.WithdrawStatus;
+import edu.lms.exception.AppException;
+import edu.lms.exception.ErrorCode;
+import edu.lms.repository.PaymentRepository;
+import edu.lms.repository.RefundRequestRepository;
+import edu.lms.repository.SettingRepository;
+import edu.lms.repository.TutorRepository;
+import edu.lms.repository.WalletLedgerRepository;
+import edu.lms.repository.WithdrawRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Ví tutor = sổ cái append-only (wallet_ledger) + số dư chạy trong tutor.walletBalance.
+ * Mỗi biến động: UPDATE tutor cộng delta (giữ row lock -> tuần tự theo tutor) rồi ghi 1 dòng ledger
+ * với balanceAfter, trong cùng transaction của nghiệp vụ. Đọc số dư = 1 dòng, không quét lại payment.
+ * Tutor chưa có dòng ledger nào -> openLedgerIfAbsent ghi OPENING_BALANCE trước dòng đầu tiên.
+ * Số dư đầu kỳ chỉ có 1 định nghĩa (legacyBalance), dùng chung cho lần ghi sổ đầu tiên
+ * và backfill lúc khởi động (WalletLedgerVerifier), ai tới trước cũng ra cùng 1 số.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = PRIVATE, makeFinal = true)
+public class WalletLedgerService {
+
+    static final int MAX_HISTORY_SIZE = 100;
+
+    WalletLedgerRepository walletLedgerRepository;
+    TutorRepository tutorRepository;
+    SettingRepository settingRepository;
+    PaymentRepository paymentRepository;
+    WithdrawRepository withdrawRepository;
+    RefundRequestRepository refundRequestRepository;
+
+    public BigDecimal getBalance(Long tutorId) {
+        return tutorRepository.findWalletBalance(tutorId)
+                .orElseThrow(() -> new AppException(ErrorCode.TUTOR_NOT_FOUND));
+    }
+
+    public List<WalletLedgerEntry> getHistory(Long tutorId, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_HISTORY_SIZE);
+        return walletLedgerRepository.findByTutorIdOrderByLedgerIdDesc(tutorId, PageRequest.of(0, pageSize));
+    }
+
+    /**
+     * Cộng tiền payment PAID vào ví (đã trừ commission hiện hành, snapshot rate vào ledger).
+     * Gọi lại cho cùng payment (webhook trùng) không ghi sổ lần 2.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void creditPayment(Payment payment, Long tutorId) {
+        if (walletLedgerRepository.existsByEntryTypeAndSourceId(WalletEntryType.PAYMENT, payment.getPaymentID())) {
+            log.info("[WALLET] Payment {} already credited, skip", payment.getPaymentID());
+            return;
+        }
+        Setting setting = settingRepository.getCurrentSetting();
+        BigDecimal rate = payment.getPaymentType() == PaymentType.Course
+                ? setting.getCommissionCourse()
+                : setting.getCommissionBooking();
+        BigDecimal gross = payment.getAmount();
+        BigDecimal net = gross.subtract(gross.multiply(rate)).setScale(2, RoundingMode.HALF_UP);
+
+        // Payment này đã PAID trong transaction hiện tại -> không tính vào số dư đầu kỳ (sẽ cộng bằng dòng PAYMENT)
+        openLedgerIfAbsent(tutorId, setting, payment.getPaymentID());
+        WalletLedgerEntry entry = append(tutorId, WalletEntryType.PAYMENT, payment.getPaymentID(), net, false,
+                gross, rate);
+        log.info("[WALLET] Credited {} to tutor {} for {} payment {} (balance {})",
+                net, tutorId, payment.getPaymentType(), payment.getPaymentID(), entry.getBalanceAfter());
+    }
+
+    /**
+     * Trừ tiền refund đã duyệt; không đủ số dư -> INVALID_AMOUNT
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void debitRefund(RefundRequest refund) {
+        openLedgerIfAbsent(refund.getTutor().getTutorID(), null, null);
+        append(refund.getTutor().getTutorID(), WalletEntryType.REFUND, refund.getRefundRequestId(),
+                refund.getRefundAmount().negate(), true, null, null);
+    }
+
+    /**
+     * Trừ tiền rút đã duyệt; không đủ số dư -> INVALID_AMOUNT
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void debitWithdraw(WithdrawMoney withdraw) {
+        openLedgerIfAbsent(withdraw.getTutor().getTutorID(), null, null);
+        append(withdraw.getTutor().getTutorID(), WalletEntryType.WITHDRAW, withdraw.getWithdrawId(),
+                withdraw.getWithdrawAmount().negate(), true, null, null);
+    }
+
+    // Gọi sau openLedgerIfAbsent (dòng đầu tiên của tutor luôn là OPENING_BALANCE)
+    private WalletLedgerEntry append(Long tutorId, WalletEntryType type, Long sourceId, BigDecimal amount,
+                                     boolean requireFunds, BigDecimal grossAmount, BigDecimal commissionRate) {
+        if (tutorRepository.addToWalletBalance(tutorId, amount, requireFunds) == 0) {
+            throw new AppException(tutorRepository.existsById(tutorId)
+                    ? ErrorCode.INVALID_AMOUNT
+                    : ErrorCode.TUTOR_NOT_FOUND);
+        }
+        // Đang giữ row lock của tutor -> số dư đọc lại chính là balanceAfter của dòng này
+        BigDecimal balanceAfter = getBalance(tutorId);
+
+        return walletLedgerRepository.save(WalletLedgerEntry.builder()
+                .tutorId(tutorId)
+                .entryType(type)
+                .sourceId(sourceId)
+                .grossAmount(grossAmount)
+                .commissionRate(commissionRate)
+                .amount(amount)
+                .balanceAfter(balanceAfter)
+                .build());
+    }
+
+    /**
+     * Ghi OPENING_BALANCE = legacyBalance và đặt walletBalance theo đó, nếu tutor chưa có dòng ledger nào.
+     * @param setting           commission dùng cho legacyBalance (null = đọc setting hiện hành)
+     * @param excludedPaymentId payment đang được ghi sổ, không tính vào số dư đầu kỳ (null = không loại trừ)
+     * @return false nếu tutor đã có ledger
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean openLedgerIfAbsent(Long tutorId, Setting setting, Long excludedPaymentId) {
+        // Lock row tutor trước (UPDATE +0), kiểm tra lại dưới lock để không ghi OPENING_BALANCE 2 lần
+        if (tutorRepository.addToWalletBalance(tutorId, BigDecimal.ZERO, false) == 0) {
+            throw new AppException(ErrorCode.TUTOR_NOT_FOUND);
+        }
+        if (walletLedgerRepository.existsByTutorId(tutorId)) return false;
+
+        BigDecimal opening = legacyBalance(tutorId,
+                setting != null ? setting : settingRepository.getCurrentSetting(), excludedPaymentId);
+        tutorRepository.setWalletBalance(tutorId, opening);
+        walletLedgerRepository.save(WalletLedgerEntry.builder()
+                .tutorId(tutorId)
+                .entryType(WalletEntryType.OPENING_BALANCE)
+                .sourceId(tutorId)
+                .amount(opening)
+                .balanceAfter(opening)
+                .build());
+        log.info("[WALLET] Opened ledger of tutor {} with balance {}", tutorId, opening);
+        return true;
+    }
+
+    // Cách tính số dư trước khi có ledger (duyệt từng payment), gom thành SUM theo loại payment.
+    // Refund / withdraw đang được duyệt chưa APPROVED nên không bị tính 2 lần.
+    private BigDecimal legacyBalance(Long tutorId, Setting setting, Long excludedPaymentId) {
+        BigDecimal course = paymentRepository.sumPaidAmountByTutorAndType(tutorId, PaymentType.Course, excludedPaymentId);
+        BigDecimal booking = paymentRepository.sumPaidAmountByTutorAndType(tutorId, PaymentType.Booking, excludedPaymentId);
+        BigDecimal withdrawn = withdrawRepository.sumWithdrawAmountByTutorAndStatus(tutorId, WithdrawStatus.APPROVED);
+        BigDecimal refunded = refundRequestRepository.sumRefundAmountByTutorAndStatus(tutorId, RefundStatus.APPROVED);
+
+        return course.subtract(course.multiply(setting.getCommissionCourse()))
+                .add(booking.subtract(booking.multiply(setting.getCommissionBooking())))
+                .subtract(withdrawn != null ? withdrawn : BigDecimal.ZERO)
+                .subtract(refunded != null ? refunded : BigDecimal.ZERO)
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+}
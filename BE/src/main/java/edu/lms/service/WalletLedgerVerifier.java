@@ -0,0 +1,137 @@
+package edu.lms.service;
+
+import edu.lms.entity.Setting;
+import edu.lms.enums.WalletEntryType;
+import edu.lms.repository.SettingRepository;
+import edu.lms.repository.TutorRepository;
+import edu.lms.repository.WalletLedgerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Giữ tutor.walletBalance khớp sổ cái wallet_ledger:
+ *  - Khởi động: tutor chưa có dòng ledger nào -> ghi OPENING_BALANCE = số dư tính theo cách cũ
+ *    (tổng payment PAID sau commission - withdraw / refund APPROVED), 1 lần cho mỗi tutor,
+ *    qua WalletLedgerService.openLedgerIfAbsent (cùng định nghĩa với lần ghi sổ đầu tiên).
+ *  - Định kỳ: so SUM(amount) với walletBalance và balanceAfter dòng mới nhất;
+ *    lệch -> kiểm tra lại dưới row lock, đặt walletBalance = SUM(amount) và log error.
+ *    Ví chưa có OPENING_BALANCE không bao giờ bị đặt lại (SUM thiếu số dư cũ), chỉ log để xử lý tay.
+ * Mỗi tutor xử lý trong 1 transaction riêng (lỗi 1 tutor không chặn các tutor khác).
+ */
+@Slf4j
+@Component
+public class WalletLedgerVerifier {
+
+    private final WalletLedgerRepository walletLedgerRepository;
+    private final WalletLedgerService walletLedgerService;
+    private final TutorRepository tutorRepository;
+    private final SettingRepository settingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public WalletLedgerVerifier(
+            WalletLedgerRepository walletLedgerRepository,
+            WalletLedgerService walletLedgerService,
+            TutorRepository tutorRepository,
+            SettingRepository settingRepository,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.walletLedgerRepository = walletLedgerRepository;
+        this.walletLedgerService = walletLedgerService;
+        this.tutorRepository = tutorRepository;
+        this.settingRepository = settingRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // ======================================================
+    // BACKFILL
+    // ======================================================
+    // Tutor có giao dịch trước khi backfill chạy tới đã được WalletLedgerService mở sổ (cùng công thức)
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOpeningBalances() {
+        List<Long> tutorIds = tutorRepository.findTutorIdsWithoutLedger();
+        if (tutorIds.isEmpty()) return;
+
+        Setting setting = settingRepository.getCurrentSetting();
+        int opened = 0;
+        for (Long tutorId : tutorIds) {
+            try {
+                Boolean written = transactionTemplate.execute(
+                        status -> walletLedgerService.openLedgerIfAbsent(tutorId, setting, null));
+                if (Boolean.TRUE.equals(written)) opened++;
+            } catch (RuntimeException e) {
+                log.error("[WALLET] Opening balance of tutor {} failed: {}", tutorId, e.getMessage());
+            }
+        }
+        log.info("[WALLET] Opened ledger for {} / {} tutors", opened, tutorIds.size());
+    }
+
+    // ======================================================
+    // VERIFY
+    // ======================================================
+    @Scheduled(cron = "${app.wallet.verify-cron:0 0 3 * * *}")
+    public void verify() {
+        Map<Long, BigDecimal> ledgerSums = toMap(walletLedgerRepository.sumAmountGroupByTutor());
+        Map<Long, BigDecimal> latestBalances = toMap(walletLedgerRepository.findLatestBalances());
+
+        int checked = 0;
+        int repaired = 0;
+        for (Object[] row : tutorRepository.findAllWalletBalances()) {
+            Long tutorId = (Long) row[0];
+            BigDecimal balance = (BigDecimal) row[1];
+            BigDecimal sum = ledgerSums.getOrDefault(tutorId, BigDecimal.ZERO);
+            BigDecimal latest = latestBalances.getOrDefault(tutorId, BigDecimal.ZERO);
+            checked++;
+
+            if (latest.compareTo(sum) != 0) {
+                // Ledger append-only: không sửa, chỉ báo để điều tra
+                log.error("[WALLET] Ledger of tutor {} inconsistent: SUM(amount)={} but last balanceAfter={}",
+                        tutorId, sum, latest);
+            }
+            if (balance.compareTo(sum) != 0) {
+                try {
+                    Boolean fixed = transactionTemplate.execute(status -> repair(tutorId));
+                    if (Boolean.TRUE.equals(fixed)) repaired++;
+                } catch (RuntimeException e) {
+                    log.error("[WALLET] Repair of tutor {} failed: {}", tutorId, e.getMessage());
+                }
+            }
+        }
+        log.info("[WALLET] Verified {} wallets, {} repaired from ledger", checked, repaired);
+    }
+
+    private boolean repair(Long tutorId) {
+        // Đọc ở trên không lock -> có thể bắt gặp giao dịch đang ghi sổ, kiểm tra lại dưới row lock
+        tutorRepository.addToWalletBalance(tutorId, BigDecimal.ZERO, false);
+        BigDecimal sum = walletLedgerRepository.sumAmountByTutorId(tutorId);
+        BigDecimal balance = tutorRepository.findWalletBalance(tutorId).orElse(null);
+        if (balance == null || balance.compareTo(sum) == 0) return false;
+
+        if (!walletLedgerRepository.existsByTutorIdAndEntryType(tutorId, WalletEntryType.OPENING_BALANCE)) {
+            log.error("[WALLET] Wallet of tutor {} has no opening entry: balance={} ledger={}, not repaired",
+                    tutorId, balance, sum);
+            return false;
+        }
+
+        log.error("[WALLET] Wallet of tutor {} drifted: balance={} ledger={}, reset to ledger", tutorId, balance, sum);
+        tutorRepository.setWalletBalance(tutorId, sum);
+        return true;
+    }
+
+    private static Map<Long, BigDecimal> toMap(List<Object[]> rows) {
+        Map<Long, BigDecimal> map = new HashMap<>();
+        for (Object[] row : rows) {
+            map.put((Long) row[0], (BigDecimal) row[1]);
+        }
+        return map;
+    }
+}
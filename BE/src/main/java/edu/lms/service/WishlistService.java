@@ -5,6 +5,7 @@ import edu.lms.entity.*;
 import edu.lms.exception.AppException;
 import edu.lms.exception.ErrorCode;
 import edu.lms.repository.*;
+import edu.lms.service.CourseMembershipCache.Membership;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -23,6 +24,7 @@ public class WishlistService {
     WishlistRepository wishlistRepository;
     UserRepository userRepository;
     CourseRepository courseRepository;
+    CourseMembershipCache courseMembershipCache;
 
     public void addToWishlist(String email, Long courseId) {
         User user = userRepository.findByEmail(email)
@@ -34,6 +36,7 @@ public class WishlistService {
                 .ifPresent(w -> { throw new AppException(ErrorCode.ALREADY_IN_WISHLIST); });
 
         wishlistRepository.save(Wishlist.builder().user(user).course(course).build());
+        courseMembershipCache.onWishlistAdded(user.getUserID(), courseId);
     }
 
     public void removeFromWishlist(String email, Long courseId) {
@@ -43,18 +46,21 @@ public class WishlistService {
                 .orElseThrow(() -> new AppException(ErrorCode.COURSE_NOT_FOUND));
 
         wishlistRepository.deleteByUserAndCourse(user, course);
+        courseMembershipCache.onWishlistRemoved(user.getUserID(), courseId);
     }
 
     public List<CourseResponse> getMyWishlist(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
 
-        return wishlistRepository.findByUser(user).stream()
-                .map(w -> toCourseResponse(w.getCourse()))
+        // 1 query kèm course/category/tutor, purchased lấy từ membership (không query từng course)
+        Membership membership = courseMembershipCache.get(user.getUserID());
+        return wishlistRepository.findWithCourseByUserId(user.getUserID()).stream()
+                .map(w -> toCourseResponse(w.getCourse(), membership))
                 .toList();
     }
 
-    private CourseResponse toCourseResponse(Course course) {
+    private CourseResponse toCourseResponse(Course course, Membership membership) {
         return CourseResponse.builder()
                 .id(course.getCourseID())
                 .title(course.getTitle())
@@ -65,6 +71,8 @@ public class WishlistService {
                 .categoryName(course.getCategory().getName())
                 .tutorName(course.getTutor().getUser().getFullName())
                 .status(course.getStatus().name())
+                .isWishListed(true)
+                .isPurchased(membership.isPurchased(course.getCourseID()))
                 .build();
     }
 }
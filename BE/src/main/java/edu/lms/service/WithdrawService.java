@@ -1,22 +1,16 @@
 package edu.lms.service;
 
 import edu.lms.dto.request.WithdrawRequest;
+import edu.lms.dto.response.WalletLedgerEntryResponse;
 import edu.lms.dto.response.WithdrawResponse;
-import edu.lms.entity.Payment;
-import edu.lms.entity.Setting;
 import edu.lms.entity.Tutor;
+import edu.lms.entity.WalletLedgerEntry;
 import edu.lms.entity.WithdrawMoney;
-import edu.lms.enums.PaymentType;
 import edu.lms.enums.WithdrawStatus;
-import edu.lms.enums.RefundStatus;
 import edu.lms.exception.AppException;
 import edu.lms.exception.ErrorCode;
-import edu.lms.repository.PaymentRepository;
-import edu.lms.repository.SettingRepository;
 import edu.lms.repository.TutorRepository;
 import edu.lms.repository.WithdrawRepository;
-import edu.lms.repository.RefundRequestRepository;
-import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.stereotype.Service;
@@ -33,76 +27,7 @@ public class WithdrawService {
 
     WithdrawRepository withdrawRepository;
     TutorRepository tutorRepository;
-    PaymentRepository paymentRepository;
-    SettingRepository settingRepository;
-    RefundRequestRepository refundRepository;
-
-    // =============================
-    //  TÍNH TỔNG NET INCOME (PAYMENT)
-    // =============================
-    // Tổng tiền tutor nhận được từ tất cả payment PAID (đã trừ commission)
-    private BigDecimal calculateNetIncome(Long tutorId) {
-
-        Setting setting = settingRepository.getCurrentSetting();
-        BigDecimal commissionCourse = setting.getCommissionCourse();
-        BigDecimal commissionBooking = setting.getCommissionBooking();
-
-        List<Payment> payments = paymentRepository.findSuccessPaymentsByTutor(tutorId);
-
-        BigDecimal totalNet = BigDecimal.ZERO;
-
-        for (Payment p : payments) {
-            BigDecimal net;
-
-            if (p.getPaymentType() == PaymentType.Course) {
-                net = p.getAmount()
-                        .subtract(p.getAmount().multiply(commissionCourse));
-            } else {
-                net = p.getAmount()
-                        .subtract(p.getAmount().multiply(commissionBooking));
-            }
-
-            totalNet = totalNet.add(net);
-        }
-
-        return totalNet;
-    }
-
-    // =============================
-    //  TÍNH SỐ DƯ HIỆN TẠI CỦA VÍ
-    // =============================
-    // Balance = NetIncome - WithdrawApproved - RefundApproved
-    public BigDecimal calculateCurrentBalance(Long tutorId) {
-
-        // 1) Tổng thu nhập ròng từ tất cả payment thành công
-        BigDecimal netIncome = calculateNetIncome(tutorId);
-
-        // 2) Tổng tiền đã rút (APPROVED)
-        BigDecimal totalWithdrawApproved =
-                withdrawRepository.sumWithdrawAmountByTutorAndStatus(
-                        tutorId,
-                        WithdrawStatus.APPROVED
-                );
-        if (totalWithdrawApproved == null) {
-            totalWithdrawApproved = BigDecimal.ZERO;
-        }
-
-        // 3) Tổng tiền refund đã được duyệt (trả lại cho learner)
-        BigDecimal totalRefundApproved =
-                refundRepository.sumRefundAmountByTutorAndStatus(
-                        tutorId,
-                        RefundStatus.APPROVED
-                );
-        if (totalRefundApproved == null) {
-            totalRefundApproved = BigDecimal.ZERO;
-        }
-
-        // 4) Số dư hiện tại
-        return netIncome
-                .subtract(totalWithdrawApproved)
-                .subtract(totalRefundApproved);
-    }
-
+    WalletLedgerService walletLedgerService;
 
     // =============================
     // TUTOR REQUEST WITHDRAW
@@ -112,8 +37,8 @@ public class WithdrawService {
         Tutor tutor = tutorRepository.findById(tutorId)
                 .orElseThrow(() -> new AppException(ErrorCode.TUTOR_NOT_FOUND));
 
-        // Số dư thực tế trong ví = tính lại theo thuật toán
-        BigDecimal currentBalance = calculateCurrentBalance(tutorId);
+        // Số dư hiện tại trong ví (số dư chạy của ledger)
+        BigDecimal currentBalance = walletLedgerService.getBalance(tutorId);
 
         BigDecimal withdrawAmount = req.getWithdrawAmount();
 
@@ -143,8 +68,19 @@ public class WithdrawService {
     // GET BALANCE TỪ VÍ
     // =============================
     public BigDecimal getBalance(Long tutorId) {
-        // Luôn tính lại, không đọc cứng từ tutor.walletBalance
-        return calculateCurrentBalance(tutorId);
+        // tutor.walletBalance chỉ đổi qua WalletLedgerService, luôn khớp sổ cái
+        return walletLedgerService.getBalance(tutorId);
+    }
+
+
+    // =============================
+    // LỊCH SỬ BIẾN ĐỘNG VÍ (LEDGER)
+    // =============================
+    public List<WalletLedgerEntryResponse> getLedger(Long tutorId, int size) {
+        return walletLedgerService.getHistory(tutorId, size)
+                .stream()
+                .map(this::toLedgerResponse)
+                .toList();
     }
 
 
@@ -176,4 +112,18 @@ public class WithdrawService {
                 .build();
     }
 
+    private WalletLedgerEntryResponse toLedgerResponse(WalletLedgerEntry e) {
+        return WalletLedgerEntryResponse.builder()
+                .ledgerId(e.getLedgerId())
+                .tutorId(e.getTutorId())
+                .entryType(e.getEntryType())
+                .sourceId(e.getSourceId())
+                .grossAmount(e.getGrossAmount())
+                .commissionRate(e.getCommissionRate())
+                .amount(e.getAmount())
+                .balanceAfter(e.getBalanceAfter())
+                .createdAt(e.getCreatedAt())
+                .build();
+    }
+
 }
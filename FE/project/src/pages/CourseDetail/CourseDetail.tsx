@@ -20,7 +20,6 @@ interface Lesson {
   duration: number;
   lessonType: string;
   videoURL: string | null;
-  content: string;
   orderIndex: number;
   createdAt: string;
   resources: LessonResource[];
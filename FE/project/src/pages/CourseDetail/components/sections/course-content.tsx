@@ -30,7 +30,6 @@ interface CourseContentProps {
                 duration: number;
                 lessonType: string;
                 videoURL: string | null;
-                content: string;
                 orderIndex: number;
             }[];
         }[];
@@ -24,7 +24,6 @@ interface CourseLesson {
   orderIndex: number;
   duration: number;
   lessonType: string;
-  content: string;
   objectives: string[];
   isDone: boolean;
 
@@ -35,6 +34,12 @@ interface CourseLesson {
   resources: CourseResource[];
 }
 
+// Nội dung bài học không nằm trong outline, lấy riêng theo lesson
+interface LessonContentResponse {
+  lessonID: number;
+  content: string | null;
+}
+
 interface CourseSection {
   sectionID: number;
   sectionTitle: string;
@@ -109,8 +114,13 @@ const LessonDetail: React.FC = () => {
       try {
         setIsLoading(true);
 
-        const res = await api.get(`/courses/detail/${courseId}`);
+        const [res, contentRes] = await Promise.all([
+          api.get(`/courses/detail/${courseId}`),
+          api.get(`/courses/detail/${courseId}/lessons/${id}/content`),
+        ]);
         const course: CourseDetailResponse = res.data.result;
+        const lessonContent: LessonContentResponse = contentRes.data.result;
+        const content = lessonContent?.content ?? "";
 
         setCourseData(course);
         setCourseTitle(course.title);
@@ -151,12 +161,12 @@ const LessonDetail: React.FC = () => {
           duration: foundLesson.duration,
           lessonType: foundLesson.lessonType,
 
-          description: foundLesson.content,
+          description: content,
           objectives: foundLesson.objectives,
           materials: mappedMaterials,
 
-          transcript: foundLesson.content,
-          content: foundLesson.content,
+          transcript: content,
+          content,
 
           videoURL:
               foundLesson.videoURL ||